@@ -0,0 +1,31 @@
+package org.strangeforest.jmx.benchmark;
+
+import org.strangeforest.jmx.annotation.*;
+
+/**
+ * Annotated counter equivalent to the counters of the hand-written MBeans in <code>jmx-test</code>.
+ */
+@MBeanDescription("Benchmark Counter")
+public class BenchmarkCounter {
+
+	private int count;
+
+	@ManagedAttribute
+	public synchronized int getCount() {
+		return count;
+	}
+
+	public synchronized void setCount(int count) {
+		this.count = count;
+	}
+
+	@ManagedOperation(impact = Impact.ACTION)
+	public synchronized void inc() {
+		count++;
+	}
+
+	@ManagedOperation(impact = Impact.ACTION)
+	public synchronized void dec() {
+		count--;
+	}
+}
@@ -0,0 +1,21 @@
+package org.strangeforest.jmx.benchmark;
+
+import org.openjdk.jmh.profile.*;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.*;
+
+/**
+ * <p>Runs the benchmarks with the JMH command line options and the GC profiler (<code>-prof gc</code>) always
+ * enabled, so each result is accompanied by the allocation rate per operation (<code>gc.alloc.rate.norm</code>).</p>
+ * <p>Usage: <code>java -jar jmx-benchmarks/target/benchmarks.jar [JMH options] [benchmark regexp]</code></p>
+ */
+public final class BenchmarkRunner {
+
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+		Options options = new OptionsBuilder()
+			.parent(new CommandLineOptions(args))
+			.addProfiler(GCProfiler.class)
+			.build();
+		new Runner(options).run();
+	}
+}
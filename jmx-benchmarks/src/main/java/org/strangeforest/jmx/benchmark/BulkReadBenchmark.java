@@ -0,0 +1,73 @@
+package org.strangeforest.jmx.benchmark;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.management.*;
+import javax.management.openmbean.*;
+
+import org.openjdk.jmh.annotations.*;
+import org.strangeforest.jmx.*;
+
+/**
+ * Reads the attributes of all the test MBeans by concurrent clients, with one RMI <code>getAttributes</code> call per
+ * MBean, with a single RMI invocation of the {@link BulkReader} and with a single request to the HTTP bridge returning
+ * JSON. HTTP connections are kept alive between
+ * requests, like RMI connections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.SampleTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(16)
+@Fork(1)
+public class BulkReadBenchmark {
+
+	private static final String[] BULK_READ_SIGNATURE = {String.class.getName(), String[].class.getName()};
+
+	private URL readUrl;
+	private ObjectName bulkReaderName;
+	private Object[] bulkReadParams;
+
+	@Setup
+	public void setUp(HttpServerState httpServer) throws IOException, MalformedObjectNameException {
+		StringBuilder query = new StringBuilder("/read?");
+		Set<String> attributes = new LinkedHashSet<>();
+		for (RemoteMBean mBean : RemoteMBean.values()) {
+			query.append("name=").append(URLEncoder.encode(mBean.getObjectName().toString(), "UTF-8")).append('&');
+			attributes.addAll(Arrays.asList(mBean.getAttributes()));
+		}
+		for (String attribute : attributes)
+			query.append("attribute=").append(attribute).append('&');
+		readUrl = httpServer.getUrl(query.substring(0, query.length() - 1));
+		bulkReaderName = new ObjectName(BulkReader.NAME);
+		bulkReadParams = new Object[] {"org.strangeforrest.test:*", attributes.toArray(new String[attributes.size()])};
+	}
+
+	@Benchmark
+	public int rmiGetAttributes(JMXClientState client) throws JMException, IOException {
+		int count = 0;
+		for (RemoteMBean mBean : RemoteMBean.values())
+			count += client.getConnection().getAttributes(mBean.getObjectName(), mBean.getAttributes()).size();
+		return count;
+	}
+
+	@Benchmark
+	public int rmiBulkRead(JMXClientState client) throws JMException, IOException {
+		return ((TabularData)client.getConnection().invoke(bulkReaderName, "read", bulkReadParams, BULK_READ_SIGNATURE)).size();
+	}
+
+	@Benchmark
+	public int httpRead() throws IOException {
+		HttpURLConnection connection = (HttpURLConnection)readUrl.openConnection();
+		int length = 0;
+		try (InputStream in = connection.getInputStream()) {
+			byte[] buffer = new byte[8192];
+			for (int read; (read = in.read(buffer)) >= 0; )
+				length += read;
+		}
+		return length;
+	}
+}
@@ -0,0 +1,62 @@
+package org.strangeforest.jmx.benchmark;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+import org.strangeforest.jmx.metric.*;
+import org.strangeforest.test.jmx.standard.*;
+
+/**
+ * Increments of a shared counter by concurrent threads, comparing the <code>synchronized</code> counter of
+ * <code>TestStandard</code> with the striped {@link Counter}, and the cost of reading each while being updated.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(16)
+@Fork(1)
+public class CounterBenchmark {
+
+	private final TestStandard synchronizedCounter = new TestStandard();
+	private final Counter counter = new Counter();
+
+	@Benchmark
+	public void synchronizedIncrement() {
+		synchronizedCounter.inc();
+	}
+
+	@Benchmark
+	public void stripedIncrement() {
+		counter.increment();
+	}
+
+	@Benchmark
+	@Group("synchronizedReadWhileIncrementing")
+	@GroupThreads(15)
+	public void synchronizedIncrementInGroup() {
+		synchronizedCounter.inc();
+	}
+
+	@Benchmark
+	@Group("synchronizedReadWhileIncrementing")
+	@GroupThreads(1)
+	public int synchronizedRead() {
+		return synchronizedCounter.getCount();
+	}
+
+	@Benchmark
+	@Group("stripedReadWhileIncrementing")
+	@GroupThreads(15)
+	public void stripedIncrementInGroup() {
+		counter.increment();
+	}
+
+	@Benchmark
+	@Group("stripedReadWhileIncrementing")
+	@GroupThreads(1)
+	public long stripedRead() {
+		return counter.getCount();
+	}
+}
@@ -0,0 +1,62 @@
+package org.strangeforest.jmx.benchmark;
+
+import java.util.concurrent.*;
+import javax.management.*;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Attribute and operation dispatch cost of each {@link MBeanStyle}, measured through an <code>MBeanServer</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+
+	@Param
+	private MBeanStyle style;
+
+	private MBeanServer server;
+	private ObjectName name;
+	private String countAttribute;
+	private String[] countAttributes;
+	private Attribute count;
+
+	@Setup
+	public void setUp() throws JMException {
+		server = MBeanServerFactory.newMBeanServer();
+		name = new ObjectName("org.strangeforest.jmx.benchmark:type=" + style);
+		server.registerMBean(style.createMBean(), name);
+		countAttribute = style.getCountAttribute();
+		countAttributes = new String[] {countAttribute};
+		count = new Attribute(countAttribute, 10);
+	}
+
+	@TearDown
+	public void tearDown() throws JMException {
+		server.unregisterMBean(name);
+	}
+
+	@Benchmark
+	public Object getAttribute() throws JMException {
+		return server.getAttribute(name, countAttribute);
+	}
+
+	@Benchmark
+	public AttributeList getAttributes() throws JMException {
+		return server.getAttributes(name, countAttributes);
+	}
+
+	@Benchmark
+	public void setAttribute() throws JMException {
+		server.setAttribute(name, count);
+	}
+
+	@Benchmark
+	public Object invoke() throws JMException {
+		return server.invoke(name, "inc", null, null);
+	}
+}
@@ -0,0 +1,37 @@
+package org.strangeforest.jmx.benchmark;
+
+import java.io.*;
+import java.lang.management.*;
+import java.net.*;
+
+import org.openjdk.jmh.annotations.*;
+import org.strangeforest.jmx.http.*;
+
+/**
+ * Starts the HTTP bridge next to the RMI connector server started by {@link JMXServerState}, so both expose the same
+ * test MBeans.
+ */
+@State(Scope.Benchmark)
+public class HttpServerState {
+
+	@Param("28080")
+	private int httpPort;
+
+	private JMXHttpServer server;
+
+	@Setup
+	public void start(JMXServerState jmxServer) throws IOException {
+		server = new JMXHttpServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), httpPort), ManagementFactory.getPlatformMBeanServer(), 16, true);
+		server.start();
+	}
+
+	@TearDown
+	public void stop() {
+		server.stop();
+	}
+
+	public URL getUrl(String path) throws MalformedURLException {
+		InetSocketAddress address = server.getAddress();
+		return new URL("http", address.getHostString(), address.getPort(), path);
+	}
+}
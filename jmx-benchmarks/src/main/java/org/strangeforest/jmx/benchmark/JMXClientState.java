@@ -0,0 +1,33 @@
+package org.strangeforest.jmx.benchmark;
+
+import java.io.*;
+import javax.management.*;
+import javax.management.remote.*;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Remote client owned by a single benchmark thread, so concurrent threads behave as independent JMX clients each
+ * with its own connection.
+ */
+@State(Scope.Thread)
+public class JMXClientState {
+
+	private JMXConnector connector;
+	private MBeanServerConnection connection;
+
+	@Setup
+	public void connect(JMXServerState server) throws IOException {
+		connector = JMXConnectorFactory.connect(new JMXServiceURL(server.getUrl()), null);
+		connection = connector.getMBeanServerConnection();
+	}
+
+	@TearDown
+	public void close() throws IOException {
+		connector.close();
+	}
+
+	public MBeanServerConnection getConnection() {
+		return connection;
+	}
+}
@@ -0,0 +1,38 @@
+package org.strangeforest.jmx.benchmark;
+
+import java.io.*;
+
+import org.openjdk.jmh.annotations.*;
+import org.strangeforest.jmx.*;
+import org.strangeforest.test.jmx.*;
+
+/**
+ * Starts the test MBeans and the RMI connector server once per benchmark run. JMH runs every benchmark in its own
+ * fork, so the platform <code>MBeanServer</code> and the RMI registry are fresh each time. The threads invoking the
+ * MBeans can be compared with <code>-p threads=CONNECTION,PLATFORM,VIRTUAL</code>.
+ */
+@State(Scope.Benchmark)
+public class JMXServerState {
+
+	@Param("29999")
+	private int port;
+
+	@Param("CONNECTION")
+	private ConnectorServerBuilder.Threads threads;
+
+	private String url;
+
+	@Setup
+	public void start() throws Exception {
+		url = Server.start(port, threads);
+	}
+
+	@TearDown
+	public void stop() throws IOException {
+		Server.stop();
+	}
+
+	public String getUrl() {
+		return url;
+	}
+}
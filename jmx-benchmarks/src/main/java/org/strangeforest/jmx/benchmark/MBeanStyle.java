@@ -0,0 +1,72 @@
+package org.strangeforest.jmx.benchmark;
+
+import javax.management.*;
+import javax.management.modelmbean.*;
+
+import org.strangeforest.jmx.*;
+import org.strangeforest.test.jmx.dynamic.*;
+import org.strangeforest.test.jmx.model.*;
+import org.strangeforest.test.jmx.open.*;
+import org.strangeforest.test.jmx.standard.*;
+
+/**
+ * MBean styles demonstrated by the project, each exposing an integer count attribute and <code>inc</code> and
+ * <code>dec</code> operations.
+ */
+public enum MBeanStyle {
+
+	STANDARD("Count") {
+		@Override public Object createMBean() {
+			return new TestStandard();
+		}
+	},
+	DYNAMIC("Count") {
+		@Override public Object createMBean() {
+			return new TestDynamic();
+		}
+	},
+	OPEN("Count") {
+		@Override public Object createMBean() {
+			return new TestOpen();
+		}
+	},
+	MODEL("Count") {
+		@Override public Object createMBean() throws JMException {
+			RequiredModelMBean modelMBean = new RequiredModelMBean(ModelMBeanInfoProvider.getModelMBeanInfo());
+			try {
+				modelMBean.setManagedResource(new TestModel(), "ObjectReference");
+			}
+			catch (InvalidTargetObjectTypeException ex) {
+				throw new MBeanException(ex);
+			}
+			return modelMBean;
+		}
+	},
+	ANNOTATED_REFLECTION("count") {
+		@Override public Object createMBean() {
+			return MBeanFactory.createMBean(new BenchmarkCounter(), InvocationEngine.REFLECTION);
+		}
+	},
+	ANNOTATED_METHOD_HANDLE("count") {
+		@Override public Object createMBean() {
+			return MBeanFactory.createMBean(new BenchmarkCounter(), InvocationEngine.METHOD_HANDLE);
+		}
+	},
+	ANNOTATED_GENERATED("count") {
+		@Override public Object createMBean() {
+			return MBeanFactory.createMBean(new BenchmarkCounter());
+		}
+	};
+
+	private final String countAttribute;
+
+	MBeanStyle(String countAttribute) {
+		this.countAttribute = countAttribute;
+	}
+
+	public String getCountAttribute() {
+		return countAttribute;
+	}
+
+	public abstract Object createMBean() throws JMException;
+}
@@ -0,0 +1,66 @@
+package org.strangeforest.jmx.benchmark;
+
+import java.util.concurrent.*;
+import javax.management.*;
+import javax.management.openmbean.*;
+
+import org.openjdk.jmh.annotations.*;
+import org.strangeforest.jmx.*;
+import org.strangeforest.test.jmx.*;
+import org.strangeforest.test.jmx.mx.*;
+
+/**
+ * Attribute reads of the <code>CountersMBeanImpl</code> MXBean, including the conversion of the counter list to open
+ * data by the MXBean mapping, compared with the conversion of the same list by {@link OpenTypeMapper}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MXBeanBenchmark {
+
+	@Param({"3", "1000"})
+	private int counterCount;
+
+	private MBeanServer server;
+	private ObjectName name;
+	private CounterList counters;
+
+	@Setup
+	public void setUp() throws JMException {
+		Counter[] counterArray = new Counter[counterCount];
+		for (int i = 0; i < counterCount; i++)
+			counterArray[i] = new Counter("Counter" + i, "Car", i);
+		counters = new CounterList(counterArray);
+		server = MBeanServerFactory.newMBeanServer();
+		name = new ObjectName("org.strangeforest.jmx.benchmark:type=MX");
+		server.registerMBean(new CountersMBeanImpl(counters), name);
+	}
+
+	@TearDown
+	public void tearDown() throws JMException {
+		server.unregisterMBean(name);
+	}
+
+	@Benchmark
+	public Object getTotal() throws JMException {
+		return server.getAttribute(name, "Total");
+	}
+
+	@Benchmark
+	public Object getCounters() throws JMException {
+		return server.getAttribute(name, "Counters");
+	}
+
+	@Benchmark
+	public TabularData mapCounterTable() throws OpenDataException {
+		return OpenTypeMapper.toTabularData(counters.getCounters(), Counter.class, "name");
+	}
+
+	@Benchmark
+	public CompositeData[] mapCounterArray() throws OpenDataException {
+		return OpenTypeMapper.toCompositeDataArray(counters.getCounters(), Counter.class);
+	}
+}
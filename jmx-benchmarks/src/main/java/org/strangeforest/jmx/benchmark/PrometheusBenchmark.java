@@ -0,0 +1,57 @@
+package org.strangeforest.jmx.benchmark;
+
+import java.util.concurrent.*;
+import javax.management.*;
+
+import org.openjdk.jmh.annotations.*;
+import org.strangeforest.jmx.*;
+import org.strangeforest.jmx.http.*;
+import org.strangeforest.jmx.metric.*;
+
+/**
+ * Rendering of 10k series in the Prometheus text format, without I/O. The series are the rows of a single
+ * {@link CounterTable}, or the attributes of as many MBeans created by {@link MBeanFactory}. Run with
+ * <code>-prof gc</code> to see the allocation per scrape.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrometheusBenchmark {
+
+	public enum Shape {TABLE, MBEANS}
+
+	private static final int SERIES = 10000;
+
+	@Param
+	private Shape shape;
+
+	private PrometheusExporter exporter;
+
+	@Setup
+	public void setUp() throws JMException {
+		MBeanServer server = MBeanServerFactory.newMBeanServer();
+		String domain = "org.strangeforest.jmx.benchmark";
+		if (shape == Shape.TABLE) {
+			CounterTable table = new CounterTable(SERIES);
+			for (int i = 0; i < SERIES; i++)
+				table.add(table.register("counter" + i), i);
+			server.registerMBean(MBeanFactory.createMBean(table), new ObjectName(domain + ":type=CounterTable"));
+		}
+		else {
+			for (int i = 0; i < SERIES; i++) {
+				BenchmarkCounter counter = new BenchmarkCounter();
+				counter.setCount(i);
+				server.registerMBean(MBeanFactory.createMBean(counter), new ObjectName(domain + ":type=Counter,id=" + i));
+			}
+		}
+		exporter = new PrometheusExporter(server, new ObjectName(domain + ":*"));
+	}
+
+	@Benchmark
+	public int render() {
+		return exporter.render();
+	}
+}
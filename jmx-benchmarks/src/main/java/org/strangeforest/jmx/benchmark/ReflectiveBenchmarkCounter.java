@@ -0,0 +1,8 @@
+package org.strangeforest.jmx.benchmark;
+
+/**
+ * {@link BenchmarkCounter} without a generated MBean, as the annotation processor skips classes that only inherit
+ * annotated methods, so {@link org.strangeforest.jmx.MBeanFactory} exposes it with a reflective <code>MBeanImpl</code>.
+ */
+public class ReflectiveBenchmarkCounter extends BenchmarkCounter {
+}
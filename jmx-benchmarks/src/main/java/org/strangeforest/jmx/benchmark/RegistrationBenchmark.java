@@ -0,0 +1,70 @@
+package org.strangeforest.jmx.benchmark;
+
+import java.lang.management.*;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.management.*;
+
+import org.openjdk.jmh.annotations.*;
+import org.strangeforest.jmx.*;
+import org.strangeforest.test.jmx.standard.*;
+
+/**
+ * Time to register a number of MBeans in the platform <code>MBeanServer</code>, comparing {@link JMXUtil} called in a
+ * loop, for a class with a generated MBean and for one exposed by a reflective <code>MBeanImpl</code>, and its bulk
+ * registration with the registration of standard MBeans. MBeans are unregistered after each invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistrationBenchmark {
+
+	@Param({"100", "1000", "20000"})
+	private int count;
+
+	private MBeanServer server;
+	private String[] names;
+
+	@Setup
+	public void setUp() {
+		server = ManagementFactory.getPlatformMBeanServer();
+		names = new String[count];
+		for (int i = 0; i < count; i++)
+			names[i] = "org.strangeforest.jmx.benchmark:type=Registration,id=" + i;
+	}
+
+	@TearDown(Level.Invocation)
+	public void unregister() throws ManagementException {
+		for (String name : names)
+			JMXUtil.unregister(name);
+	}
+
+	@Benchmark
+	public void jmxUtilRegister() throws JMException {
+		for (String name : names)
+			JMXUtil.register(new BenchmarkCounter(), name);
+	}
+
+	@Benchmark
+	public void jmxUtilRegisterReflective() throws JMException {
+		for (String name : names)
+			JMXUtil.register(new ReflectiveBenchmarkCounter(), name);
+	}
+
+	@Benchmark
+	public Map<String, Exception> jmxUtilRegisterAll() {
+		Map<String, Object> objects = new LinkedHashMap<>(count * 4 / 3 + 1);
+		for (String name : names)
+			objects.put(name, new BenchmarkCounter());
+		return JMXUtil.registerAll(objects);
+	}
+
+	@Benchmark
+	public void standardRegister() throws JMException {
+		for (String name : names)
+			server.registerMBean(new TestStandard(), new ObjectName(name));
+	}
+}
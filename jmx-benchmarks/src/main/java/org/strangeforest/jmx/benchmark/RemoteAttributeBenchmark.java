@@ -0,0 +1,46 @@
+package org.strangeforest.jmx.benchmark;
+
+import java.io.*;
+import java.util.concurrent.*;
+import javax.management.*;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Remote attribute reads over the RMI connector by concurrent clients. Sample time mode reports latency percentiles
+ * (p50, p99, ...), throughput mode the aggregate operations per time unit of all threads; use <code>-t</code> to
+ * change the number of clients.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.SampleTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(16)
+@Fork(1)
+public class RemoteAttributeBenchmark {
+
+	@Param
+	private RemoteMBean mBean;
+
+	private ObjectName objectName;
+	private String attribute;
+	private String[] attributes;
+
+	@Setup
+	public void setUp() {
+		objectName = mBean.getObjectName();
+		attribute = mBean.getAttribute();
+		attributes = mBean.getAttributes();
+	}
+
+	@Benchmark
+	public Object getAttribute(JMXClientState client) throws JMException, IOException {
+		return client.getConnection().getAttribute(objectName, attribute);
+	}
+
+	@Benchmark
+	public AttributeList getAttributes(JMXClientState client) throws JMException, IOException {
+		return client.getConnection().getAttributes(objectName, attributes);
+	}
+}
@@ -0,0 +1,51 @@
+package org.strangeforest.jmx.benchmark;
+
+import javax.management.*;
+
+import static org.strangeforest.test.jmx.Server.*;
+
+/**
+ * MBeans registered by <code>Server.start</code>, with their readable attributes and the operation used for remote
+ * invocation benchmarks.
+ */
+public enum RemoteMBean {
+
+	STANDARD(TEST_STANDARD_URL, "inc", "Count"),
+	DYNAMIC(TEST_DYNAMIC_URL, "inc", "Count"),
+	OPEN(TEST_OPEN_URL, "inc", "Count", "Counter"),
+	MODEL(TEST_MODEL_URL, "inc", "Count"),
+	MX(TEST_MX_URL, null, "Total", "Counters");
+
+	private final ObjectName objectName;
+	private final String operation;
+	private final String[] attributes;
+
+	RemoteMBean(String objectName, String operation, String... attributes) {
+		try {
+			this.objectName = new ObjectName(objectName);
+		}
+		catch (MalformedObjectNameException ex) {
+			throw new IllegalArgumentException(ex);
+		}
+		this.operation = operation;
+		this.attributes = attributes;
+	}
+
+	public ObjectName getObjectName() {
+		return objectName;
+	}
+
+	public String getOperation() {
+		if (operation == null)
+			throw new UnsupportedOperationException(this + " MBean has no operations");
+		return operation;
+	}
+
+	public String getAttribute() {
+		return attributes[0];
+	}
+
+	public String[] getAttributes() {
+		return attributes.clone();
+	}
+}
@@ -0,0 +1,38 @@
+package org.strangeforest.jmx.benchmark;
+
+import java.io.*;
+import java.util.concurrent.*;
+import javax.management.*;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Remote operation invocations over the RMI connector by concurrent clients. The MXBean is left out as it exposes
+ * no operations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.SampleTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(16)
+@Fork(1)
+public class RemoteOperationBenchmark {
+
+	@Param({"STANDARD", "DYNAMIC", "OPEN", "MODEL"})
+	private RemoteMBean mBean;
+
+	private ObjectName objectName;
+	private String operation;
+
+	@Setup
+	public void setUp() {
+		objectName = mBean.getObjectName();
+		operation = mBean.getOperation();
+	}
+
+	@Benchmark
+	public Object invoke(JMXClientState client) throws JMException, IOException {
+		return client.getConnection().invoke(objectName, operation, null, null);
+	}
+}
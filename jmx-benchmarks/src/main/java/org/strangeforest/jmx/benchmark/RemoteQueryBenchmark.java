@@ -0,0 +1,39 @@
+package org.strangeforest.jmx.benchmark;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.management.*;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Remote MBean name queries over the RMI connector by concurrent clients, for the domain of the test MBeans and for
+ * all MBeans of the platform <code>MBeanServer</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.SampleTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(16)
+@Fork(1)
+public class RemoteQueryBenchmark {
+
+	private ObjectName testDomain;
+
+	@Setup
+	public void setUp() throws MalformedObjectNameException {
+		testDomain = new ObjectName(RemoteMBean.STANDARD.getObjectName().getDomain() + ":*");
+	}
+
+	@Benchmark
+	public Set<ObjectName> queryTestDomain(JMXClientState client) throws IOException {
+		return client.getConnection().queryNames(testDomain, null);
+	}
+
+	@Benchmark
+	public Set<ObjectName> queryAll(JMXClientState client) throws IOException {
+		return client.getConnection().queryNames(null, null);
+	}
+}
@@ -0,0 +1,168 @@
+package org.strangeforest.jmx.http;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Growable byte buffer the Prometheus exposition is rendered into. It is reused across scrapes, and encodes names,
+ * label values and numbers directly into its bytes, so rendering allocates nothing once it has grown to the size of
+ * the exposition.
+ */
+final class ExpositionBuffer {
+
+	private byte[] bytes;
+	private int size;
+	private final byte[] digits = new byte[20];
+
+	ExpositionBuffer(int capacity) {
+		bytes = new byte[capacity];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void reset() {
+		size = 0;
+	}
+
+	public void writeTo(OutputStream out) throws IOException {
+		out.write(bytes, 0, size);
+	}
+
+	public void write(byte b) {
+		ensureCapacity(1);
+		bytes[size++] = b;
+	}
+
+	public void write(byte[] b) {
+		ensureCapacity(b.length);
+		System.arraycopy(b, 0, bytes, size, b.length);
+		size += b.length;
+	}
+
+	public void write(ExpositionBuffer buffer) {
+		ensureCapacity(buffer.size);
+		System.arraycopy(buffer.bytes, 0, bytes, size, buffer.size);
+		size += buffer.size;
+	}
+
+	/**
+	 * Writes a metric or label name, replacing the characters not allowed in names with underscores.
+	 */
+	public void writeName(String name) {
+		ensureCapacity(name.length() + 1);
+		if (name.isEmpty() || Character.isDigit(name.charAt(0)))
+			bytes[size++] = '_';
+		for (int i = 0, length = name.length(); i < length; i++) {
+			char c = name.charAt(i);
+			bytes[size++] = (byte)(isNameChar(c) ? c : '_');
+		}
+	}
+
+	/**
+	 * Returns a name as written by {@link #writeName(String)}.
+	 */
+	public static String toName(String name) {
+		StringBuilder sb = new StringBuilder(name.length() + 1);
+		if (name.isEmpty() || Character.isDigit(name.charAt(0)))
+			sb.append('_');
+		for (int i = 0, length = name.length(); i < length; i++) {
+			char c = name.charAt(i);
+			sb.append(isNameChar(c) ? c : '_');
+		}
+		return sb.toString();
+	}
+
+	private static boolean isNameChar(char c) {
+		return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_' || c == ':';
+	}
+
+	/**
+	 * Writes a label value encoded in UTF-8, escaping backslashes, double quotes and line feeds.
+	 */
+	public void writeLabelValue(String value) {
+		for (int i = 0, length = value.length(); i < length; i++) {
+			char c = value.charAt(i);
+			if (c == '\\' || c == '"') {
+				write((byte)'\\');
+				write((byte)c);
+			}
+			else if (c == '\n') {
+				write((byte)'\\');
+				write((byte)'n');
+			}
+			else if (c < 0x80)
+				write((byte)c);
+			else
+				writeUtf8(value, i, c);
+			if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1)))
+				i++;
+		}
+	}
+
+	private void writeUtf8(String value, int index, char c) {
+		ensureCapacity(4);
+		if (c < 0x800) {
+			bytes[size++] = (byte)(0xC0 | c >> 6);
+			bytes[size++] = (byte)(0x80 | c & 0x3F);
+		}
+		else if (Character.isHighSurrogate(c) && index + 1 < value.length() && Character.isLowSurrogate(value.charAt(index + 1))) {
+			int codePoint = Character.toCodePoint(c, value.charAt(index + 1));
+			bytes[size++] = (byte)(0xF0 | codePoint >> 18);
+			bytes[size++] = (byte)(0x80 | codePoint >> 12 & 0x3F);
+			bytes[size++] = (byte)(0x80 | codePoint >> 6 & 0x3F);
+			bytes[size++] = (byte)(0x80 | codePoint & 0x3F);
+		}
+		else {
+			bytes[size++] = (byte)(0xE0 | c >> 12);
+			bytes[size++] = (byte)(0x80 | c >> 6 & 0x3F);
+			bytes[size++] = (byte)(0x80 | c & 0x3F);
+		}
+	}
+
+	public void writeLong(long value) {
+		if (value == Long.MIN_VALUE) {
+			writeAscii(Long.toString(value));
+			return;
+		}
+		ensureCapacity(20);
+		if (value < 0L) {
+			bytes[size++] = '-';
+			value = -value;
+		}
+		int count = 0;
+		do {
+			digits[count++] = (byte)('0' + value % 10L);
+			value /= 10L;
+		}
+		while (value != 0L);
+		while (count > 0)
+			bytes[size++] = digits[--count];
+	}
+
+	/**
+	 * Writes a floating point value, allocating only if it is not integral.
+	 */
+	public void writeDouble(double value) {
+		if (Double.isNaN(value))
+			writeAscii("NaN");
+		else if (Double.isInfinite(value))
+			writeAscii(value > 0.0 ? "+Inf" : "-Inf");
+		else if (value == (long)value && Math.abs(value) < 1e15)
+			writeLong((long)value);
+		else
+			writeAscii(Double.toString(value));
+	}
+
+	private void writeAscii(String s) {
+		ensureCapacity(s.length());
+		for (int i = 0, length = s.length(); i < length; i++)
+			bytes[size++] = (byte)s.charAt(i);
+	}
+
+	private void ensureCapacity(int length) {
+		if (size + length > bytes.length)
+			bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+	}
+}
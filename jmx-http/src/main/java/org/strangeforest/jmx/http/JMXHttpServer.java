@@ -0,0 +1,89 @@
+package org.strangeforest.jmx.http;
+
+import java.io.*;
+import java.lang.management.*;
+import java.net.*;
+import java.util.concurrent.*;
+import javax.management.*;
+
+import com.sun.net.httpserver.*;
+import org.strangeforest.jmx.*;
+
+/**
+ * <p>Exposes an MBeanServer for reading over HTTP with JSON responses, using the HTTP server built into the JDK. A
+ * single request reads the attributes of all the MBeans matching any of several <code>ObjectName</code> patterns,
+ * and the response is streamed as the MBeans are read. Supported requests are:</p>
+ * <ul>
+ * <li><code>GET /read?name=pattern[&amp;name=pattern...][&amp;attribute=name...]</code> reads the specified attributes,
+ * or all the readable attributes if none are specified, of the matching MBeans:
+ * <code>{"mbeans":[{"name":"...","attributes":{"...":...}}]}</code>. As with
+ * <code>MBeanServer.getAttributes</code>, attributes that cannot be read are omitted.</li>
+ * <li><code>GET /list?name=pattern[&amp;name=pattern...]</code> lists the names of the matching MBeans:
+ * <code>{"names":["..."]}</code>.</li>
+ * <li><code>GET /metrics</code> renders the numeric attributes of all the MBeans in the Prometheus text format, see
+ * {@link PrometheusExporter}.</li>
+ * </ul>
+ * <p>Requests are handled by a fixed number of daemon threads.</p>
+ * <p>The JDK HTTP server can be switched to <code>TCP_NODELAY</code> sockets, as otherwise the last chunk of a streamed
+ * response waits for the delayed acknowledgement of the previous one, adding up to 40ms to each request. This sets the
+ * <code>sun.net.httpserver.nodelay</code> system property, which applies to all the JDK HTTP servers in the JVM and is
+ * read once per JVM, so it is only done on request and has no effect if the JDK HTTP server was used before.</p>
+ */
+public class JMXHttpServer {
+
+	public static final int DEFAULT_THREADS = 8;
+
+	private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+
+	public JMXHttpServer(InetSocketAddress address) throws IOException {
+		this(address, ManagementFactory.getPlatformMBeanServer(), DEFAULT_THREADS);
+	}
+
+	public JMXHttpServer(InetSocketAddress address, MBeanServer mBeanServer, int threads) throws IOException {
+		this(address, mBeanServer, threads, false);
+	}
+
+	/**
+	 * Constructor. The server is not started.
+	 *
+	 * @param address     the address to listen at, with port 0 for any free port.
+	 * @param mBeanServer the exposed MBeanServer.
+	 * @param threads     the number of threads handling the requests.
+	 * @param noDelay     whether to switch the JDK HTTP server to <code>TCP_NODELAY</code> sockets, unless the
+	 *                    <code>sun.net.httpserver.nodelay</code> system property is already set.
+	 * @throws IOException if the server cannot bind to the address.
+	 */
+	public JMXHttpServer(InetSocketAddress address, MBeanServer mBeanServer, int threads, boolean noDelay) throws IOException {
+		if (noDelay && System.getProperty(NODELAY_PROPERTY) == null)
+			System.setProperty(NODELAY_PROPERTY, "true");
+		server = HttpServer.create(address, 0);
+		executor = Executors.newFixedThreadPool(threads, ManagementExecutors.daemonThreadFactory("jmx-http"));
+		server.setExecutor(executor);
+		server.createContext("/read", new ReadHandler(mBeanServer));
+		server.createContext("/list", new ListHandler(mBeanServer));
+		server.createContext("/metrics", new PrometheusHandler(new PrometheusExporter(mBeanServer)));
+	}
+
+	public void start() {
+		server.start();
+	}
+
+	public void stop() {
+		server.stop(0);
+		executor.shutdown();
+	}
+
+	public InetSocketAddress getAddress() {
+		return server.getAddress();
+	}
+
+	/**
+	 * Creates the context of another handler, for example an exporter in a different format.
+	 */
+	public HttpContext createContext(String path, HttpHandler handler) {
+		return server.createContext(path, handler);
+	}
+}
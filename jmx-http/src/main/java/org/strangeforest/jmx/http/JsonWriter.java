@@ -0,0 +1,168 @@
+package org.strangeforest.jmx.http;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.util.*;
+import javax.management.openmbean.*;
+
+/**
+ * <p>Writes JSON directly to a character stream, so a document is never built in memory. The writer keeps track of
+ * the nesting to separate the members and elements, but does not validate the document structure.</p>
+ * <p>Attribute values are mapped as follows: numbers, booleans and <code>null</code> to their JSON counterparts (NaN
+ * and infinite floating point numbers to <code>null</code>), arrays and collections to arrays, maps and
+ * <code>CompositeData</code> to objects, <code>TabularData</code> to arrays of its rows, and anything else to the
+ * string returned by its <code>toString</code> method.</p>
+ */
+final class JsonWriter implements Closeable, Flushable {
+
+	private final Writer out;
+	private boolean[] first = new boolean[16];
+	private int depth;
+	private boolean afterName;
+
+	JsonWriter(Writer out) {
+		this.out = out;
+	}
+
+	public JsonWriter beginObject() throws IOException {
+		return begin('{');
+	}
+
+	public JsonWriter endObject() throws IOException {
+		return end('}');
+	}
+
+	public JsonWriter beginArray() throws IOException {
+		return begin('[');
+	}
+
+	public JsonWriter endArray() throws IOException {
+		return end(']');
+	}
+
+	public JsonWriter name(String name) throws IOException {
+		separate();
+		writeString(name);
+		out.write(':');
+		afterName = true;
+		return this;
+	}
+
+	public JsonWriter value(Object value) throws IOException {
+		if (value == null || value instanceof Boolean) {
+			separate();
+			out.write(String.valueOf(value));
+		}
+		else if (value instanceof Number)
+			writeNumber((Number)value);
+		else if (value instanceof CompositeData)
+			writeComposite((CompositeData)value);
+		else if (value instanceof TabularData)
+			writeIterable(((TabularData)value).values());
+		else if (value instanceof Map)
+			writeMap((Map<?, ?>)value);
+		else if (value instanceof Iterable)
+			writeIterable((Iterable<?>)value);
+		else if (value.getClass().isArray())
+			writeArray(value);
+		else {
+			separate();
+			writeString(value.toString());
+		}
+		return this;
+	}
+
+	@Override public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override public void close() throws IOException {
+		out.close();
+	}
+
+	private JsonWriter begin(char bracket) throws IOException {
+		separate();
+		out.write(bracket);
+		if (++depth == first.length)
+			first = Arrays.copyOf(first, depth * 2);
+		first[depth] = true;
+		return this;
+	}
+
+	private JsonWriter end(char bracket) throws IOException {
+		depth--;
+		out.write(bracket);
+		return this;
+	}
+
+	private void separate() throws IOException {
+		if (afterName)
+			afterName = false;
+		else if (first[depth])
+			first[depth] = false;
+		else if (depth > 0)
+			out.write(',');
+	}
+
+	private void writeNumber(Number number) throws IOException {
+		separate();
+		if ((number instanceof Double || number instanceof Float) && !isFinite(number.doubleValue()))
+			out.write("null");
+		else
+			out.write(number.toString());
+	}
+
+	private static boolean isFinite(double value) {
+		return !Double.isNaN(value) && !Double.isInfinite(value);
+	}
+
+	private void writeComposite(CompositeData composite) throws IOException {
+		beginObject();
+		for (String key : composite.getCompositeType().keySet())
+			name(key).value(composite.get(key));
+		endObject();
+	}
+
+	private void writeMap(Map<?, ?> map) throws IOException {
+		beginObject();
+		for (Map.Entry<?, ?> entry : map.entrySet())
+			name(String.valueOf(entry.getKey())).value(entry.getValue());
+		endObject();
+	}
+
+	private void writeIterable(Iterable<?> iterable) throws IOException {
+		beginArray();
+		for (Object element : iterable)
+			value(element);
+		endArray();
+	}
+
+	private void writeArray(Object array) throws IOException {
+		beginArray();
+		for (int i = 0, length = Array.getLength(array); i < length; i++)
+			value(Array.get(array, i));
+		endArray();
+	}
+
+	private void writeString(String s) throws IOException {
+		out.write('"');
+		int start = 0;
+		for (int i = 0, length = s.length(); i < length; i++) {
+			char c = s.charAt(i);
+			if (c >= 0x20 && c != '"' && c != '\\')
+				continue;
+			out.write(s, start, i - start);
+			start = i + 1;
+			switch (c) {
+				case '"': out.write("\\\""); break;
+				case '\\': out.write("\\\\"); break;
+				case '\n': out.write("\\n"); break;
+				case '\r': out.write("\\r"); break;
+				case '\t': out.write("\\t"); break;
+				default: out.write(String.format("\\u%04x", (int)c));
+			}
+		}
+		out.write(s, start, s.length() - start);
+		out.write('"');
+	}
+}
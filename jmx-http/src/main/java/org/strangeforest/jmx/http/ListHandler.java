@@ -0,0 +1,23 @@
+package org.strangeforest.jmx.http;
+
+import java.io.*;
+import java.util.*;
+import javax.management.*;
+
+/**
+ * Handles <code>/list</code> requests, see {@link JMXHttpServer}.
+ */
+final class ListHandler extends MBeanHandler {
+
+	ListHandler(MBeanServer mBeanServer) {
+		super(mBeanServer);
+	}
+
+	@Override protected void write(Writer out, Set<ObjectName> names, Map<String, List<String>> params) throws IOException {
+		JsonWriter json = new JsonWriter(out);
+		json.beginObject().name("names").beginArray();
+		for (ObjectName name : names)
+			json.value(name.getCanonicalName());
+		json.endArray().endObject();
+	}
+}
@@ -0,0 +1,100 @@
+package org.strangeforest.jmx.http;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.util.*;
+import javax.management.*;
+
+import com.sun.net.httpserver.*;
+
+/**
+ * Base of the handlers of GET requests selecting MBeans by <code>name</code> query parameters, all the MBeans if
+ * there are none. The response is sent with chunked transfer encoding through a buffered writer, so it is streamed as
+ * it is written.
+ */
+abstract class MBeanHandler implements HttpHandler {
+
+	static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+
+	private static final int BUFFER_SIZE = 8192;
+
+	protected final MBeanServer mBeanServer;
+
+	MBeanHandler(MBeanServer mBeanServer) {
+		this.mBeanServer = mBeanServer;
+	}
+
+	@Override public void handle(HttpExchange exchange) throws IOException {
+		try {
+			if (!"GET".equals(exchange.getRequestMethod())) {
+				sendError(exchange, 405, "Method " + exchange.getRequestMethod() + " not allowed");
+				return;
+			}
+			Map<String, List<String>> params = parseQuery(exchange.getRequestURI().getRawQuery());
+			List<ObjectName> patterns = new ArrayList<>();
+			for (String name : params.getOrDefault("name", Collections.singletonList("*:*"))) {
+				try {
+					patterns.add(new ObjectName(name));
+				}
+				catch (MalformedObjectNameException ex) {
+					sendError(exchange, 400, "Invalid name " + name + ": " + ex.getMessage());
+					return;
+				}
+			}
+			exchange.getResponseHeaders().set("Content-Type", getContentType());
+			exchange.sendResponseHeaders(200, 0L);
+			try (Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+				write(out, queryNames(patterns), params);
+			}
+		}
+		finally {
+			exchange.close();
+		}
+	}
+
+	protected String getContentType() {
+		return JSON_CONTENT_TYPE;
+	}
+
+	/**
+	 * Writes the response for the selected MBeans.
+	 *
+	 * @param out    the response body.
+	 * @param names  the names of the MBeans matching any of the patterns, in the order of the patterns.
+	 * @param params the query parameters.
+	 */
+	protected abstract void write(Writer out, Set<ObjectName> names, Map<String, List<String>> params) throws IOException;
+
+	private Set<ObjectName> queryNames(List<ObjectName> patterns) {
+		Set<ObjectName> names = new LinkedHashSet<>();
+		for (ObjectName pattern : patterns)
+			names.addAll(new TreeSet<>(mBeanServer.queryNames(pattern, null)));
+		return names;
+	}
+
+	private static Map<String, List<String>> parseQuery(String query) throws UnsupportedEncodingException {
+		if (query == null || query.isEmpty())
+			return Collections.emptyMap();
+		Map<String, List<String>> params = new HashMap<>();
+		for (String param : query.split("&")) {
+			int equals = param.indexOf('=');
+			if (equals <= 0)
+				continue;
+			String name = URLDecoder.decode(param.substring(0, equals), "UTF-8");
+			params.computeIfAbsent(name, key -> new ArrayList<>()).add(URLDecoder.decode(param.substring(equals + 1), "UTF-8"));
+		}
+		return params;
+	}
+
+	private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+		byte[] body;
+		try (StringWriter out = new StringWriter(); JsonWriter json = new JsonWriter(out)) {
+			json.beginObject().name("error").value(message).endObject();
+			body = out.toString().getBytes(StandardCharsets.UTF_8);
+		}
+		exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+		exchange.sendResponseHeaders(status, body.length);
+		exchange.getResponseBody().write(body);
+	}
+}
@@ -0,0 +1,537 @@
+package org.strangeforest.jmx.http;
+
+import java.io.*;
+import java.math.*;
+import java.util.*;
+import javax.management.*;
+import javax.management.openmbean.*;
+
+import org.strangeforest.jmx.*;
+import org.strangeforest.jmx.metric.*;
+
+/**
+ * <p>Renders the numeric attributes of the MBeans registered in an MBeanServer in the Prometheus text exposition
+ * format. The metric name of an attribute is made of the MBean domain, the value of its <code>type</code> key property
+ * and the attribute name, and its labels are the other key properties. Boolean attributes are rendered as 0 or 1, and
+ * attributes of other types are skipped, except open data:</p>
+ * <ul>
+ * <li>each numeric item of a <code>CompositeData</code> attribute is rendered as a metric with the item name appended
+ * to the attribute name,</li>
+ * <li>each row of a <code>TabularData</code> attribute or of a <code>CompositeData</code> array (as MXBeans map lists)
+ * is rendered like a <code>CompositeData</code> attribute, with its string items as additional labels, or with an
+ * <code>index</code> label if it has none. Row labels named like a key property of the MBean are prefixed with
+ * <code>row_</code>.</li>
+ * </ul>
+ * <p>A render plan with the attributes to read and the encoded metric names and labels is cached per MBean and
+ * rebuilt only when its <code>MBeanInfo</code> changes. MBeans created by {@link MBeanFactory} share one precomputed
+ * <code>MBeanInfo</code> instance per class, as do standard MBeans and MXBeans, so checking the plan costs a reference
+ * comparison. MBeans created by <code>MBeanFactory</code> are also read directly, found through
+ * {@link MBeanRegistry}, without the MBeanServer and its <code>AttributeList</code>s, and metrics that are
+ * {@link SampleSource}s provide their samples without building open data at all. The exposition is rendered into a
+ * buffer reused across scrapes, so rendering allocates next to nothing besides the queried names and the boxed
+ * attribute values.</p>
+ * <p>The samples of a metric are rendered together, in the order of the first sample of each metric, as Prometheus
+ * expects the samples of a metric family to be grouped. Samples are collected into a buffer per metric, also reused
+ * across scrapes, and the buffers are joined once all the MBeans are rendered.</p>
+ * <p>Metric types and help are not rendered, so all the metrics are untyped. Rendering and writing are synchronized on
+ * the exporter; hold its monitor across {@link #render()} and {@link #writeTo(OutputStream)} when sharing it.</p>
+ */
+public class PrometheusExporter {
+
+	public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	private static final String TYPE_KEY = "type";
+	private static final String INDEX_LABEL = "index";
+	private static final String ROW_LABEL_PREFIX = "row_";
+	private static final String[] NO_ATTRIBUTES = new String[0];
+
+	private final MBeanServer mBeanServer;
+	private final ObjectName[] patterns;
+	private final ExpositionBuffer buffer = new ExpositionBuffer(64 * 1024);
+	private final Map<String, MetricFamily> families = new HashMap<>();
+	private final List<MetricFamily> renderedFamilies = new ArrayList<>();
+	private int familyCount;
+	private int scrape;
+	private final Map<ObjectName, MBeanPlan> plans = new HashMap<>();
+	private final Map<CompositeType, CompositeLayout> layouts = new HashMap<>();
+	private final Set<ObjectName> names = new HashSet<>();
+	private final RowLabels rowLabels = new RowLabels();
+	private final SampleRenderer sampleRenderer = new SampleRenderer();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param mBeanServer the MBeanServer.
+	 * @param patterns    the patterns of the exported MBean names, all the MBeans if none.
+	 */
+	public PrometheusExporter(MBeanServer mBeanServer, ObjectName... patterns) {
+		this.mBeanServer = mBeanServer;
+		this.patterns = patterns.length > 0 ? patterns.clone() : new ObjectName[] {null};
+	}
+
+	/**
+	 * Renders the exposition of the current attribute values into the internal buffer.
+	 *
+	 * @return the size of the exposition in bytes.
+	 */
+	public synchronized int render() {
+		buffer.reset();
+		names.clear();
+		renderedFamilies.clear();
+		scrape++;
+		Map<ObjectName, ManagedMBean> managedMBeans = MBeanRegistry.getMBeans(mBeanServer);
+		for (ObjectName pattern : patterns) {
+			for (ObjectName name : mBeanServer.queryNames(pattern, null)) {
+				if (names.add(name)) {
+					ManagedMBean managedMBean = managedMBeans.get(name);
+					if (managedMBean != null)
+						renderManagedMBean(name, managedMBean);
+					else
+						renderMBean(name);
+				}
+			}
+		}
+		if (plans.size() > names.size())
+			plans.keySet().retainAll(names);
+		for (MetricFamily family : renderedFamilies)
+			buffer.write(family.samples);
+		if (familyCount > renderedFamilies.size())
+			removeStaleFamilies();
+		return buffer.size();
+	}
+
+	/**
+	 * Writes the exposition rendered last.
+	 *
+	 * @param out the stream to write to.
+	 * @throws IOException if writing fails.
+	 */
+	public synchronized void writeTo(OutputStream out) throws IOException {
+		buffer.writeTo(out);
+	}
+
+	private void renderMBean(ObjectName name) {
+		AttributeList values;
+		MBeanPlan plan;
+		try {
+			plan = getPlan(name, mBeanServer.getMBeanInfo(name));
+			if (plan.attributes.length == 0)
+				return;
+			values = mBeanServer.getAttributes(name, plan.attributes);
+		}
+		catch (JMException | RuntimeException ex) {
+			return;
+		}
+		int index = 0;
+		for (Object value : values) {
+			Attribute attribute = (Attribute)value;
+			while (index < plan.attributes.length && !plan.attributes[index].equals(attribute.getName()))
+				index++;
+			if (index == plan.attributes.length)
+				break;
+			renderValue(plan, index, attribute.getValue());
+		}
+	}
+
+	private void renderManagedMBean(ObjectName name, ManagedMBean mBean) {
+		MBeanPlan plan = getPlan(name, mBean.getMBeanInfo());
+		Object object = mBean.getManagedObject();
+		if (object instanceof SampleSource) {
+			((SampleSource)object).collectSamples(sampleRenderer.of(plan));
+			return;
+		}
+		for (int i = 0; i < plan.attributes.length; i++) {
+			Object value;
+			try {
+				value = mBean.getAttribute(plan.attributes[i]);
+			}
+			catch (JMException | RuntimeException ex) {
+				continue;
+			}
+			renderValue(plan, i, value);
+		}
+	}
+
+	private MBeanPlan getPlan(ObjectName name, MBeanInfo mBeanInfo) {
+		MBeanPlan plan = plans.get(name);
+		if (plan == null || (plan.mBeanInfo != mBeanInfo && !plan.mBeanInfo.equals(mBeanInfo))) {
+			plan = new MBeanPlan(name, mBeanInfo);
+			plans.put(name, plan);
+		}
+		return plan;
+	}
+
+	private void renderValue(MBeanPlan plan, int attribute, Object value) {
+		if (value instanceof Number || value instanceof Boolean)
+			renderSample(plan, attribute, null, null, value);
+		else if (value instanceof CompositeData)
+			renderComposite(plan, attribute, (CompositeData)value, -1);
+		else if (value instanceof TabularData) {
+			int row = 0;
+			for (Object rowData : ((TabularData)value).values())
+				renderComposite(plan, attribute, (CompositeData)rowData, row++);
+		}
+		else if (value instanceof CompositeData[]) {
+			CompositeData[] rows = (CompositeData[])value;
+			for (int row = 0; row < rows.length; row++) {
+				if (rows[row] != null)
+					renderComposite(plan, attribute, rows[row], row);
+			}
+		}
+	}
+
+	/**
+	 * Renders the numeric items of composite data.
+	 *
+	 * @param row the index of the row, or -1 if the composite data is not a row.
+	 */
+	private void renderComposite(MBeanPlan plan, int attribute, CompositeData composite, int row) {
+		CompositeLayout layout = getLayout(composite.getCompositeType());
+		RowLabels rowLabels = row >= 0 ? this.rowLabels.of(composite, layout.labelItems, row) : null;
+		for (String item : layout.valueItems) {
+			Object value = composite.get(item);
+			if (value != null)
+				renderSample(plan, attribute, item, rowLabels, value);
+		}
+	}
+
+	private void renderSample(MBeanPlan plan, int attribute, String item, RowLabels rowLabels, Object value) {
+		ExpositionBuffer out = renderSampleName(plan, attribute, item, rowLabels);
+		if (value instanceof Boolean)
+			out.write((byte)((Boolean)value ? '1' : '0'));
+		else if (value instanceof Double || value instanceof Float || value instanceof BigDecimal)
+			out.writeDouble(((Number)value).doubleValue());
+		else
+			out.writeLong(((Number)value).longValue());
+		out.write((byte)'\n');
+	}
+
+	/**
+	 * Renders the name and labels of a sample into the buffer of its metric.
+	 *
+	 * @return the buffer of the metric, to render the sample value into.
+	 */
+	private ExpositionBuffer renderSampleName(MBeanPlan plan, int attribute, String item, RowLabels rowLabels) {
+		ExpositionBuffer out = getFamily(plan.familyNames[attribute], item).samples;
+		byte[] labels = plan.labels;
+		out.write(plan.metricNames[attribute]);
+		if (item != null) {
+			out.write((byte)'_');
+			out.writeName(item);
+		}
+		if (labels.length > 0 || rowLabels != null) {
+			out.write((byte)'{');
+			out.write(labels);
+			if (rowLabels != null) {
+				if (labels.length > 0)
+					out.write((byte)',');
+				renderRowLabels(out, plan, rowLabels);
+			}
+			out.write((byte)'}');
+		}
+		out.write((byte)' ');
+		return out;
+	}
+
+	private static void renderRowLabels(ExpositionBuffer out, MBeanPlan plan, RowLabels rowLabels) {
+		if (rowLabels.labelName != null)
+			renderLabel(out, plan.getRowLabelName(rowLabels.labelName), rowLabels.labelValue);
+		else if (rowLabels.labelItems.length == 0) {
+			out.writeName(plan.getRowLabelName(INDEX_LABEL));
+			out.write((byte)'=');
+			out.write((byte)'"');
+			out.writeLong(rowLabels.index);
+			out.write((byte)'"');
+		}
+		else {
+			for (int i = 0; i < rowLabels.labelItems.length; i++) {
+				if (i > 0)
+					out.write((byte)',');
+				Object value = rowLabels.row.get(rowLabels.labelItems[i]);
+				renderLabel(out, plan.getRowLabelName(rowLabels.labelItems[i]), value != null ? value.toString() : "");
+			}
+		}
+	}
+
+	private static void renderLabel(ExpositionBuffer out, String name, String value) {
+		out.writeName(name);
+		out.write((byte)'=');
+		out.write((byte)'"');
+		out.writeLabelValue(value);
+		out.write((byte)'"');
+	}
+
+	/**
+	 * Returns the family of a metric, started in the current scrape.
+	 *
+	 * @param familyName the name of the attribute metric.
+	 * @param item       the composite data item appended to the attribute metric name, or <code>null</code>.
+	 * @return the metric family.
+	 */
+	private MetricFamily getFamily(String familyName, String item) {
+		MetricFamily family = families.get(familyName);
+		if (family == null) {
+			family = new MetricFamily();
+			families.put(familyName, family);
+			familyCount++;
+		}
+		if (item != null) {
+			MetricFamily itemFamily = family.getItems().get(item);
+			if (itemFamily == null) {
+				itemFamily = new MetricFamily();
+				family.getItems().put(item, itemFamily);
+				familyCount++;
+			}
+			family = itemFamily;
+		}
+		if (family.scrape != scrape) {
+			family.scrape = scrape;
+			family.samples.reset();
+			renderedFamilies.add(family);
+		}
+		return family;
+	}
+
+	/**
+	 * Removes the families of the metrics not rendered in the current scrape, like those of unregistered MBeans.
+	 */
+	private void removeStaleFamilies() {
+		familyCount = 0;
+		for (Iterator<MetricFamily> iter = families.values().iterator(); iter.hasNext(); ) {
+			MetricFamily family = iter.next();
+			if (family.items != null) {
+				family.items.values().removeIf(itemFamily -> itemFamily.scrape != scrape);
+				familyCount += family.items.size();
+			}
+			if (family.scrape != scrape && (family.items == null || family.items.isEmpty()))
+				iter.remove();
+			else
+				familyCount++;
+		}
+	}
+
+	private CompositeLayout getLayout(CompositeType type) {
+		CompositeLayout layout = layouts.get(type);
+		if (layout == null) {
+			layout = new CompositeLayout(type);
+			layouts.put(type, layout);
+		}
+		return layout;
+	}
+
+	private static boolean isRendered(String type) {
+		switch (type) {
+			case "byte": case "short": case "int": case "long": case "float": case "double": case "boolean":
+			case "java.lang.Byte": case "java.lang.Short": case "java.lang.Integer": case "java.lang.Long":
+			case "java.lang.Float": case "java.lang.Double": case "java.lang.Boolean":
+			case "java.math.BigDecimal": case "java.math.BigInteger":
+			case "java.util.concurrent.atomic.AtomicInteger": case "java.util.concurrent.atomic.AtomicLong":
+			case "javax.management.openmbean.CompositeData": case "javax.management.openmbean.TabularData":
+			case "[Ljavax.management.openmbean.CompositeData;":
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private static boolean isNumeric(OpenType<?> type) {
+		return type == SimpleType.BYTE || type == SimpleType.SHORT || type == SimpleType.INTEGER || type == SimpleType.LONG
+			|| type == SimpleType.FLOAT || type == SimpleType.DOUBLE || type == SimpleType.BIGDECIMAL || type == SimpleType.BIGINTEGER
+			|| type == SimpleType.BOOLEAN;
+	}
+
+
+	// Render plans
+
+	/**
+	 * Attributes of an MBean to render, with their metric names and the labels of the MBean, encoded.
+	 */
+	private static final class MBeanPlan {
+
+		private final MBeanInfo mBeanInfo;
+		private final String[] attributes;
+		private final byte[][] metricNames;
+		private final String[] familyNames;
+		private final byte[] labels;
+		private final Set<String> labelNames = new HashSet<>();
+		private final Map<String, String> rowLabelNames = new HashMap<>();
+
+		MBeanPlan(ObjectName name, MBeanInfo mBeanInfo) {
+			this.mBeanInfo = mBeanInfo;
+			List<String> attributes = new ArrayList<>();
+			for (MBeanAttributeInfo attributeInfo : mBeanInfo.getAttributes()) {
+				if (attributeInfo.isReadable() && isRendered(attributeInfo.getType()))
+					attributes.add(attributeInfo.getName());
+			}
+			this.attributes = attributes.isEmpty() ? NO_ATTRIBUTES : attributes.toArray(new String[attributes.size()]);
+			metricNames = new byte[this.attributes.length][];
+			familyNames = new String[this.attributes.length];
+			String type = name.getKeyProperty(TYPE_KEY);
+			for (int i = 0; i < metricNames.length; i++) {
+				familyNames[i] = ExpositionBuffer.toName(name.getDomain() + '_' + (type != null ? type + '_' : "") + this.attributes[i]);
+				ExpositionBuffer metricName = new ExpositionBuffer(64);
+				metricName.writeName(familyNames[i]);
+				metricNames[i] = toBytes(metricName);
+			}
+			ExpositionBuffer labels = new ExpositionBuffer(64);
+			for (Map.Entry<String, String> property : new TreeMap<>(name.getKeyPropertyList()).entrySet()) {
+				if (property.getKey().equals(TYPE_KEY))
+					continue;
+				if (labels.size() > 0)
+					labels.write((byte)',');
+				labels.writeName(property.getKey());
+				labelNames.add(ExpositionBuffer.toName(property.getKey()));
+				labels.write((byte)'=');
+				labels.write((byte)'"');
+				labels.writeLabelValue(property.getValue());
+				labels.write((byte)'"');
+			}
+			this.labels = toBytes(labels);
+		}
+
+		/**
+		 * Returns the name of a row label, prefixed with <code>row_</code> as many times as needed not to collide with
+		 * the labels of the MBean, as Prometheus rejects samples with duplicate label names.
+		 */
+		String getRowLabelName(String item) {
+			if (labelNames.isEmpty())
+				return item;
+			String labelName = rowLabelNames.get(item);
+			if (labelName == null) {
+				labelName = ExpositionBuffer.toName(item);
+				while (labelNames.contains(labelName))
+					labelName = ROW_LABEL_PREFIX + labelName;
+				rowLabelNames.put(item, labelName);
+			}
+			return labelName;
+		}
+
+		private static byte[] toBytes(ExpositionBuffer buffer) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream(buffer.size());
+			try {
+				buffer.writeTo(out);
+			}
+			catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+			return out.toByteArray();
+		}
+	}
+
+	/**
+	 * Renders the samples of a {@link SampleSource} with the metric names and labels of its plan.
+	 */
+	private final class SampleRenderer implements SampleCollector {
+
+		private MBeanPlan plan;
+		private String lastAttribute;
+		private int lastIndex;
+
+		SampleRenderer of(MBeanPlan plan) {
+			this.plan = plan;
+			lastAttribute = null;
+			return this;
+		}
+
+		@Override public void sample(String attribute, long value) {
+			int index = indexOf(attribute);
+			if (index >= 0) {
+				ExpositionBuffer out = renderSampleName(plan, index, null, null);
+				out.writeLong(value);
+				out.write((byte)'\n');
+			}
+		}
+
+		@Override public void sample(String attribute, String item, String labelName, String labelValue, long value) {
+			int index = indexOf(attribute);
+			if (index >= 0) {
+				ExpositionBuffer out = renderSampleName(plan, index, item, rowLabels.of(labelName, labelValue));
+				out.writeLong(value);
+				out.write((byte)'\n');
+			}
+		}
+
+		private int indexOf(String attribute) {
+			if (attribute != lastAttribute) {
+				lastAttribute = attribute;
+				lastIndex = -1;
+				for (int i = 0; i < plan.attributes.length; i++) {
+					if (plan.attributes[i].equals(attribute)) {
+						lastIndex = i;
+						break;
+					}
+				}
+			}
+			return lastIndex;
+		}
+	}
+
+	/**
+	 * Samples of a metric rendered in a scrape, and the families of the metrics of composite data items appended to its
+	 * name.
+	 */
+	private static final class MetricFamily {
+
+		private final ExpositionBuffer samples = new ExpositionBuffer(256);
+		private Map<String, MetricFamily> items;
+		private int scrape;
+
+		Map<String, MetricFamily> getItems() {
+			if (items == null)
+				items = new HashMap<>();
+			return items;
+		}
+	}
+
+	/**
+	 * Labels of the row being rendered, either the string items or the index of a composite data row, or a single label
+	 * of a sample source row. Reused for all the rows.
+	 */
+	private static final class RowLabels {
+
+		private CompositeData row;
+		private String[] labelItems;
+		private int index;
+		private String labelName;
+		private String labelValue;
+
+		RowLabels of(CompositeData row, String[] labelItems, int index) {
+			this.row = row;
+			this.labelItems = labelItems;
+			this.index = index;
+			labelName = null;
+			labelValue = null;
+			return this;
+		}
+
+		RowLabels of(String labelName, String labelValue) {
+			row = null;
+			this.labelName = labelName;
+			this.labelValue = labelValue;
+			return this;
+		}
+	}
+
+	/**
+	 * Items of a composite type rendered as values and as row labels.
+	 */
+	private static final class CompositeLayout {
+
+		private final String[] valueItems;
+		private final String[] labelItems;
+
+		CompositeLayout(CompositeType type) {
+			List<String> valueItems = new ArrayList<>();
+			List<String> labelItems = new ArrayList<>();
+			for (String item : type.keySet()) {
+				OpenType<?> itemType = type.getType(item);
+				if (isNumeric(itemType))
+					valueItems.add(item);
+				else if (itemType == SimpleType.STRING)
+					labelItems.add(item);
+			}
+			this.valueItems = valueItems.toArray(new String[valueItems.size()]);
+			this.labelItems = labelItems.toArray(new String[labelItems.size()]);
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package org.strangeforest.jmx.http;
+
+import java.io.*;
+
+import com.sun.net.httpserver.*;
+
+/**
+ * Handles <code>/metrics</code> requests, see {@link JMXHttpServer}. The exposition is written with its length known,
+ * directly from the buffer it is rendered into.
+ */
+final class PrometheusHandler implements HttpHandler {
+
+	private final PrometheusExporter exporter;
+
+	PrometheusHandler(PrometheusExporter exporter) {
+		this.exporter = exporter;
+	}
+
+	@Override public void handle(HttpExchange exchange) throws IOException {
+		try {
+			if (!"GET".equals(exchange.getRequestMethod())) {
+				exchange.sendResponseHeaders(405, -1L);
+				return;
+			}
+			exchange.getResponseHeaders().set("Content-Type", PrometheusExporter.CONTENT_TYPE);
+			synchronized (exporter) {
+				int size = exporter.render();
+				exchange.sendResponseHeaders(200, size > 0 ? size : -1L);
+				if (size > 0)
+					exporter.writeTo(exchange.getResponseBody());
+			}
+		}
+		finally {
+			exchange.close();
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package org.strangeforest.jmx.http;
+
+import java.io.*;
+import java.util.*;
+import javax.management.*;
+
+/**
+ * Handles <code>/read</code> requests, see {@link JMXHttpServer}. MBeans that are unregistered or fail while being read
+ * are omitted.
+ */
+final class ReadHandler extends MBeanHandler {
+
+	ReadHandler(MBeanServer mBeanServer) {
+		super(mBeanServer);
+	}
+
+	@Override protected void write(Writer out, Set<ObjectName> names, Map<String, List<String>> params) throws IOException {
+		List<String> requestedAttributes = params.get("attribute");
+		String[] attributes = requestedAttributes != null ? requestedAttributes.toArray(new String[requestedAttributes.size()]) : null;
+		JsonWriter json = new JsonWriter(out);
+		json.beginObject().name("mbeans").beginArray();
+		for (ObjectName name : names) {
+			AttributeList values;
+			try {
+				values = mBeanServer.getAttributes(name, attributes != null ? attributes : getReadableAttributes(name));
+			}
+			catch (JMException | RuntimeException ex) {
+				continue;
+			}
+			json.beginObject().name("name").value(name.getCanonicalName()).name("attributes").beginObject();
+			for (Attribute attribute : values.asList())
+				json.name(attribute.getName()).value(attribute.getValue());
+			json.endObject().endObject();
+		}
+		json.endArray().endObject();
+	}
+
+	private String[] getReadableAttributes(ObjectName name) throws JMException {
+		MBeanAttributeInfo[] attributeInfos = mBeanServer.getMBeanInfo(name).getAttributes();
+		List<String> attributes = new ArrayList<>(attributeInfos.length);
+		for (MBeanAttributeInfo attributeInfo : attributeInfos) {
+			if (attributeInfo.isReadable())
+				attributes.add(attributeInfo.getName());
+		}
+		return attributes.toArray(new String[attributes.size()]);
+	}
+}
@@ -0,0 +1,139 @@
+package org.strangeforest.jmx.http;
+
+import java.io.*;
+import java.lang.management.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.util.*;
+import javax.management.*;
+
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class JMXHttpServerTest {
+
+	private static final String DOMAIN = "org.test.http";
+
+	private static JMXHttpServer server;
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+		mBeanServer.registerMBean(new Sample("a\"b", 1, new int[] {1, 2}), new ObjectName(DOMAIN + ":type=Sample,name=first"));
+		mBeanServer.registerMBean(new Sample("c", 2, new int[0]), new ObjectName(DOMAIN + ":type=Sample,name=second"));
+		server = new JMXHttpServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		server.start();
+	}
+
+	@AfterClass
+	public static void tearDown() throws Exception {
+		server.stop();
+		MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+		for (ObjectName name : mBeanServer.queryNames(new ObjectName(DOMAIN + ":*"), null))
+			mBeanServer.unregisterMBean(name);
+	}
+
+	@Test
+	public void shouldSwitchToNoDelaySocketsOnlyOnRequest() throws IOException {
+		assertNull(System.getProperty("sun.net.httpserver.nodelay"));
+		JMXHttpServer noDelayServer = new JMXHttpServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), ManagementFactory.getPlatformMBeanServer(), 1, true);
+		try {
+			assertEquals("true", System.getProperty("sun.net.httpserver.nodelay"));
+		}
+		finally {
+			noDelayServer.stop();
+			System.clearProperty("sun.net.httpserver.nodelay");
+		}
+	}
+
+	@Test
+	public void shouldReadAttributesOfMatchingMBeans() throws IOException {
+		String response = get("/read?name=" + encode(DOMAIN + ":type=Sample,*"));
+		assertTrue(response.startsWith("{\"mbeans\":[{\"name\":\"org.test.http:name=first,type=Sample\",\"attributes\":{"));
+		assertTrue(response.contains("},{\"name\":\"org.test.http:name=second,type=Sample\",\"attributes\":{"));
+		assertTrue(response.endsWith("}}]}"));
+		assertTrue(response.contains("\"Count\":1"));
+		assertTrue(response.contains("\"Label\":\"a\\\"b\""));
+		assertTrue(response.contains("\"Values\":[1,2]"));
+		assertTrue(response.contains("\"Values\":[]"));
+	}
+
+	@Test
+	public void shouldReadRequestedAttributesAcrossPatterns() throws IOException {
+		String response = get("/read?name=" + encode(DOMAIN + ":name=second,*") + "&name=" + encode("java.lang:type=Runtime") + "&name=" + encode(DOMAIN + ":*") +
+			"&attribute=Count&attribute=Uptime");
+		assertTrue(response.startsWith("{\"mbeans\":[{\"name\":\"org.test.http:name=second,type=Sample\",\"attributes\":{\"Count\":2}},{\"name\":\"java.lang:type=Runtime\",\"attributes\":{\"Uptime\":"));
+		assertTrue(response.endsWith("}},{\"name\":\"org.test.http:name=first,type=Sample\",\"attributes\":{\"Count\":1}}]}"));
+	}
+
+	@Test
+	public void shouldListMatchingMBeans() throws IOException {
+		assertEquals("{\"names\":[\"org.test.http:name=first,type=Sample\",\"org.test.http:name=second,type=Sample\"]}", get("/list?name=" + encode(DOMAIN + ":*")));
+	}
+
+	@Test
+	public void shouldExportPrometheusMetrics() throws IOException {
+		String response = get("/metrics");
+		assertTrue(response.contains("\norg_test_http_Sample_Count{name=\"first\"} 1\n"));
+		assertTrue(response.contains("\norg_test_http_Sample_Count{name=\"second\"} 2\n"));
+	}
+
+	@Test
+	public void shouldRejectInvalidName() throws IOException {
+		HttpURLConnection connection = open("/read?name=invalid");
+		assertEquals(400, connection.getResponseCode());
+	}
+
+	private static String get(String path) throws IOException {
+		HttpURLConnection connection = open(path);
+		assertEquals(200, connection.getResponseCode());
+		try (Reader in = new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8)) {
+			StringBuilder response = new StringBuilder();
+			char[] buffer = new char[1024];
+			for (int read; (read = in.read(buffer)) >= 0; )
+				response.append(buffer, 0, read);
+			return response.toString();
+		}
+	}
+
+	private static HttpURLConnection open(String path) throws IOException {
+		InetSocketAddress address = server.getAddress();
+		return (HttpURLConnection)new URL("http", address.getHostString(), address.getPort(), path).openConnection();
+	}
+
+	private static String encode(String s) throws UnsupportedEncodingException {
+		return URLEncoder.encode(s, "UTF-8");
+	}
+
+	public interface SampleMBean {
+		String getLabel();
+		int getCount();
+		int[] getValues();
+	}
+
+	public static class Sample implements SampleMBean {
+
+		private final String label;
+		private final int count;
+		private final int[] values;
+
+		public Sample(String label, int count, int[] values) {
+			this.label = label;
+			this.count = count;
+			this.values = values;
+		}
+
+		@Override public String getLabel() {
+			return label;
+		}
+
+		@Override public int getCount() {
+			return count;
+		}
+
+		@Override public int[] getValues() {
+			return values;
+		}
+	}
+}
@@ -0,0 +1,207 @@
+package org.strangeforest.jmx.http;
+
+import java.beans.*;
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+import javax.management.*;
+
+import org.junit.*;
+import org.strangeforest.jmx.*;
+import org.strangeforest.jmx.metric.*;
+
+import static org.junit.Assert.*;
+
+public class PrometheusExporterTest {
+
+	@Test
+	public void shouldRenderNumericAttributesAndOpenData() throws Exception {
+		MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+		mBeanServer.registerMBean(new Metrics(), new ObjectName("org.test.prom:type=Metrics,instance=main"));
+		PrometheusExporter exporter = new PrometheusExporter(mBeanServer, new ObjectName("org.test.prom:*"));
+
+		Set<String> lines = render(exporter);
+		assertEquals(new HashSet<>(Arrays.asList(
+			"org_test_prom_Metrics_Rows_count{instance=\"main\",name=\"a\"} 1",
+			"org_test_prom_Metrics_Rows_count{instance=\"main\",name=\"b\\\"x\"} 2",
+			"org_test_prom_Metrics_Points_x{instance=\"main\",index=\"0\"} 7",
+			"org_test_prom_Metrics_Stats_max{instance=\"main\"} 9",
+			"org_test_prom_Metrics_Stats_mean{instance=\"main\"} 4.5",
+			"org_test_prom_Metrics_Sizes_value{instance=\"main\",key=\"k\"} 3",
+			"org_test_prom_Metrics_Up{instance=\"main\"} 1",
+			"org_test_prom_Metrics_Ratio{instance=\"main\"} NaN"
+		)), lines);
+		assertEquals(lines, render(exporter));
+	}
+
+	@Test
+	public void shouldRenderMBeansCreatedByMBeanFactoryDirectly() throws Exception {
+		MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+		Counter counter = new Counter();
+		counter.add(5L);
+		mBeanServer.registerMBean(MBeanFactory.createMBean(counter), new ObjectName("org.test.prom:type=Counter"));
+		CounterTable table = new CounterTable(4);
+		table.add(table.register("a"), 1L);
+		table.add(table.register("b"), 2L);
+		ObjectName tableName = new ObjectName("org.test.prom:type=CounterTable");
+		mBeanServer.registerMBean(MBeanFactory.createMBean(table), tableName);
+		assertTrue(MBeanRegistry.getMBeans(mBeanServer).containsKey(tableName));
+		PrometheusExporter exporter = new PrometheusExporter(mBeanServer, new ObjectName("org.test.prom:*"));
+
+		assertEquals(new HashSet<>(Arrays.asList(
+			"org_test_prom_Counter_count 5",
+			"org_test_prom_CounterTable_size 2",
+			"org_test_prom_CounterTable_counters_count{name=\"a\"} 1",
+			"org_test_prom_CounterTable_counters_count{name=\"b\"} 2"
+		)), render(exporter));
+
+		mBeanServer.unregisterMBean(tableName);
+		assertFalse(MBeanRegistry.getMBeans(mBeanServer).containsKey(tableName));
+		assertEquals(Collections.singleton("org_test_prom_Counter_count 5"), render(exporter));
+	}
+
+	@Test
+	public void shouldPrefixRowLabelsCollidingWithKeyProperties() throws Exception {
+		MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+		CounterTable table = new CounterTable(4);
+		table.add(table.register("GET /a"), 3L);
+		mBeanServer.registerMBean(MBeanFactory.createMBean(table), new ObjectName("org.test.prom:type=Counters,name=requests"));
+		mBeanServer.registerMBean(new Metrics(), new ObjectName("org.test.prom:type=Metrics,name=main,row_name=x,index=i"));
+		PrometheusExporter exporter = new PrometheusExporter(mBeanServer, new ObjectName("org.test.prom:*"));
+
+		Set<String> lines = render(exporter);
+		assertTrue(lines.contains("org_test_prom_Counters_counters_count{name=\"requests\",row_name=\"GET /a\"} 3"));
+		assertTrue(lines.contains("org_test_prom_Metrics_Rows_count{index=\"i\",name=\"main\",row_name=\"x\",row_row_name=\"a\"} 1"));
+		assertTrue(lines.contains("org_test_prom_Metrics_Points_x{index=\"i\",name=\"main\",row_name=\"x\",row_index=\"0\"} 7"));
+	}
+
+	@Test
+	public void shouldGroupSamplesOfEachMetric() throws Exception {
+		MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+		mBeanServer.registerMBean(new Metrics(), new ObjectName("org.test.prom:type=Metrics,instance=a"));
+		mBeanServer.registerMBean(new Metrics(), new ObjectName("org.test.prom:type=Metrics,instance=b"));
+		Counter counter = new Counter();
+		mBeanServer.registerMBean(MBeanFactory.createMBean(counter), new ObjectName("org.test.prom:type=Counter,instance=a"));
+		mBeanServer.registerMBean(MBeanFactory.createMBean(counter), new ObjectName("org.test.prom:type=Counter,instance=b"));
+		PrometheusExporter exporter = new PrometheusExporter(mBeanServer, new ObjectName("org.test.prom:*"));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		exporter.render();
+		exporter.writeTo(out);
+		String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+		assertEquals(18, lines.length);
+		Set<String> metrics = new HashSet<>();
+		String metric = null;
+		for (String line : lines) {
+			String lineMetric = line.substring(0, line.indexOf(line.contains("{") ? '{' : ' '));
+			if (!lineMetric.equals(metric))
+				assertTrue("Samples of " + lineMetric + " not grouped", metrics.add(lineMetric));
+			metric = lineMetric;
+		}
+		assertEquals(8, metrics.size());
+	}
+
+	private static Set<String> render(PrometheusExporter exporter) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		synchronized (exporter) {
+			assertEquals(exporter.render(), exporter.render());
+			exporter.writeTo(out);
+		}
+		return new HashSet<>(Arrays.asList(new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n")));
+	}
+
+	public interface MetricsMXBean {
+		List<Row> getRows();
+		List<Point> getPoints();
+		Stats getStats();
+		Map<String, Long> getSizes();
+		boolean isUp();
+		double getRatio();
+		String getDescription();
+	}
+
+	public static class Metrics implements MetricsMXBean {
+
+		@Override public List<Row> getRows() {
+			return Arrays.asList(new Row("a", 1), new Row("b\"x", 2));
+		}
+
+		@Override public List<Point> getPoints() {
+			return Collections.singletonList(new Point(7));
+		}
+
+		@Override public Stats getStats() {
+			return new Stats(9L, 4.5);
+		}
+
+		@Override public Map<String, Long> getSizes() {
+			return Collections.singletonMap("k", 3L);
+		}
+
+		@Override public boolean isUp() {
+			return true;
+		}
+
+		@Override public double getRatio() {
+			return Double.NaN;
+		}
+
+		@Override public String getDescription() {
+			return "Not rendered";
+		}
+	}
+
+	public static class Row {
+
+		private final String name;
+		private final int count;
+
+		@ConstructorProperties({"name", "count"})
+		public Row(String name, int count) {
+			this.name = name;
+			this.count = count;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getCount() {
+			return count;
+		}
+	}
+
+	public static class Point {
+
+		private final int x;
+
+		@ConstructorProperties({"x"})
+		public Point(int x) {
+			this.x = x;
+		}
+
+		public int getX() {
+			return x;
+		}
+	}
+
+	public static class Stats {
+
+		private final long max;
+		private final double mean;
+
+		@ConstructorProperties({"max", "mean"})
+		public Stats(long max, double mean) {
+			this.max = max;
+			this.mean = mean;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		public double getMean() {
+			return mean;
+		}
+	}
+}
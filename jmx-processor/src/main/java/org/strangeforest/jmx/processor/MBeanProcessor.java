@@ -0,0 +1,467 @@
+package org.strangeforest.jmx.processor;
+
+import java.io.*;
+import java.util.*;
+import javax.annotation.processing.*;
+import javax.lang.model.*;
+import javax.lang.model.element.*;
+import javax.lang.model.type.*;
+import javax.lang.model.util.*;
+import javax.tools.*;
+
+import org.strangeforest.jmx.*;
+import org.strangeforest.jmx.annotation.*;
+
+import static org.strangeforest.jmx.MBeanUtil.*;
+
+/**
+ * <p>Annotation processor generating a {@link GeneratedMBean} for each class with methods annotated with
+ * {@link ManagedAttribute} or {@link ManagedOperation}. The generated class is named after the binary name of the
+ * managed class with the {@link MBeanFactory#GENERATED_MBEAN_SUFFIX} suffix, it holds a precomputed
+ * <code>MBeanInfo</code> and dispatches attributes and operations with a <code>switch</code> over their names.
+ * {@link MBeanFactory#createMBean(Object)} picks the generated class up when it exists, so neither introspection nor
+ * reflective invocation is needed at runtime.</p>
+ * <p>The processor applies the same rules as {@link MBeanFactory}. Classes that cannot be referenced from their
+ * package (private, local or anonymous classes) and abstract classes are skipped, as are classes that only inherit
+ * annotated methods and classes using features supported only at runtime, like {@link ManagedNotification}; all of
+ * them are still exposed by {@link MBeanFactory} at runtime.</p>
+ * <p>To use it, add the <code>jmx-processor</code> artifact to the compile class path (i.e. with
+ * <code>provided</code> scope) or to the compiler annotation processor path.</p>
+ */
+@SupportedAnnotationTypes({"org.strangeforest.jmx.annotation.ManagedAttribute", "org.strangeforest.jmx.annotation.ManagedOperation"})
+public class MBeanProcessor extends AbstractProcessor {
+
+	@Override public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		Set<TypeElement> types = new LinkedHashSet<>();
+		for (Element method : roundEnv.getElementsAnnotatedWith(ManagedAttribute.class))
+			types.add((TypeElement)method.getEnclosingElement());
+		for (Element method : roundEnv.getElementsAnnotatedWith(ManagedOperation.class))
+			types.add((TypeElement)method.getEnclosingElement());
+		for (TypeElement type : types) {
+			if (isGeneratable(type))
+				generateMBean(type);
+		}
+		return false;
+	}
+
+	private boolean isGeneratable(TypeElement type) {
+		if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT))
+			return false;
+		for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+			TypeElement typeElement = (TypeElement)element;
+			NestingKind nesting = typeElement.getNestingKind();
+			if (typeElement.getModifiers().contains(Modifier.PRIVATE) || (nesting != NestingKind.TOP_LEVEL && nesting != NestingKind.MEMBER)) {
+				note("Cannot reference " + type + ", it will be exposed by MBeanFactory at runtime", type);
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void generateMBean(TypeElement type) {
+		MBeanModel model = new MBeanModel(type);
+		if (!model.introspect())
+			return;
+		Elements elements = processingEnv.getElementUtils();
+		String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+		String binaryName = elements.getBinaryName(type).toString();
+		String simpleName = binaryName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1) + MBeanFactory.GENERATED_MBEAN_SUFFIX;
+		try {
+			JavaFileObject sourceFile = processingEnv.getFiler().createSourceFile(packageName.isEmpty() ? simpleName : packageName + '.' + simpleName, type);
+			try (PrintWriter out = new PrintWriter(sourceFile.openWriter())) {
+				new MBeanWriter(out, model, packageName, simpleName).write();
+			}
+		}
+		catch (IOException ex) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot generate MBean for " + type + ": " + ex, type);
+		}
+	}
+
+	private void error(String message, Element element) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+	}
+
+	private void note(String message, Element element) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, message, element);
+	}
+
+
+	// Model
+
+	/**
+	 * Attributes and operations of a managed class, introspected by the same rules as in {@link MBeanFactory}.
+	 */
+	private class MBeanModel {
+
+		private final TypeElement type;
+		private final List<ExecutableElement> methods = new ArrayList<>();
+		private final List<AttributeModel> attributes = new ArrayList<>();
+		private final List<OperationModel> operations = new ArrayList<>();
+
+		public MBeanModel(TypeElement type) {
+			this.type = type;
+			for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+				if (method.getModifiers().contains(Modifier.PUBLIC) && !method.getModifiers().contains(Modifier.STATIC))
+					methods.add(method);
+			}
+		}
+
+		public boolean introspect() {
+			for (ExecutableElement method : methods) {
+				if (usesRuntimeFeatures(method)) {
+					note("Method " + method.getSimpleName() + " uses features supported only at runtime, " + type + " will be exposed by MBeanFactory", method);
+					return false;
+				}
+			}
+			boolean valid = true;
+			for (ExecutableElement method : methods) {
+				ManagedAttribute managedAttribute = method.getAnnotation(ManagedAttribute.class);
+				ManagedOperation managedOperation = method.getAnnotation(ManagedOperation.class);
+				if (managedAttribute != null && managedOperation != null) {
+					error("Method " + method.getSimpleName() + " cannot have both ManagedAttribute and ManagedOperation annotations.", method);
+					valid = false;
+				}
+				else if (managedAttribute != null)
+					valid &= handleManagedAttribute(method, managedAttribute);
+				else if (managedOperation != null)
+					operations.add(new OperationModel(method, managedOperation));
+			}
+			return valid;
+		}
+
+		private boolean usesRuntimeFeatures(ExecutableElement method) {
+			if (method.getAnnotation(ManagedNotification.class) != null || method.getAnnotation(ManagedHistory.class) != null)
+				return true;
+			ManagedAttribute managedAttribute = method.getAnnotation(ManagedAttribute.class);
+			return managedAttribute != null && (managedAttribute.cacheMillis() != 0L || managedAttribute.snapshot() || managedAttribute.paged());
+		}
+
+		private boolean handleManagedAttribute(ExecutableElement method, ManagedAttribute managedAttribute) {
+			String methodName = method.getSimpleName().toString();
+			ExecutableElement getterMethod = isGetterMethod(method) ? method : null;
+			ExecutableElement setterMethod = isSetterMethod(method) ? method : null;
+			if (getterMethod == null && setterMethod == null) {
+				error("Method " + methodName + " is annotated as ManagedAttribute but doesn't looks like a valid getter or setter.", method);
+				return false;
+			}
+
+			String attributeName = methodName.startsWith("is") ? decapitalize(methodName.substring(2)) : decapitalize(methodName.substring(3));
+			TypeMirror attributeType = setterMethod != null ? method.getParameters().get(0).asType() : method.getReturnType();
+
+			getterMethod = getterMethod == null ? findGetterMethod(attributeName) : getterMethod;
+			setterMethod = setterMethod == null ? findSetterMethod(attributeName, attributeType) : setterMethod;
+
+			for (AttributeModel attribute : attributes) {
+				if (attribute.name.equals(attributeName) && attribute.typeName.equals(className(attributeType))) {
+					error("Both getter and setter are annotated for attribute " + attributeName + ". Please remove one of the annotations.", method);
+					return false;
+				}
+			}
+			boolean readable = managedAttribute.readable() && getterMethod != null;
+			boolean writable = managedAttribute.writable() && setterMethod != null;
+			if (readable || writable)
+				attributes.add(new AttributeModel(attributeName, attributeType, managedAttribute.description(), readable ? getterMethod : null, writable ? setterMethod : null));
+			return true;
+		}
+
+		private boolean isGetterMethod(ExecutableElement method) {
+			String methodName = method.getSimpleName().toString();
+			return (methodName.startsWith("get") || methodName.startsWith("is")) && method.getReturnType().getKind() != TypeKind.VOID && method.getParameters().isEmpty();
+		}
+
+		private boolean isSetterMethod(ExecutableElement method) {
+			return method.getSimpleName().toString().startsWith("set") && method.getReturnType().getKind() == TypeKind.VOID && method.getParameters().size() == 1;
+		}
+
+		private ExecutableElement findGetterMethod(String attributeName) {
+			for (String prefix : new String[] {"get", "is"}) {
+				for (ExecutableElement method : methods) {
+					if (method.getSimpleName().contentEquals(prefix + capitalize(attributeName)) && method.getParameters().isEmpty())
+						return method;
+				}
+			}
+			return null;
+		}
+
+		private ExecutableElement findSetterMethod(String attributeName, TypeMirror attributeType) {
+			Types types = processingEnv.getTypeUtils();
+			for (ExecutableElement method : methods) {
+				if (method.getSimpleName().contentEquals("set" + capitalize(attributeName)) && method.getParameters().size() == 1
+				    && types.isSameType(types.erasure(method.getParameters().get(0).asType()), types.erasure(attributeType)))
+					return method;
+			}
+			return null;
+		}
+	}
+
+	private class AttributeModel {
+
+		private final String name;
+		private final TypeMirror type;
+		private final String typeName;
+		private final String description;
+		private final ExecutableElement getterMethod;
+		private final ExecutableElement setterMethod;
+
+		public AttributeModel(String name, TypeMirror type, String description, ExecutableElement getterMethod, ExecutableElement setterMethod) {
+			this.name = name;
+			this.type = type;
+			this.typeName = className(type);
+			this.description = description;
+			this.getterMethod = getterMethod;
+			this.setterMethod = setterMethod;
+		}
+	}
+
+	private class OperationModel {
+
+		private final ExecutableElement method;
+		private final String name;
+		private final String description;
+		private final int impact;
+		private final List<TypeMirror> paramTypes = new ArrayList<>();
+
+		public OperationModel(ExecutableElement method, ManagedOperation managedOperation) {
+			this.method = method;
+			this.name = method.getSimpleName().toString();
+			this.description = managedOperation.description();
+			this.impact = managedOperation.impact().getCode();
+			for (VariableElement param : method.getParameters())
+				paramTypes.add(param.asType());
+		}
+	}
+
+
+	// Writer
+
+	/**
+	 * Writes the source of a generated MBean.
+	 */
+	private class MBeanWriter {
+
+		private final PrintWriter out;
+		private final MBeanModel model;
+		private final String packageName;
+		private final String simpleName;
+		private final String typeName;
+
+		public MBeanWriter(PrintWriter out, MBeanModel model, String packageName, String simpleName) {
+			this.out = out;
+			this.model = model;
+			this.packageName = packageName;
+			this.simpleName = simpleName;
+			this.typeName = sourceName(model.type.asType());
+		}
+
+		public void write() {
+			if (!packageName.isEmpty()) {
+				out.println("package " + packageName + ";");
+				out.println();
+			}
+			out.println("import javax.management.*;");
+			out.println();
+			out.println("import org.strangeforest.jmx.*;");
+			out.println();
+			out.println("/**");
+			out.println(" * DynamicMBean for {@link " + typeName + "}, generated by " + MBeanProcessor.class.getName() + ".");
+			out.println(" */");
+			out.println("@SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+			out.println("public final class " + simpleName + " extends GeneratedMBean<" + typeName + "> {");
+			out.println();
+			writeMBeanInfo();
+			writeSignatures();
+			out.println("\tpublic " + simpleName + "(" + typeName + " object) {");
+			out.println("\t\tsuper(object, MBEAN_INFO, " + (model.type.getAnnotation(SynchronizedAttributes.class) != null) + ");");
+			out.println("\t}");
+			out.println();
+			writeGetAttribute();
+			writeSetAttribute();
+			writeInvoke();
+			out.println("}");
+		}
+
+		private void writeMBeanInfo() {
+			MBeanDescription mBeanDescription = model.type.getAnnotation(MBeanDescription.class);
+			out.println("\tprivate static final MBeanInfo MBEAN_INFO = new MBeanInfo(");
+			out.println("\t\t" + literal(className(model.type.asType())) + ",");
+			out.println("\t\t" + literal(mBeanDescription != null ? mBeanDescription.value() : "") + ",");
+			out.println("\t\tnew MBeanAttributeInfo[] {");
+			for (Iterator<AttributeModel> iter = model.attributes.iterator(); iter.hasNext(); ) {
+				AttributeModel attribute = iter.next();
+				boolean isIs = attribute.getterMethod != null && attribute.getterMethod.getSimpleName().toString().startsWith("is");
+				out.print("\t\t\tnew MBeanAttributeInfo(" + literal(attribute.name) + ", " + literal(attribute.typeName) + ", " + literal(attribute.description) + ", "
+					+ (attribute.getterMethod != null) + ", " + (attribute.setterMethod != null) + ", " + isIs + ")");
+				out.println(iter.hasNext() ? "," : "");
+			}
+			out.println("\t\t},");
+			out.println("\t\tnew MBeanConstructorInfo[0],");
+			out.println("\t\tnew MBeanOperationInfo[] {");
+			for (Iterator<OperationModel> iter = model.operations.iterator(); iter.hasNext(); ) {
+				OperationModel operation = iter.next();
+				out.print("\t\t\tnew MBeanOperationInfo(" + literal(operation.name) + ", " + literal(operation.description) + ", new MBeanParameterInfo[] {");
+				for (int i = 0; i < operation.paramTypes.size(); i++)
+					out.print((i > 0 ? ", " : "") + "new MBeanParameterInfo(\"param" + i + "\", " + literal(className(operation.paramTypes.get(i))) + ", \"\")");
+				out.print("}, " + literal(className(operation.method.getReturnType())) + ", " + operation.impact + ")");
+				out.println(iter.hasNext() ? "," : "");
+			}
+			out.println("\t\t},");
+			out.println("\t\tnew MBeanNotificationInfo[0]");
+			out.println("\t);");
+			out.println();
+		}
+
+		private void writeSignatures() {
+			for (int i = 0; i < model.operations.size(); i++) {
+				OperationModel operation = model.operations.get(i);
+				out.print("\tprivate static final String[] SIGNATURE_" + i + " = {");
+				for (int p = 0; p < operation.paramTypes.size(); p++)
+					out.print((p > 0 ? ", " : "") + literal(className(operation.paramTypes.get(p))));
+				out.println("};");
+			}
+			if (!model.operations.isEmpty())
+				out.println();
+		}
+
+		private void writeGetAttribute() {
+			out.println("\t@Override protected Object doGetAttribute(String attributeName) throws AttributeNotFoundException, MBeanException {");
+			out.println("\t\ttry {");
+			out.println("\t\t\tswitch (attributeName) {");
+			for (AttributeModel attribute : model.attributes) {
+				if (attribute.getterMethod != null)
+					out.println("\t\t\t\tcase " + literal(attribute.name) + ": return object." + attribute.getterMethod.getSimpleName() + "();");
+			}
+			out.println("\t\t\t}");
+			out.println("\t\t}");
+			out.println("\t\tcatch (Exception e) {");
+			out.println("\t\t\tthrow new MBeanException(new java.lang.reflect.InvocationTargetException(e));");
+			out.println("\t\t}");
+			out.println("\t\tthrow attributeNotFound(attributeName);");
+			out.println("\t}");
+			out.println();
+		}
+
+		private void writeSetAttribute() {
+			out.println("\t@Override protected void doSetAttribute(String attributeName, Object value) throws AttributeNotFoundException, InvalidAttributeValueException, MBeanException {");
+			out.println("\t\tswitch (attributeName) {");
+			for (AttributeModel attribute : model.attributes) {
+				String valueType = boxedSourceName(attribute.type);
+				out.println("\t\t\tcase " + literal(attribute.name) + ":");
+				out.println("\t\t\t\tif (!(value instanceof " + valueType + "))");
+				out.println("\t\t\t\t\tthrow invalidAttributeValue(attributeName, value, " + literal(attribute.typeName) + ");");
+				if (attribute.setterMethod != null) {
+					out.println("\t\t\t\ttry {");
+					out.println("\t\t\t\t\tobject." + attribute.setterMethod.getSimpleName() + "((" + valueType + ")value);");
+					out.println("\t\t\t\t}");
+					out.println("\t\t\t\tcatch (Exception e) {");
+					out.println("\t\t\t\t\tthrow new MBeanException(new java.lang.reflect.InvocationTargetException(e));");
+					out.println("\t\t\t\t}");
+					out.println("\t\t\t\treturn;");
+				}
+				else
+					out.println("\t\t\t\tthrow new ManagementException(\"No setter method for attribute \" + attributeName);");
+			}
+			out.println("\t\t}");
+			out.println("\t\tthrow attributeNotFound(attributeName);");
+			out.println("\t}");
+			out.println();
+		}
+
+		private void writeInvoke() {
+			Map<String, List<Integer>> overloads = new LinkedHashMap<>();
+			for (int i = 0; i < model.operations.size(); i++)
+				overloads.computeIfAbsent(model.operations.get(i).name, name -> new ArrayList<>()).add(i);
+			out.println("\t@Override protected Object doInvoke(String actionName, Object[] params, String[] signature) throws ReflectionException {");
+			out.println("\t\ttry {");
+			out.println("\t\t\tswitch (actionName) {");
+			for (Map.Entry<String, List<Integer>> entry : overloads.entrySet()) {
+				out.println("\t\t\t\tcase " + literal(entry.getKey()) + ":");
+				for (int i : entry.getValue()) {
+					OperationModel operation = model.operations.get(i);
+					StringBuilder call = new StringBuilder("object.").append(operation.name).append('(');
+					for (int p = 0; p < operation.paramTypes.size(); p++)
+						call.append(p > 0 ? ", " : "").append('(').append(boxedSourceName(operation.paramTypes.get(p))).append(")params[").append(p).append(']');
+					call.append(')');
+					out.println("\t\t\t\t\tif (isAssignableSignature(signature, SIGNATURE_" + i + ")) {");
+					if (operation.method.getReturnType().getKind() == TypeKind.VOID) {
+						out.println("\t\t\t\t\t\t" + call + ";");
+						out.println("\t\t\t\t\t\treturn null;");
+					}
+					else
+						out.println("\t\t\t\t\t\treturn " + call + ";");
+					out.println("\t\t\t\t\t}");
+				}
+				out.println("\t\t\t\t\tbreak;");
+			}
+			out.println("\t\t\t}");
+			out.println("\t\t}");
+			out.println("\t\tcatch (Exception e) {");
+			out.println("\t\t\tthrow new ReflectionException(new java.lang.reflect.InvocationTargetException(e));");
+			out.println("\t\t}");
+			out.println("\t\tthrow operationNotFound(actionName);");
+			out.println("\t}");
+		}
+	}
+
+
+	// Type names
+
+	/**
+	 * Returns the name of a type as returned by <code>Class.getName()</code>, which is the form used in MBeanInfo.
+	 */
+	private String className(TypeMirror type) {
+		switch (type.getKind()) {
+			case ARRAY: return "[" + descriptor(((ArrayType)type).getComponentType());
+			case DECLARED: return processingEnv.getElementUtils().getBinaryName((TypeElement)((DeclaredType)type).asElement()).toString();
+			case TYPEVAR: return className(processingEnv.getTypeUtils().erasure(type));
+			default: return type.toString();
+		}
+	}
+
+	private String descriptor(TypeMirror type) {
+		switch (type.getKind()) {
+			case BOOLEAN: return "Z";
+			case BYTE: return "B";
+			case CHAR: return "C";
+			case SHORT: return "S";
+			case INT: return "I";
+			case LONG: return "J";
+			case FLOAT: return "F";
+			case DOUBLE: return "D";
+			case ARRAY: return "[" + descriptor(((ArrayType)type).getComponentType());
+			case TYPEVAR: return descriptor(processingEnv.getTypeUtils().erasure(type));
+			default: return "L" + className(type) + ";";
+		}
+	}
+
+	/**
+	 * Returns the name of a type as used in source code, with primitive types replaced by their wrappers.
+	 */
+	private String boxedSourceName(TypeMirror type) {
+		if (type.getKind().isPrimitive())
+			return sourceName(processingEnv.getTypeUtils().boxedClass((PrimitiveType)type).asType());
+		return sourceName(type);
+	}
+
+	private String sourceName(TypeMirror type) {
+		return processingEnv.getTypeUtils().erasure(type).toString();
+	}
+
+	private static String literal(String value) {
+		StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+		for (char c : value.toCharArray()) {
+			switch (c) {
+				case '"': sb.append("\\\""); break;
+				case '\\': sb.append("\\\\"); break;
+				case '\n': sb.append("\\n"); break;
+				case '\r': sb.append("\\r"); break;
+				case '\t': sb.append("\\t"); break;
+				default: sb.append(c);
+			}
+		}
+		return sb.append('"').toString();
+	}
+}
@@ -0,0 +1,81 @@
+package org.strangeforest.jmx.processor;
+
+import java.util.*;
+import javax.management.*;
+
+import org.junit.*;
+import org.strangeforest.jmx.*;
+
+import static org.junit.Assert.*;
+
+public class MBeanProcessorTest {
+
+	@Test
+	public void shouldCreateGeneratedMBean() {
+		DynamicMBean mBean = MBeanFactory.createMBean(new ProcessedCounter());
+		assertTrue(mBean instanceof ProcessedCounter_MBean);
+
+		DynamicMBean nestedMBean = MBeanFactory.createMBean(new ProcessedCounter.Nested());
+		assertTrue(nestedMBean instanceof GeneratedMBean);
+		assertEquals(ProcessedCounter.Nested.class.getName() + MBeanFactory.GENERATED_MBEAN_SUFFIX, nestedMBean.getClass().getName());
+	}
+
+	@Test
+	public void shouldNotGenerateMBeanForRuntimeOnlyFeatures() {
+		assertTrue(MBeanFactory.createMBean(new ProcessedCounter.Notifying()) instanceof MBeanImpl);
+	}
+
+	@Test
+	public void shouldGenerateSameMBeanInfoAsMBeanFactory() {
+		for (Object object : new Object[] {new ProcessedCounter(), new ProcessedCounter.Nested()}) {
+			MBeanInfo generatedInfo = MBeanFactory.createMBean(object).getMBeanInfo();
+			MBeanInfo reflectiveInfo = MBeanFactory.createMBean(object, InvocationEngine.REFLECTION).getMBeanInfo();
+			assertEquals(reflectiveInfo.getClassName(), generatedInfo.getClassName());
+			assertEquals(reflectiveInfo.getDescription(), generatedInfo.getDescription());
+			assertEquals(new HashSet<>(Arrays.asList(reflectiveInfo.getAttributes())), new HashSet<>(Arrays.asList(generatedInfo.getAttributes())));
+			assertEquals(new HashSet<>(Arrays.asList(reflectiveInfo.getOperations())), new HashSet<>(Arrays.asList(generatedInfo.getOperations())));
+		}
+	}
+
+	@Test
+	public void shouldInstrumentObject() throws Exception {
+		ProcessedCounter counter = new ProcessedCounter();
+		DynamicMBean mBean = MBeanFactory.createMBean(counter);
+
+		mBean.setAttribute(new Attribute("counter", 10));
+		assertEquals(10, mBean.getAttribute("counter"));
+		mBean.setAttribute(new Attribute("enabled", false));
+		assertEquals(false, mBean.getAttribute("enabled"));
+		assertEquals(Collections.emptyList(), mBean.getAttribute("tags"));
+
+		mBean.invoke("resetCounter", null, null);
+		assertEquals(0, counter.getCounter());
+		assertEquals(true, mBean.invoke("addCounter", new Object[] {20}, new String[] {"int"}));
+		assertEquals(true, mBean.invoke("addCounter", new Object[] {"5"}, new String[] {String.class.getName()}));
+		assertEquals(25, mBean.getAttribute("counter"));
+
+		AttributeList attributes = mBean.getAttributes(new String[] {"counter", "unknown", "enabled"});
+		assertEquals(2, attributes.size());
+		assertEquals(new Attribute("counter", 25), attributes.get(0));
+		assertEquals(new Attribute("enabled", false), attributes.get(1));
+
+		AttributeList setAttributes = mBean.setAttributes(new AttributeList(Arrays.asList(new Attribute("counter", 5), new Attribute("tags", Collections.emptyList()))));
+		assertEquals(1, setAttributes.size());
+		assertEquals(5, counter.getCounter());
+	}
+
+	@Test(expected = AttributeNotFoundException.class)
+	public void shouldNotGetUnknownAttribute() throws Exception {
+		MBeanFactory.createMBean(new ProcessedCounter()).getAttribute("unknown");
+	}
+
+	@Test(expected = InvalidAttributeValueException.class)
+	public void shouldNotSetAttributeOfWrongType() throws Exception {
+		MBeanFactory.createMBean(new ProcessedCounter()).setAttribute(new Attribute("counter", "10"));
+	}
+
+	@Test(expected = ReflectionException.class)
+	public void shouldNotInvokeOperationWithWrongSignature() throws Exception {
+		MBeanFactory.createMBean(new ProcessedCounter()).invoke("addCounter", new Object[] {20L}, new String[] {"long"});
+	}
+}
@@ -0,0 +1,86 @@
+package org.strangeforest.jmx.processor;
+
+import java.util.*;
+
+import org.strangeforest.jmx.annotation.*;
+
+@MBeanDescription("Processed")
+@SynchronizedAttributes
+public class ProcessedCounter {
+
+	private int counter;
+	private boolean enabled = true;
+	private List<String> tags = new ArrayList<>();
+
+	@ManagedOperation(impact = Impact.ACTION)
+	public void resetCounter() {
+		this.counter = 0;
+	}
+
+	@ManagedOperation(impact = Impact.ACTION)
+	public boolean addCounter(int value) {
+		counter += value;
+		return true;
+	}
+
+	@ManagedOperation(impact = Impact.ACTION)
+	public boolean addCounter(String value) {
+		return addCounter(Integer.parseInt(value));
+	}
+
+	@ManagedAttribute(description = "Counter \"value\"")
+	public int getCounter() {
+		return counter;
+	}
+
+	public void setCounter(int counter) {
+		this.counter = counter;
+	}
+
+	@ManagedAttribute
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	@ManagedAttribute(writable = false)
+	public List<String> getTags() {
+		return tags;
+	}
+
+	public void setTags(List<String> tags) {
+		this.tags = tags;
+	}
+
+	public static class Nested {
+
+		private long value;
+
+		@ManagedAttribute
+		public long getValue() {
+			return value;
+		}
+
+		public void setValue(long value) {
+			this.value = value;
+		}
+	}
+
+	public static class Notifying {
+
+		private long value;
+
+		@ManagedAttribute
+		@ManagedNotification
+		public long getValue() {
+			return value;
+		}
+
+		public void setValue(long value) {
+			this.value = value;
+		}
+	}
+}
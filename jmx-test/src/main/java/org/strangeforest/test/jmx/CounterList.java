@@ -1,27 +1,225 @@
 package org.strangeforest.test.jmx;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
+/**
+ * <p>List of named counters kept in primitive storage: names, types and counts in chunks of slots, with a name to slot
+ * index. Chunks are added as counters are registered and never copied, so the list grows up to {@link #MAX_CAPACITY}
+ * without losing updates made concurrently with the growth. A running total is maintained by the updates, striped by
+ * updating thread, so {@link #getTotal()} does not depend on the number of counters and updates of different counters
+ * do not contend on it. Counters are identified by name, so counters with the same name are merged.</p>
+ * <p>A slot identifies a counter of the current counters only: after {@link #setCounters(List)} replaces them, the
+ * slots taken before are rejected with <code>IllegalStateException</code>, and must be taken again with
+ * {@link #register(String, String)}. Slots carry the number of replacements modulo 256, so a slot taken exactly 256
+ * replacements ago is not detected.</p>
+ * <p>{@link #getCounters()} builds the <code>Counter</code> view of the list on each call, which is mapped to the same
+ * MXBean open data as a list of <code>Counter</code> objects. Large lists can be read in pages with
+ * {@link #getCounters(int, int)}.</p>
+ */
 public class CounterList {
 
-	private List<Counter> counters;
+	private static final int STRIPES = Math.min(Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1), 16);
+	private static final int TOTAL_PADDING = 8;
+	private static final int CHUNK_BITS = 8;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	private static final int INDEX_BITS = 23;
+	private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+	private static final int GENERATION_MASK = 0xFF;
+
+	public static final int MAX_CAPACITY = 1 << INDEX_BITS;
+
+	private volatile Storage storage;
+
+	public CounterList() {
+		this(0);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity the number of counters to allocate storage for, the list grows beyond it up to {@link #MAX_CAPACITY}.
+	 */
+	public CounterList(int capacity) {
+		storage = new Storage(capacity, 0);
+	}
 
 	public CounterList(Counter... counters) {
-		this.counters = Arrays.asList(counters);
+		this(Arrays.asList(counters));
+	}
+
+	private CounterList(List<Counter> counters) {
+		setCounters(counters);
+	}
+
+	/**
+	 * Returns the slot of the counter with the specified name, adding the counter if it does not exist.
+	 *
+	 * @param name the counter name.
+	 * @param type the counter type, used only if the counter is added.
+	 * @return the counter slot.
+	 * @throws IllegalStateException if the counter does not exist and the list has {@link #MAX_CAPACITY} counters.
+	 */
+	public int register(String name, String type) {
+		return storage.register(name, type);
+	}
+
+	public void increment(int slot) {
+		add(slot, 1);
+	}
+
+	public void add(int slot, int delta) {
+		storage.add(slot, delta);
+	}
+
+	public int get(int slot) {
+		return storage.get(slot);
+	}
+
+	public int size() {
+		return storage.size;
 	}
 
 	public List<Counter> getCounters() {
+		Storage storage = this.storage;
+		int size = storage.size;
+		List<Counter> counters = new ArrayList<>(size);
+		for (int slot = 0; slot < size; slot++)
+			counters.add(storage.counter(slot));
 		return counters;
 	}
 
-	public void setCounters(List<Counter> counters) {
-		this.counters = counters;
+	/**
+	 * Returns a page of counters, in the order they were added, building only the counters of the page.
+	 *
+	 * @param offset the index of the first counter.
+	 * @param limit  the maximum number of counters.
+	 * @return the counters.
+	 * @throws IllegalArgumentException if <code>offset</code> or <code>limit</code> is negative.
+	 */
+	public List<Counter> getCounters(int offset, int limit) {
+		if (offset < 0 || limit < 0)
+			throw new IllegalArgumentException("Invalid page, offset: " + offset + ", limit: " + limit);
+		Storage storage = this.storage;
+		int size = storage.size;
+		int from = Math.min(offset, size);
+		int to = (int)Math.min((long)from + limit, size);
+		List<Counter> counters = new ArrayList<>(to - from);
+		for (int slot = from; slot < to; slot++)
+			counters.add(storage.counter(slot));
+		return counters;
 	}
 
-	public int getTotal() {
-		int total = 0;
+	/**
+	 * Replaces the counters. Slots of the replaced counters are rejected afterwards, and updates made by them
+	 * concurrently with the replacement are lost.
+	 *
+	 * @param counters the new counters.
+	 */
+	public synchronized void setCounters(List<Counter> counters) {
+		Storage previous = this.storage;
+		Storage storage = new Storage(counters.size(), previous != null ? (previous.generation + 1) & GENERATION_MASK : 0);
 		for (Counter counter : counters)
-			total += counter.getCount();
-		return total;
+			storage.add(storage.register(counter.getName(), counter.getType()), counter.getCount());
+		this.storage = storage;
+	}
+
+	public int getTotal() {
+		return (int)storage.getTotal();
+	}
+
+	private static final class Chunk {
+
+		private final String[] names = new String[CHUNK_SIZE];
+		private final String[] types = new String[CHUNK_SIZE];
+		private final AtomicLongArray counts = new AtomicLongArray(CHUNK_SIZE);
+	}
+
+	private static final class Storage {
+
+		private volatile Chunk[] chunks;
+		private final AtomicLongArray totals = new AtomicLongArray(STRIPES * TOTAL_PADDING);
+		private final ConcurrentMap<String, Integer> slots = new ConcurrentHashMap<>();
+		private final int generation;
+		private volatile int size;
+
+		private Storage(int capacity, int generation) {
+			if (capacity < 0 || capacity > MAX_CAPACITY)
+				throw new IllegalArgumentException("Invalid capacity: " + capacity);
+			this.generation = generation;
+			chunks = new Chunk[Math.max((capacity + CHUNK_MASK) >>> CHUNK_BITS, 1)];
+			for (int i = 0; i < chunks.length; i++)
+				chunks[i] = new Chunk();
+		}
+
+		private int register(String name, String type) {
+			Objects.requireNonNull(name, "No name specified.");
+			Integer slot = slots.get(name);
+			return slot != null ? slot : addCounter(name, type);
+		}
+
+		private synchronized int addCounter(String name, String type) {
+			Integer existing = slots.get(name);
+			if (existing != null)
+				return existing;
+			int index = size;
+			if (index == MAX_CAPACITY)
+				throw new IllegalStateException("Counter list is full, capacity: " + MAX_CAPACITY);
+			Chunk[] chunks = this.chunks;
+			int chunkIndex = index >>> CHUNK_BITS;
+			if (chunkIndex == chunks.length) {
+				// chunks are shared with the grown array, so concurrent updates of existing counters are kept
+				chunks = Arrays.copyOf(chunks, chunks.length * 2);
+				for (int i = chunkIndex; i < chunks.length; i++)
+					chunks[i] = new Chunk();
+				this.chunks = chunks;
+			}
+			Chunk chunk = chunks[chunkIndex];
+			chunk.names[index & CHUNK_MASK] = name;
+			chunk.types[index & CHUNK_MASK] = type;
+			// publish the slot to lock-free register calls only once it is within size
+			size = index + 1;
+			int slot = generation << INDEX_BITS | index;
+			slots.put(name, slot);
+			return slot;
+		}
+
+		private void add(int slot, long delta) {
+			int index = index(slot);
+			chunks[index >>> CHUNK_BITS].counts.addAndGet(index & CHUNK_MASK, delta);
+			int stripe = (int)Thread.currentThread().getId() & (STRIPES - 1);
+			totals.addAndGet(stripe * TOTAL_PADDING, delta);
+		}
+
+		private int get(int slot) {
+			int index = index(slot);
+			return (int)chunks[index >>> CHUNK_BITS].counts.get(index & CHUNK_MASK);
+		}
+
+		private Counter counter(int index) {
+			Chunk chunk = chunks[index >>> CHUNK_BITS];
+			int offset = index & CHUNK_MASK;
+			return new Counter(chunk.names[offset], chunk.types[offset], (int)chunk.counts.get(offset));
+		}
+
+		private long getTotal() {
+			long total = 0L;
+			for (int stripe = 0; stripe < STRIPES; stripe++)
+				total += totals.get(stripe * TOTAL_PADDING);
+			return total;
+		}
+
+		private int index(int slot) {
+			if (slot < 0)
+				throw new IndexOutOfBoundsException("Invalid slot: " + slot);
+			if (slot >>> INDEX_BITS != generation)
+				throw new IllegalStateException("Slot of replaced counters: " + slot);
+			int index = slot & INDEX_MASK;
+			if (index >= size)
+				throw new IndexOutOfBoundsException("Invalid slot: " + slot);
+			return index;
+		}
 	}
 }
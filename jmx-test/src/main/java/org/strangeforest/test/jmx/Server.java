@@ -8,6 +8,7 @@ import javax.management.*;
 import javax.management.modelmbean.*;
 import javax.management.remote.*;
 
+import org.strangeforest.jmx.*;
 import org.strangeforest.test.jmx.dynamic.*;
 //import org.strangeforest.test.jmx.gmbal.*;
 import org.strangeforest.test.jmx.model.*;
@@ -25,21 +26,32 @@ public class Server {
 	public static final String TEST_MODEL_URL = "org.strangeforrest.test:type=TestModel";
 	public static final String TEST_MX_URL = "org.strangeforrest.test:type=TestMX";
 	public static final String TEST_GMBAL_URL = "org.strangeforrest.test:type=TestGmbal";
+	public static final String CONNECTOR_STATISTICS_URL = "org.strangeforrest.connector:type=ConnectorStatistics";
 
 	private static final int JMX_RMI_PORT = 9999;
 	private static final String JMX_URL = "service:jmx:rmi:///jndi/rmi://localhost:%d/server";
 
 	private static JMXConnectorServer connector;
 	private static int port;
+	private static ConnectorServerBuilder.Threads threads;
 
+	/**
+	 * Starts the server, invoking MBeans on the threads specified by the optional argument (CONNECTION, PLATFORM or
+	 * VIRTUAL).
+	 */
 	public static void main(String[] args) throws Exception {
-		start(JMX_RMI_PORT);
+		start(JMX_RMI_PORT, args.length > 0 ? ConnectorServerBuilder.Threads.valueOf(args[0]) : ConnectorServerBuilder.Threads.CONNECTION);
 		System.out.println("JMX Server started.");
 		TimeUnit.DAYS.sleep(1L);
 	}
 
 	public static String start(int port) throws Exception {
+		return start(port, ConnectorServerBuilder.Threads.CONNECTION);
+	}
+
+	public static String start(int port, ConnectorServerBuilder.Threads threads) throws Exception {
 		Server.port = port;
+		Server.threads = threads;
 
 		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
 
@@ -71,17 +83,22 @@ public class Server {
 		if (connector != null) {
 			connector.stop();
 			connector = null;
+			JMXUtil.unregister(CONNECTOR_STATISTICS_URL);
+			JMXUtil.unregister(BulkReader.NAME);
 			return true;
 		}
 		else
 			return false;
 	}
 
-	private static String startRMIConnectorServer(MBeanServer server) throws IOException {
+	private static String startRMIConnectorServer(MBeanServer server) throws IOException, JMException {
 		LocateRegistry.createRegistry(port);
 		String url = String.format(JMX_URL, port);
-		connector = JMXConnectorServerFactory.newJMXConnectorServer(new JMXServiceURL(url), null, server);
+		ConnectorServerBuilder builder = new ConnectorServerBuilder(new JMXServiceURL(url)).mBeanServer(server).threads(threads);
+		connector = builder.build();
 		connector.start();
+		JMXUtil.register(builder.getStatistics(), CONNECTOR_STATISTICS_URL);
+		JMXUtil.registerBulkReader(4);
 		Runtime.getRuntime().addShutdownHook(new Thread() {
 			@Override public void run() {
 				try {
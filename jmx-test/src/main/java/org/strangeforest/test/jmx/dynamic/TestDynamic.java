@@ -1,11 +1,12 @@
 package org.strangeforest.test.jmx.dynamic;
 
 import java.util.*;
+import java.util.concurrent.atomic.*;
 import javax.management.*;
 
 public class TestDynamic implements DynamicMBean {
 
-	private int count;
+	private final AtomicInteger count = new AtomicInteger();
 
 	@Override public MBeanInfo getMBeanInfo() {
 		return new MBeanInfo(
@@ -25,7 +26,7 @@ public class TestDynamic implements DynamicMBean {
 
 	@Override public Object getAttribute(String attribute) throws AttributeNotFoundException, MBeanException, ReflectionException {
 		switch (attribute) {
-			case "Count": return count;
+			case "Count": return count.get();
 			default: throw new IllegalArgumentException("Unknown attribute: " + attribute);
 		}
 	}
@@ -34,13 +35,13 @@ public class TestDynamic implements DynamicMBean {
 		String name = attribute.getName();
 		Object value = attribute.getValue();
 		switch (name) {
-			case "Count": count = (Integer)value; break;
+			case "Count": count.set((Integer)value); break;
 			default: throw new IllegalArgumentException("Unknown attribute: " + name);
 		}
 	}
 
 	@Override public AttributeList getAttributes(String[] attributes) {
-		return new AttributeList(Arrays.asList(new Attribute("Count", count)));
+		return new AttributeList(Arrays.asList(new Attribute("Count", count.get())));
 	}
 
 	@Override public AttributeList setAttributes(AttributeList attributes) {
@@ -57,8 +58,8 @@ public class TestDynamic implements DynamicMBean {
 
 	@Override public Object invoke(String actionName, Object[] params, String[] signature) throws MBeanException, ReflectionException {
 		switch (actionName) {
-			case "inc": count++; return null;
-			case "dec": count--; return null;
+			case "inc": count.incrementAndGet(); return null;
+			case "dec": count.decrementAndGet(); return null;
 			default: throw new IllegalArgumentException("Unknown operation: " + actionName);
 		}
 	}
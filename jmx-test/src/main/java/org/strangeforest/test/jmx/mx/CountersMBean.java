@@ -1,5 +1,6 @@
 package org.strangeforest.test.jmx.mx;
 
+import java.util.*;
 import javax.management.*;
 
 import org.strangeforest.test.jmx.*;
@@ -8,5 +9,6 @@ import org.strangeforest.test.jmx.*;
 public interface CountersMBean {
 
 	CounterList getCounters();
+	List<Counter> getCounters(int offset, int limit);
 	int getTotal();
 }
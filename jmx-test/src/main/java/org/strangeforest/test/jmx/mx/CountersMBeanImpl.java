@@ -1,5 +1,7 @@
 package org.strangeforest.test.jmx.mx;
 
+import java.util.*;
+
 import org.strangeforest.test.jmx.*;
 
 public class CountersMBeanImpl implements CountersMBean {
@@ -22,6 +24,10 @@ public class CountersMBeanImpl implements CountersMBean {
 		return counters;
 	}
 
+	@Override public List<Counter> getCounters(int offset, int limit) {
+		return counters.getCounters(offset, limit);
+	}
+
 	@Override public int getTotal() {
 		return counters.getTotal();
 	}
@@ -1,6 +1,7 @@
 package org.strangeforest.test.jmx.open;
 
 import java.util.*;
+import java.util.concurrent.atomic.*;
 import javax.management.*;
 import javax.management.openmbean.*;
 
@@ -8,20 +9,27 @@ import org.strangeforest.test.jmx.*;
 
 public class TestOpen implements DynamicMBean {
 
-	private int count;
-	private final CompositeType counterType;
+	private static final String[] COUNTER_ITEM_NAMES = new String[] {"name", "type", "count"};
+	private static final CompositeType COUNTER_TYPE;
 
-	public TestOpen() throws OpenDataException {
-		counterType = new CompositeType(Counter.class.getName(), "Counter", new String[] {"name", "type", "count"}, new String[] {"Name", "Type", "Count"}, new OpenType[] {SimpleType.STRING, SimpleType.STRING, SimpleType.INTEGER});
+	static {
+		try {
+			COUNTER_TYPE = new CompositeType(Counter.class.getName(), "Counter", COUNTER_ITEM_NAMES, new String[] {"Name", "Type", "Count"}, new OpenType[] {SimpleType.STRING, SimpleType.STRING, SimpleType.INTEGER});
+		}
+		catch (OpenDataException ex) {
+			throw new ExceptionInInitializerError(ex);
+		}
 	}
 
+	private final AtomicInteger count = new AtomicInteger();
+
 	@Override public MBeanInfo getMBeanInfo() {
 		return new OpenMBeanInfoSupport(
 			getClass().getName(),
 			"Test Open",
 			new OpenMBeanAttributeInfo[] {
 				new OpenMBeanAttributeInfoSupport("Count", "Count", SimpleType.INTEGER, true, true, false),
-				new OpenMBeanAttributeInfoSupport("Counter", "Counter", counterType, true, false, false)
+				new OpenMBeanAttributeInfoSupport("Counter", "Counter", COUNTER_TYPE, true, false, false)
 			},
 			null,
 			new OpenMBeanOperationInfoSupport[] {
@@ -44,7 +52,7 @@ public class TestOpen implements DynamicMBean {
 		String name = attribute.getName();
 		Object value = attribute.getValue();
 		switch (name) {
-			case "Count": count = (Integer)value; break;
+			case "Count": count.set((Integer)value); break;
 			default: throw new IllegalArgumentException("Unknown attribute: " + name);
 		}
 	}
@@ -57,12 +65,12 @@ public class TestOpen implements DynamicMBean {
 	}
 
 	private int getCount() {
-		return count;
+		return count.get();
 	}
 
 	private CompositeDataSupport getCounter() {
 		try {
-			return new CompositeDataSupport(counterType, new String[] {"name", "type", "count"}, new Object[] {"count", "counter", count});
+			return new CompositeDataSupport(COUNTER_TYPE, COUNTER_ITEM_NAMES, new Object[] {"count", "counter", count.get()});
 		}
 		catch (OpenDataException ex) {
 			JMRuntimeException jmEx = new JMRuntimeException(ex.getMessage());
@@ -85,8 +93,8 @@ public class TestOpen implements DynamicMBean {
 
 	@Override public Object invoke(String actionName, Object[] params, String[] signature) throws MBeanException, ReflectionException {
 		switch (actionName) {
-			case "inc": count++; return null;
-			case "dec": count--; return null;
+			case "inc": count.incrementAndGet(); return null;
+			case "dec": count.decrementAndGet(); return null;
 			default: throw new IllegalArgumentException("Unknown operation: " + actionName);
 		}
 	}
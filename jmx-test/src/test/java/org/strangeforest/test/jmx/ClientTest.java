@@ -6,6 +6,7 @@ import javax.management.openmbean.*;
 import javax.management.remote.*;
 
 import org.junit.*;
+import org.strangeforest.test.jmx.mx.*;
 import org.strangeforest.test.jmx.standard.*;
 
 import static org.hamcrest.Matchers.*;
@@ -89,6 +90,10 @@ public class ClientTest {
 
 		CompositeData[] counters = (CompositeData[])counterList.get("counters");
 		assertThat(counters.length, is(equalTo(3)));
+
+		CompositeData[] page = (CompositeData[])conn.invoke(objectName, "getCounters", new Object[] {1, 5}, new String[] {"int", "int"});
+		assertThat(page.length, is(equalTo(2)));
+		assertThat((String)page[0].get("name"), is(equalTo("Mercedes")));
 	}
 
 	private void dynamicClientCountTest(ObjectName objectName) throws InstanceNotFoundException, AttributeNotFoundException, InvalidAttributeValueException, MBeanException, ReflectionException, IOException {
@@ -0,0 +1,79 @@
+package org.strangeforest.test.jmx;
+
+import java.util.*;
+import java.util.concurrent.*;
+import javax.management.*;
+import javax.management.openmbean.*;
+
+import org.junit.*;
+import org.strangeforest.test.jmx.mx.*;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class CounterListTest {
+
+	@Test
+	public void shouldCountConcurrentlyAndMapToOpenData() throws Exception {
+		CounterList counterList = new CounterList(1000);
+		for (int i = 0; i < 1000; i++)
+			counterList.add(counterList.register("Counter" + i, "Car"), i);
+		int slot = counterList.register("Counter7", "Truck");
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				futures.add(executor.submit(() -> {
+					for (int j = 0; j < 10000; j++)
+						counterList.increment(slot);
+				}));
+			}
+			for (Future<?> future : futures)
+				future.get();
+		}
+		finally {
+			executor.shutdown();
+		}
+		assertThat(counterList.get(slot), is(equalTo(40007)));
+		assertThat(counterList.getTotal(), is(equalTo(499500 + 40000)));
+
+		MBeanServer server = MBeanServerFactory.newMBeanServer();
+		ObjectName objectName = new ObjectName(Server.TEST_MX_URL);
+		server.registerMBean(new CountersMBeanImpl(counterList), objectName);
+		CompositeData view = (CompositeData)server.getAttribute(objectName, "Counters");
+		assertThat((Integer)view.get("total"), is(equalTo(539500)));
+		CompositeData[] counters = (CompositeData[])view.get("counters");
+		assertThat(counters.length, is(equalTo(1000)));
+		assertThat(counters[7].get("name"), is(equalTo("Counter7")));
+		assertThat(counters[7].get("type"), is(equalTo("Car")));
+		assertThat(counters[7].get("count"), is(equalTo(40007)));
+
+		counterList.setCounters(Collections.singletonList(new Counter("Counter7", "Car", 1)));
+		try {
+			counterList.increment(slot);
+			fail("Slot of replaced counters accepted.");
+		}
+		catch (IllegalStateException expected) {}
+		int newSlot = counterList.register("Counter7", "Car");
+		counterList.increment(newSlot);
+		assertThat(counterList.get(newSlot), is(equalTo(2)));
+		assertThat(counterList.getTotal(), is(equalTo(2)));
+	}
+
+	@Test
+	public void shouldGrowBeyondInitialCapacity() {
+		CounterList counterList = new CounterList(new Counter("BMW", "Car", 5));
+		int slot = counterList.register("FAP", "Truck");
+		counterList.add(slot, 2);
+		for (int i = 0; i < 1000; i++)
+			counterList.increment(counterList.register("Counter" + i, "Car"));
+		assertThat(counterList.size(), is(equalTo(1002)));
+		assertThat(counterList.get(slot), is(equalTo(2)));
+		assertThat(counterList.getTotal(), is(equalTo(1007)));
+		assertThat(counterList.getCounters(1, 2).get(1).getName(), is(equalTo("Counter0")));
+
+		CounterList empty = new CounterList();
+		empty.increment(empty.register("BMW", "Car"));
+		assertThat(empty.getTotal(), is(equalTo(1)));
+	}
+}
@@ -0,0 +1,250 @@
+package org.strangeforest.jmx;
+
+import java.util.*;
+import java.util.concurrent.*;
+import javax.management.*;
+
+/**
+ * <p>Notification emitter that never blocks the thread sending a notification on its listeners. Each listener has its
+ * own bounded ring buffer, and {@link #sendNotification(Notification)} only appends the notification to the buffers.
+ * Listeners are called, and their filters applied, on a pool of daemon threads shared by all the emitters, which
+ * drains each buffer in batches so that a slow listener does not starve the others. Exceptions and linkage errors
+ * thrown by listeners and filters are counted as failed notifications and do not stop the delivery to the listener.
+ * Other errors, like <code>VirtualMachineError</code>, are counted as failed too, but are rethrown to the dispatcher
+ * thread once the rest of the listener buffer is rescheduled.</p>
+ * <p>When a listener falls behind and its buffer fills up, notifications are dropped according to the
+ * {@link OverflowPolicy}. Sent, delivered, dropped and failed notifications, the current queue depth and the dispatch
+ * latency are available through {@link #getStatistics()}, which can itself be exposed using
+ * {@link JMXUtil#register(Object, String)}.</p>
+ */
+public class AsyncNotificationEmitter implements NotificationEmitter {
+
+	/**
+	 * What happens to a notification sent to a listener whose buffer is full.
+	 */
+	public enum OverflowPolicy {
+		/** The sent notification is dropped. */
+		DROP_NEWEST,
+		/** The oldest buffered notification is dropped to make room for the sent one. */
+		DROP_OLDEST,
+		/** Like {@link #DROP_NEWEST}, and once the buffer is half full only every <i>sampleRate</i>th notification is buffered. */
+		SAMPLE
+	}
+
+	public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+	public static final int DEFAULT_SAMPLE_RATE = 8;
+
+	private static final int DISPATCH_BATCH_SIZE = 64;
+	private static final ExecutorService DISPATCHER = ManagementExecutors.newDaemonPool("jmx-notification-dispatcher", Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+	private final MBeanNotificationInfo[] notificationInfo;
+	private final int queueCapacity;
+	private final OverflowPolicy overflowPolicy;
+	private final int sampleRate;
+	private final List<ListenerQueue> listenerQueues = new CopyOnWriteArrayList<>();
+	private final NotificationDispatchStatistics statistics = new NotificationDispatchStatistics(this);
+
+	public AsyncNotificationEmitter(MBeanNotificationInfo... notificationInfo) {
+		this(DEFAULT_QUEUE_CAPACITY, OverflowPolicy.DROP_NEWEST, notificationInfo);
+	}
+
+	public AsyncNotificationEmitter(int queueCapacity, OverflowPolicy overflowPolicy, MBeanNotificationInfo... notificationInfo) {
+		this(queueCapacity, overflowPolicy, DEFAULT_SAMPLE_RATE, notificationInfo);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param queueCapacity    the capacity of the buffer of each listener, rounded up to a power of two.
+	 * @param overflowPolicy   the policy applied when a listener buffer is full.
+	 * @param sampleRate       the rate at which notifications are sampled with {@link OverflowPolicy#SAMPLE} policy.
+	 * @param notificationInfo the descriptions of the emitted notifications.
+	 */
+	public AsyncNotificationEmitter(int queueCapacity, OverflowPolicy overflowPolicy, int sampleRate, MBeanNotificationInfo... notificationInfo) {
+		if (queueCapacity <= 0 || queueCapacity > 1 << 30)
+			throw new IllegalArgumentException("Invalid queue capacity: " + queueCapacity);
+		if (sampleRate <= 0)
+			throw new IllegalArgumentException("Invalid sample rate: " + sampleRate);
+		this.notificationInfo = notificationInfo.clone();
+		this.queueCapacity = queueCapacity == 1 ? 1 : Integer.highestOneBit(queueCapacity - 1) << 1;
+		this.overflowPolicy = Objects.requireNonNull(overflowPolicy, "No overflow policy specified.");
+		this.sampleRate = sampleRate;
+	}
+
+	public NotificationDispatchStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Buffers the notification for each listener, without waiting for any of them.
+	 *
+	 * @param notification the notification to send.
+	 */
+	public void sendNotification(Notification notification) {
+		statistics.sent();
+		if (listenerQueues.isEmpty())
+			return;
+		long now = System.nanoTime();
+		for (ListenerQueue listenerQueue : listenerQueues)
+			listenerQueue.offer(notification, now);
+	}
+
+	@Override public void addNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback) {
+		Objects.requireNonNull(listener, "No listener specified.");
+		listenerQueues.add(new ListenerQueue(listener, filter, handback));
+	}
+
+	@Override public void removeNotificationListener(NotificationListener listener) throws ListenerNotFoundException {
+		removeListenerQueues(listener, false, null, null);
+	}
+
+	@Override public void removeNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback) throws ListenerNotFoundException {
+		removeListenerQueues(listener, true, filter, handback);
+	}
+
+	private void removeListenerQueues(NotificationListener listener, boolean exact, NotificationFilter filter, Object handback) throws ListenerNotFoundException {
+		List<ListenerQueue> removed = new ArrayList<>();
+		for (ListenerQueue listenerQueue : listenerQueues) {
+			if (listenerQueue.listener == listener && (!exact || (listenerQueue.filter == filter && listenerQueue.handback == handback))) {
+				removed.add(listenerQueue);
+				if (exact)
+					break;
+			}
+		}
+		if (removed.isEmpty())
+			throw new ListenerNotFoundException("Listener not registered" + (exact ? " with specified filter and handback" : ""));
+		listenerQueues.removeAll(removed);
+		for (ListenerQueue listenerQueue : removed)
+			listenerQueue.clear();
+	}
+
+	@Override public MBeanNotificationInfo[] getNotificationInfo() {
+		return notificationInfo.length == 0 ? notificationInfo : notificationInfo.clone();
+	}
+
+	int getListenerCount() {
+		return listenerQueues.size();
+	}
+
+	int getQueueDepth() {
+		int depth = 0;
+		for (ListenerQueue listenerQueue : listenerQueues)
+			depth += listenerQueue.size();
+		return depth;
+	}
+
+
+	// Listener queue
+
+	/**
+	 * Ring buffer of the notifications pending for a listener. At most one drain task of a queue is submitted to the
+	 * dispatcher at a time, so a listener is never called concurrently and the dispatcher queue is bounded by the number
+	 * of listeners.
+	 */
+	private final class ListenerQueue implements Runnable {
+
+		private final NotificationListener listener;
+		private final NotificationFilter filter;
+		private final Object handback;
+		private final Notification[] notifications = new Notification[queueCapacity];
+		private final long[] enqueueTimes = new long[queueCapacity];
+		private final int mask = queueCapacity - 1;
+		private int head;
+		private int size;
+		private long sampleCount;
+		private boolean scheduled;
+		private boolean cleared;
+
+		ListenerQueue(NotificationListener listener, NotificationFilter filter, Object handback) {
+			this.listener = listener;
+			this.filter = filter;
+			this.handback = handback;
+		}
+
+		void offer(Notification notification, long now) {
+			synchronized (this) {
+				if (cleared)
+					return;
+				if (overflowPolicy == OverflowPolicy.SAMPLE && size >= queueCapacity >>> 1 && sampleCount++ % sampleRate != 0) {
+					statistics.dropped();
+					return;
+				}
+				if (size == queueCapacity) {
+					statistics.dropped();
+					if (overflowPolicy != OverflowPolicy.DROP_OLDEST)
+						return;
+					notifications[head] = null;
+					head = (head + 1) & mask;
+					size--;
+				}
+				int tail = (head + size) & mask;
+				notifications[tail] = notification;
+				enqueueTimes[tail] = now;
+				size++;
+				if (scheduled)
+					return;
+				scheduled = true;
+			}
+			DISPATCHER.execute(this);
+		}
+
+		@Override public void run() {
+			for (int i = 0; i < DISPATCH_BATCH_SIZE; i++) {
+				Notification notification;
+				long enqueueTime;
+				synchronized (this) {
+					if (size == 0 || cleared) {
+						scheduled = false;
+						return;
+					}
+					notification = notifications[head];
+					enqueueTime = enqueueTimes[head];
+					notifications[head] = null;
+					head = (head + 1) & mask;
+					size--;
+				}
+				try {
+					deliver(notification, enqueueTime);
+				}
+				catch (Error err) {
+					statistics.failed();
+					reschedule();
+					throw err;
+				}
+			}
+			DISPATCHER.execute(this);
+		}
+
+		private void deliver(Notification notification, long enqueueTime) {
+			try {
+				if (filter == null || filter.isNotificationEnabled(notification)) {
+					listener.handleNotification(notification, handback);
+					statistics.delivered(System.nanoTime() - enqueueTime);
+				}
+			}
+			catch (Exception | LinkageError ex) {
+				statistics.failed();
+			}
+		}
+
+		private void reschedule() {
+			synchronized (this) {
+				if (size == 0 || cleared) {
+					scheduled = false;
+					return;
+				}
+			}
+			DISPATCHER.execute(this);
+		}
+
+		synchronized int size() {
+			return size;
+		}
+
+		synchronized void clear() {
+			cleared = true;
+			Arrays.fill(notifications, null);
+			size = 0;
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package org.strangeforest.jmx;
+
+import static org.strangeforest.jmx.MBeanUtil.*;
+
+/**
+ * Getter and setter of a single MBean attribute, resolved once when the MBean is created. Reading or writing the
+ * attribute through an accessor does not involve any method or class lookup.
+ */
+final class AttributeAccessor {
+
+	private final String name;
+	private final Class<?> type;
+	private final Class<?> valueType;
+	private final Invoker getter;
+	private final Invoker setter;
+	private final long cacheMillis;
+
+	AttributeAccessor(String name, Class<?> type, Invoker getter, Invoker setter) {
+		this(name, type, getter, setter, 0L);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param name        the attribute name.
+	 * @param type        the attribute type.
+	 * @param getter      the bound getter, or <code>null</code> if the attribute is not readable.
+	 * @param setter      the bound setter, or <code>null</code> if the attribute is not writable.
+	 * @param cacheMillis the interval the read value is cached for, 0 if it is not cached.
+	 */
+	AttributeAccessor(String name, Class<?> type, Invoker getter, Invoker setter, long cacheMillis) {
+		if (cacheMillis < 0L)
+			throw new ManagementException("Invalid cache interval for attribute " + name + ": " + cacheMillis);
+		this.name = name;
+		this.type = type;
+		this.valueType = fromPrimitiveToObject(type);
+		this.getter = getter;
+		this.setter = setter;
+		this.cacheMillis = getter != null ? cacheMillis : 0L;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Class<?> getType() {
+		return type;
+	}
+
+	public boolean isReadable() {
+		return getter != null;
+	}
+
+	public boolean isWritable() {
+		return setter != null;
+	}
+
+	public boolean isCached() {
+		return cacheMillis > 0L;
+	}
+
+	public long getCacheMillis() {
+		return cacheMillis;
+	}
+
+	public boolean isAssignableFrom(Object value) {
+		return valueType.isInstance(value);
+	}
+
+	public Object get(Object object) throws ReflectiveOperationException {
+		return getter.invoke(object, Invoker.NO_PARAMS);
+	}
+
+	public void set(Object object, Object value) throws ReflectiveOperationException {
+		setter.invoke(object, new Object[] {value});
+	}
+}
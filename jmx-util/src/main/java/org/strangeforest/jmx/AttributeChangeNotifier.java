@@ -0,0 +1,90 @@
+package org.strangeforest.jmx;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import javax.management.*;
+
+/**
+ * <p>Emits <code>AttributeChangeNotification</code>s for the notifying attributes of a managed object. Each attribute
+ * is polled once per its window on the refresher threads shared by all the MBeans, as getters are application code
+ * which may be slow. Application threads changing the values are never involved. Changes within a window are
+ * coalesced into a single notification. If the class is annotated with
+ * {@link org.strangeforest.jmx.annotation.SynchronizedAttributes}, an attribute is polled holding the monitor of the
+ * managed object. A getter failure, including an error, skips the poll and is counted by the statistics.</p>
+ * <p>Notifications are delivered to listeners asynchronously through per-listener bounded queues, so a slow listener
+ * cannot hold back polling or other listeners.</p>
+ */
+final class AttributeChangeNotifier extends AsyncNotificationEmitter {
+
+	private final Object object;
+	private final boolean synchronizedAttributes;
+	private final List<NotifyingAttribute> attributes;
+	private final AtomicLong sequence = new AtomicLong();
+	private final List<ScheduledFuture<?>> pollers = new ArrayList<>();
+	private Object source;
+
+	AttributeChangeNotifier(Object object, MBeanMetadata metadata) {
+		super(metadata.getMBeanInfo().getNotifications());
+		this.object = object;
+		synchronizedAttributes = metadata.isSynchronizedAttributes();
+		this.attributes = metadata.getNotifyingAttributes();
+	}
+
+	/**
+	 * Starts polling the attributes.
+	 *
+	 * @param source the source of the notifications, usually the name of the MBean.
+	 */
+	synchronized void start(Object source) {
+		if (!pollers.isEmpty())
+			return;
+		this.source = source;
+		for (NotifyingAttribute attribute : attributes) {
+			Poller poller = new Poller(attribute.getAccessor());
+			pollers.add(ManagementExecutors.REFRESHER.scheduleWithFixedDelay(poller, attribute.getWindowMillis(), attribute.getWindowMillis(), TimeUnit.MILLISECONDS));
+		}
+	}
+
+	synchronized void stop() {
+		for (ScheduledFuture<?> poller : pollers)
+			poller.cancel(false);
+		pollers.clear();
+	}
+
+	private final class Poller implements Runnable {
+
+		private final AttributeAccessor accessor;
+		private Object notifiedValue;
+
+		Poller(AttributeAccessor accessor) {
+			this.accessor = accessor;
+			notifiedValue = read();
+		}
+
+		@Override public void run() {
+			Object value = read();
+			if (Objects.deepEquals(value, notifiedValue))
+				return;
+			sendNotification(new AttributeChangeNotification(source, sequence.incrementAndGet(), System.currentTimeMillis(),
+				"Attribute " + accessor.getName() + " changed", accessor.getName(), accessor.getType().getName(), notifiedValue, value));
+			notifiedValue = value;
+		}
+
+		private Object read() {
+			try {
+				if (synchronizedAttributes) {
+					synchronized (object) {
+						return accessor.get(object);
+					}
+				}
+				return accessor.get(object);
+			}
+			catch (Throwable th) {
+				// an error escaping the poller would silently cancel its scheduled task
+				getStatistics().failedPoll();
+				return notifiedValue;
+			}
+		}
+	}
+}
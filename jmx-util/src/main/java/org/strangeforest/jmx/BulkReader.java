@@ -0,0 +1,220 @@
+package org.strangeforest.jmx;
+
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.management.*;
+import javax.management.openmbean.*;
+
+import org.strangeforest.jmx.annotation.*;
+import org.strangeforest.jmx.metric.*;
+
+/**
+ * <p>Reads the attributes of all the MBeans matching an <code>ObjectName</code> pattern in a single operation, so
+ * remote clients scraping many MBeans make one round trip instead of a <code>queryNames</code> call followed by a
+ * <code>getAttributes</code> call per MBean. The matching MBeans are split in chunks read in parallel on a bounded
+ * pool of daemon threads, the calling thread reading the first chunk itself.</p>
+ * <p>The result is a table with a row per attribute value, indexed by the MBean <code>name</code> and the
+ * <code>attribute</code>. As open data rows have a fixed type, values are returned as strings together with the
+ * class name of the attribute value. <code>CompositeData</code> values are flattened to a row per item, named
+ * <code>attribute.item</code>, unless an attribute or another item row of the MBean already has that name. As with
+ * <code>getAttributes</code>, attributes that do not exist or whose getter fails and MBeans unregistered during the
+ * read are omitted, and attributes requested more than once are read once.</p>
+ * <p>The reader can be registered in the default <code>MBeanServer</code> using
+ * {@link JMXUtil#registerBulkReader(int)}.</p>
+ */
+@MBeanDescription("Bulk attribute reader")
+public final class BulkReader {
+
+	public static final String NAME = "org.strangeforest.jmx:type=BulkReader";
+
+	private static final String[] ROW_ITEM_NAMES = {"name", "attribute", "type", "value"};
+	private static final TabularType VALUES_TYPE;
+
+	static {
+		try {
+			CompositeType rowType = new CompositeType(BulkReader.class.getName() + ".Value", "Attribute value", ROW_ITEM_NAMES,
+				new String[] {"MBean name", "Attribute name", "Value class name", "Value"}, new OpenType[] {SimpleType.STRING, SimpleType.STRING, SimpleType.STRING, SimpleType.STRING});
+			VALUES_TYPE = new TabularType(BulkReader.class.getName() + ".Values", "Attribute values", rowType, new String[] {"name", "attribute"});
+		}
+		catch (OpenDataException ex) {
+			throw new ExceptionInInitializerError(ex);
+		}
+	}
+
+	private final MBeanServer server;
+	private final int threads;
+	private final ExecutorService executor;
+	private final Histogram readDuration = new Histogram();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param server  the MBeanServer to read the MBeans from.
+	 * @param threads the maximum number of threads reading MBeans in parallel, including the calling one.
+	 */
+	public BulkReader(MBeanServer server, int threads) {
+		this.server = Objects.requireNonNull(server, "No MBeanServer specified.");
+		if (threads <= 0)
+			throw new IllegalArgumentException("Invalid threads: " + threads);
+		this.threads = threads;
+		executor = threads > 1 ? ManagementExecutors.newDaemonPool("jmx-bulk-reader", threads - 1) : null;
+	}
+
+	public static TabularType getValuesType() {
+		return VALUES_TYPE;
+	}
+
+	@ManagedAttribute(description = "Maximum number of threads reading MBeans in parallel")
+	public int getThreads() {
+		return threads;
+	}
+
+	@ManagedAttribute(description = "Read duration in microseconds")
+	public CompositeData getReadDuration() {
+		return readDuration.getStatistics();
+	}
+
+	@ManagedOperation(impact = Impact.ACTION, description = "Resets the read duration")
+	public void reset() {
+		readDuration.reset();
+	}
+
+	/**
+	 * Reads the attributes of the MBeans matching a pattern.
+	 *
+	 * @param pattern    the <code>ObjectName</code> pattern of the MBeans.
+	 * @param attributes the names of the attributes to read, or <code>null</code> or empty to read all the readable
+	 *                   attributes of each MBean.
+	 * @return the attribute values, see {@link #getValuesType()}.
+	 * @throws IllegalArgumentException if the pattern is malformed.
+	 */
+	@ManagedOperation(impact = Impact.INFO, description = "Reads the attributes (all if none specified) of the MBeans matching the pattern")
+	public TabularData read(String pattern, String[] attributes) {
+		long startTime = System.nanoTime();
+		ObjectName namePattern;
+		try {
+			namePattern = new ObjectName(pattern);
+		}
+		catch (MalformedObjectNameException ex) {
+			throw new IllegalArgumentException("Invalid pattern: " + pattern, ex);
+		}
+		String[] attributeNames = attributes != null && attributes.length > 0 ? new LinkedHashSet<>(Arrays.asList(attributes)).toArray(new String[0]) : null;
+		List<ObjectName> names = new ArrayList<>(server.queryNames(namePattern, null));
+		TabularDataSupport values = new TabularDataSupport(VALUES_TYPE, Math.max(16, names.size() * 8), 0.75f);
+		int chunks = executor != null ? Math.min(threads, names.size()) : 1;
+		if (chunks <= 1)
+			addRows(values, readChunk(names, attributeNames));
+		else {
+			int chunkSize = (names.size() + chunks - 1) / chunks;
+			List<Future<List<CompositeData>>> futures = new ArrayList<>(chunks - 1);
+			for (int from = chunkSize; from < names.size(); from += chunkSize) {
+				List<ObjectName> chunk = names.subList(from, Math.min(from + chunkSize, names.size()));
+				futures.add(executor.submit(() -> readChunk(chunk, attributeNames)));
+			}
+			addRows(values, readChunk(names.subList(0, chunkSize), attributeNames));
+			for (Future<List<CompositeData>> future : futures)
+				addRows(values, getRows(future));
+		}
+		readDuration.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
+		return values;
+	}
+
+	private List<CompositeData> readChunk(List<ObjectName> names, String[] attributeNames) {
+		List<CompositeData> rows = new ArrayList<>();
+		for (ObjectName name : names) {
+			AttributeList attributeList;
+			try {
+				attributeList = server.getAttributes(name, attributeNames != null ? attributeNames : getReadableAttributes(name));
+			}
+			catch (JMException | RuntimeException ignored) {
+				continue;
+			}
+			String canonicalName = name.getCanonicalName();
+			Set<String> rowNames = null;
+			for (Attribute attribute : attributeList.asList()) {
+				Object value = attribute.getValue();
+				if (value instanceof CompositeData) {
+					if (rowNames == null)
+						rowNames = getAttributeNames(attributeList);
+					CompositeData compositeData = (CompositeData)value;
+					for (String item : compositeData.getCompositeType().keySet()) {
+						String rowName = attribute.getName() + '.' + item;
+						if (rowNames.add(rowName))
+							rows.add(toRow(canonicalName, rowName, compositeData.get(item)));
+					}
+				}
+				else
+					rows.add(toRow(canonicalName, attribute.getName(), value));
+			}
+		}
+		return rows;
+	}
+
+	private static Set<String> getAttributeNames(AttributeList attributeList) {
+		Set<String> attributeNames = new HashSet<>();
+		for (Attribute attribute : attributeList.asList())
+			attributeNames.add(attribute.getName());
+		return attributeNames;
+	}
+
+	private static void addRows(TabularDataSupport values, List<CompositeData> rows) {
+		for (CompositeData row : rows)
+			values.put(row);
+	}
+
+	private String[] getReadableAttributes(ObjectName name) throws JMException {
+		MBeanAttributeInfo[] attributeInfos = server.getMBeanInfo(name).getAttributes();
+		List<String> attributeNames = new ArrayList<>(attributeInfos.length);
+		for (MBeanAttributeInfo attributeInfo : attributeInfos) {
+			if (attributeInfo.isReadable())
+				attributeNames.add(attributeInfo.getName());
+		}
+		return attributeNames.toArray(new String[attributeNames.size()]);
+	}
+
+	private static List<CompositeData> getRows(Future<List<CompositeData>> future) {
+		try {
+			return future.get();
+		}
+		catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException)cause;
+			if (cause instanceof Error)
+				throw (Error)cause;
+			throw new ManagementException((Exception)cause);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			JMRuntimeException jmEx = new JMRuntimeException("Interrupted while reading MBeans");
+			jmEx.initCause(ex);
+			throw jmEx;
+		}
+	}
+
+	private static CompositeData toRow(String name, String attribute, Object value) {
+		try {
+			return new CompositeDataSupport(VALUES_TYPE.getRowType(), ROW_ITEM_NAMES, new Object[] {name, attribute, value != null ? value.getClass().getName() : null, toString(value)});
+		}
+		catch (OpenDataException ex) {
+			JMRuntimeException jmEx = new JMRuntimeException(ex.getMessage());
+			jmEx.initCause(ex);
+			throw jmEx;
+		}
+	}
+
+	private static String toString(Object value) {
+		if (value == null || !value.getClass().isArray())
+			return value != null ? value.toString() : null;
+		if (value instanceof Object[])
+			return Arrays.deepToString((Object[])value);
+		StringBuilder sb = new StringBuilder().append('[');
+		for (int i = 0, length = Array.getLength(value); i < length; i++) {
+			if (i > 0)
+				sb.append(", ");
+			sb.append(Array.get(value, i));
+		}
+		return sb.append(']').toString();
+	}
+}
@@ -0,0 +1,73 @@
+package org.strangeforest.jmx;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * <p>Value of a managed object attribute cached for the {@link org.strangeforest.jmx.annotation.ManagedAttribute#cacheMillis()}
+ * interval. Refreshes are single-flight: when the value expires, only one reader calls the getter. Concurrent readers
+ * get the expired value meanwhile if there is one, or wait for the refresh otherwise.</p>
+ * <p>Failures of the getter are not cached. {@link #invalidate()} also discards the value of a refresh in flight, so a
+ * value read before a set is not cached after it.</p>
+ */
+final class CachedAttribute {
+
+	private final AttributeAccessor accessor;
+	private final long cacheNanos;
+	private final Lock refreshLock = new ReentrantLock();
+	private final AtomicLong version = new AtomicLong();
+	private volatile Entry entry;
+
+	CachedAttribute(AttributeAccessor accessor) {
+		this.accessor = accessor;
+		this.cacheNanos = TimeUnit.MILLISECONDS.toNanos(accessor.getCacheMillis());
+	}
+
+	public Object get(Object object) throws ReflectiveOperationException {
+		Entry entry = this.entry;
+		if (entry != null) {
+			if (!entry.isExpired())
+				return entry.value;
+			if (!refreshLock.tryLock())
+				return entry.value;
+		}
+		else
+			refreshLock.lock();
+		try {
+			entry = this.entry;
+			if (entry != null && !entry.isExpired())
+				return entry.value;
+			long version = this.version.get();
+			Object value = accessor.get(object);
+			this.entry = new Entry(value, System.nanoTime() + cacheNanos);
+			// an invalidation during the refresh may have cleared the entry before the stale value was stored
+			if (this.version.get() != version)
+				this.entry = null;
+			return value;
+		}
+		finally {
+			refreshLock.unlock();
+		}
+	}
+
+	public void invalidate() {
+		version.incrementAndGet();
+		entry = null;
+	}
+
+	private static final class Entry {
+
+		private final Object value;
+		private final long expiresAt;
+
+		Entry(Object value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+
+		boolean isExpired() {
+			return System.nanoTime() - expiresAt >= 0L;
+		}
+	}
+}
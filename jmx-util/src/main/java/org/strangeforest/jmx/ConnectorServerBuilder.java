@@ -0,0 +1,146 @@
+package org.strangeforest.jmx;
+
+import java.io.*;
+import java.lang.management.*;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.management.*;
+import javax.management.remote.*;
+
+/**
+ * <p>Builds JMX connector servers that invoke the MBeanServer on threads of their own, instead of the threads of the
+ * connector handling the client connections. A connector server built with {@link Threads#PLATFORM} threads limits
+ * the number of concurrently invoked MBeans and queues the remaining requests, while one built with
+ * {@link Threads#VIRTUAL} threads starts a virtual thread per request, if the JDK supports them.</p>
+ * <p>The threads of the connector itself are not affected, for example the RMI connector still reads each request on
+ * its own connection thread, which waits for the invocation to complete. Invocations on other threads do not run in
+ * the access control context of the connection, so connector servers with authentication should use
+ * {@link Threads#CONNECTION} threads.</p>
+ * <p>Active and queued requests of all the connector servers built by a builder are counted by its
+ * {@link #getStatistics() statistics}.</p>
+ */
+public final class ConnectorServerBuilder {
+
+	/**
+	 * Threads invoking the MBeanServer.
+	 */
+	public enum Threads {
+		/** Threads of the connector handling the client connections */
+		CONNECTION,
+		/** Fixed number of platform threads */
+		PLATFORM,
+		/** Virtual thread per request, or platform threads if the JDK does not support virtual threads */
+		VIRTUAL
+	}
+
+	public static final int DEFAULT_PLATFORM_THREADS = 32;
+
+	private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutorFactory();
+
+	private final JMXServiceURL url;
+	private MBeanServer mBeanServer;
+	private final Map<String, Object> environment = new HashMap<>();
+	private Threads threads = Threads.CONNECTION;
+	private int platformThreads = DEFAULT_PLATFORM_THREADS;
+	private final ConnectorStatistics statistics = new ConnectorStatistics();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param url the address of the connector server.
+	 */
+	public ConnectorServerBuilder(JMXServiceURL url) {
+		this.url = Objects.requireNonNull(url, "No URL specified.");
+	}
+
+	/**
+	 * Sets the MBeanServer exposed by the connector server, the platform MBeanServer by default.
+	 */
+	public ConnectorServerBuilder mBeanServer(MBeanServer mBeanServer) {
+		this.mBeanServer = mBeanServer;
+		return this;
+	}
+
+	/**
+	 * Adds an attribute of the connector server environment.
+	 */
+	public ConnectorServerBuilder environment(String name, Object value) {
+		environment.put(name, value);
+		return this;
+	}
+
+	public ConnectorServerBuilder threads(Threads threads) {
+		this.threads = Objects.requireNonNull(threads, "No threads specified.");
+		return this;
+	}
+
+	/**
+	 * Sets the number of {@link Threads#PLATFORM} threads, {@link #DEFAULT_PLATFORM_THREADS} by default.
+	 */
+	public ConnectorServerBuilder platformThreads(int platformThreads) {
+		if (platformThreads <= 0)
+			throw new IllegalArgumentException("Invalid number of platform threads: " + platformThreads);
+		this.platformThreads = platformThreads;
+		return this;
+	}
+
+	public ConnectorStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Tells whether the JDK supports virtual threads.
+	 *
+	 * @return <code>true</code> if {@link Threads#VIRTUAL} threads are virtual.
+	 */
+	public static boolean isVirtualThreadsSupported() {
+		return NEW_VIRTUAL_THREAD_EXECUTOR != null;
+	}
+
+	/**
+	 * Creates the connector server. The connector server is not started. Unless it uses {@link Threads#CONNECTION}
+	 * threads, the connector server created by the connector provider is wrapped in one that shuts down the invoking
+	 * threads when it is stopped.
+	 *
+	 * @return the connector server.
+	 * @throws IOException if the connector server cannot be created.
+	 */
+	public JMXConnectorServer build() throws IOException {
+		JMXConnectorServer connectorServer = JMXConnectorServerFactory.newJMXConnectorServer(url, environment, mBeanServer != null ? mBeanServer : ManagementFactory.getPlatformMBeanServer());
+		Threads threads = getEffectiveThreads();
+		statistics.setThreads(threads);
+		if (threads == Threads.CONNECTION)
+			return connectorServer;
+		ExecutorService executor = newExecutor(threads);
+		connectorServer.setMBeanServerForwarder(InvocationForwarder.newForwarder(executor, statistics));
+		return new ExecutorConnectorServer(connectorServer, executor);
+	}
+
+	private Threads getEffectiveThreads() {
+		return threads == Threads.VIRTUAL && !isVirtualThreadsSupported() ? Threads.PLATFORM : threads;
+	}
+
+	private ExecutorService newExecutor(Threads threads) {
+		if (threads == Threads.VIRTUAL) {
+			try {
+				return (ExecutorService)NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+			}
+			catch (ReflectiveOperationException ex) {
+				throw new ManagementException(ex);
+			}
+		}
+		return ManagementExecutors.newDaemonPool("jmx-connector", platformThreads);
+	}
+
+	private static Method findVirtualThreadExecutorFactory() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			((ExecutorService)factory.invoke(null)).shutdown(); // fails if virtual threads are a disabled preview feature
+			return factory;
+		}
+		catch (ReflectiveOperationException | RuntimeException ex) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package org.strangeforest.jmx;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import javax.management.openmbean.*;
+
+import org.strangeforest.jmx.annotation.*;
+import org.strangeforest.jmx.metric.*;
+
+/**
+ * <p>Statistics of the requests of the connector servers built by a {@link ConnectorServerBuilder}. A request is
+ * queued until a thread starts invoking the MBeanServer for it, and active until the invocation completes. The queue
+ * time is in microseconds.</p>
+ * <p>Requests are counted only for connector servers invoking the MBeanServer on their own threads.</p>
+ * <p>The statistics object can itself be exposed using {@link JMXUtil#register(Object, String)}.</p>
+ */
+@MBeanDescription("Connector server statistics")
+public final class ConnectorStatistics {
+
+	private volatile ConnectorServerBuilder.Threads threads;
+	private final AtomicInteger queued = new AtomicInteger();
+	private final AtomicInteger active = new AtomicInteger();
+	private final LongAdder completed = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final Histogram queueTime = new Histogram();
+
+	ConnectorStatistics() {}
+
+	@ManagedAttribute(writable = false, description = "Threads invoking the MBeanServer")
+	public String getThreads() {
+		ConnectorServerBuilder.Threads threads = this.threads;
+		return threads != null ? threads.name() : null;
+	}
+
+	@ManagedAttribute(description = "Number of requests waiting for a thread")
+	public int getQueued() {
+		return queued.get();
+	}
+
+	@ManagedAttribute(description = "Number of requests invoking the MBeanServer")
+	public int getActive() {
+		return active.get();
+	}
+
+	@ManagedAttribute(description = "Number of completed requests")
+	public long getCompleted() {
+		return completed.sum();
+	}
+
+	@ManagedAttribute(description = "Number of requests that completed with an exception")
+	public long getFailed() {
+		return failed.sum();
+	}
+
+	@ManagedAttribute(description = "Queue time in microseconds")
+	public CompositeData getQueueTime() {
+		return queueTime.getStatistics();
+	}
+
+	@ManagedOperation(impact = Impact.ACTION, description = "Resets the counters and the queue time")
+	public void reset() {
+		completed.reset();
+		failed.reset();
+		queueTime.reset();
+	}
+
+	void setThreads(ConnectorServerBuilder.Threads threads) {
+		this.threads = threads;
+	}
+
+	void queued() {
+		queued.incrementAndGet();
+	}
+
+	void rejected() {
+		queued.decrementAndGet();
+	}
+
+	void started(long queueTimeNanos) {
+		queued.decrementAndGet();
+		active.incrementAndGet();
+		queueTime.record(TimeUnit.NANOSECONDS.toMicros(queueTimeNanos));
+	}
+
+	void finished(boolean failed) {
+		active.decrementAndGet();
+		completed.increment();
+		if (failed)
+			this.failed.increment();
+	}
+}
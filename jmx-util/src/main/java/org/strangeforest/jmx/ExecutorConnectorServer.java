@@ -0,0 +1,100 @@
+package org.strangeforest.jmx;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.management.*;
+import javax.management.remote.*;
+
+/**
+ * Connector server built by {@link ConnectorServerBuilder} invoking the MBeanServer through an executor. It delegates
+ * to the connector server created by the connector provider, and shuts the executor down when it is stopped, letting
+ * the invocations in progress complete.
+ */
+final class ExecutorConnectorServer extends JMXConnectorServer {
+
+	private final JMXConnectorServer connectorServer;
+	private final ExecutorService executor;
+
+	ExecutorConnectorServer(JMXConnectorServer connectorServer, ExecutorService executor) {
+		this.connectorServer = connectorServer;
+		this.executor = executor;
+	}
+
+	@Override public void start() throws IOException {
+		connectorServer.start();
+	}
+
+	@Override public void stop() throws IOException {
+		try {
+			connectorServer.stop();
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Override public boolean isActive() {
+		return connectorServer.isActive();
+	}
+
+	@Override public JMXServiceURL getAddress() {
+		return connectorServer.getAddress();
+	}
+
+	@Override public Map<String, ?> getAttributes() {
+		return connectorServer.getAttributes();
+	}
+
+	@Override public String[] getConnectionIds() {
+		return connectorServer.getConnectionIds();
+	}
+
+	@Override public JMXConnector toJMXConnector(Map<String, ?> env) throws IOException {
+		return connectorServer.toJMXConnector(env);
+	}
+
+	@Override public MBeanServer getMBeanServer() {
+		return connectorServer.getMBeanServer();
+	}
+
+	@Override public void setMBeanServerForwarder(MBeanServerForwarder forwarder) {
+		connectorServer.setMBeanServerForwarder(forwarder);
+	}
+
+	@Override public void addNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback) {
+		connectorServer.addNotificationListener(listener, filter, handback);
+	}
+
+	@Override public void removeNotificationListener(NotificationListener listener) throws ListenerNotFoundException {
+		connectorServer.removeNotificationListener(listener);
+	}
+
+	@Override public void removeNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback) throws ListenerNotFoundException {
+		connectorServer.removeNotificationListener(listener, filter, handback);
+	}
+
+	@Override public MBeanNotificationInfo[] getNotificationInfo() {
+		return connectorServer.getNotificationInfo();
+	}
+
+	@Override public ObjectName preRegister(MBeanServer mBeanServer, ObjectName name) {
+		return connectorServer.preRegister(mBeanServer, name);
+	}
+
+	@Override public void postRegister(Boolean registrationDone) {
+		connectorServer.postRegister(registrationDone);
+	}
+
+	/**
+	 * Stops the connector server when it is unregistered, as the delegate would stop itself.
+	 */
+	@Override public void preDeregister() throws Exception {
+		if (isActive())
+			stop();
+	}
+
+	@Override public void postDeregister() {
+		connectorServer.postDeregister();
+	}
+}
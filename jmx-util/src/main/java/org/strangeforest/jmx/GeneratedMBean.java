@@ -0,0 +1,220 @@
+package org.strangeforest.jmx;
+
+import javax.management.*;
+
+import static org.strangeforest.jmx.MBeanUtil.*;
+
+/**
+ * <p>Base class of the DynamicMBeans generated at compile time by the <code>jmx-processor</code> annotation
+ * processor. A generated MBean dispatches attributes and operations with a <code>switch</code> over their names and
+ * calls the methods of the managed object directly, without any reflection.</p>
+ * <p>When a generated MBean exists for the class of an object, {@link MBeanFactory#createMBean(Object)} uses it
+ * instead of the reflective {@link MBeanImpl}. Like it, a generated MBean is tracked by {@link MBeanRegistry} while
+ * registered.</p>
+ *
+ * @param <T> the type of the managed object.
+ */
+public abstract class GeneratedMBean<T> implements ManagedMBean, MBeanRegistration {
+
+	protected final T object;
+	private final MBeanInfo mBeanInfo;
+	private final boolean synchronizedAttributes;
+	private MBeanServer server;
+	private ObjectName name;
+
+	protected GeneratedMBean(T object, MBeanInfo mBeanInfo) {
+		this(object, mBeanInfo, false);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param object                 the managed object.
+	 * @param mBeanInfo              the precomputed MBeanInfo.
+	 * @param synchronizedAttributes whether bulk attribute reads and writes must hold the monitor of the managed object
+	 *                               (see {@link org.strangeforest.jmx.annotation.SynchronizedAttributes}).
+	 */
+	protected GeneratedMBean(T object, MBeanInfo mBeanInfo, boolean synchronizedAttributes) {
+		this.object = object;
+		this.mBeanInfo = mBeanInfo;
+		this.synchronizedAttributes = synchronizedAttributes;
+	}
+
+	@Override public MBeanInfo getMBeanInfo() {
+		return mBeanInfo;
+	}
+
+	@Override public Object getManagedObject() {
+		return object;
+	}
+
+	@Override public Object getAttribute(String attributeName) throws AttributeNotFoundException, MBeanException, ReflectionException {
+		if (attributeName == null)
+			throw new RuntimeOperationsException(new IllegalArgumentException("Attribute name cannot be null"), "Cannot invoke a getter of " + mBeanInfo.getClassName() + " with null attribute name");
+		return doGetAttribute(attributeName);
+	}
+
+	@Override public AttributeList getAttributes(String[] attributesNames) {
+		if (attributesNames == null)
+			throw new RuntimeOperationsException(new IllegalArgumentException("attributeNames[] cannot be null"), "Cannot invoke a getter of " + mBeanInfo.getClassName());
+		AttributeList resultList = new AttributeList(attributesNames.length);
+		if (attributesNames.length == 0)
+			return resultList;
+		if (synchronizedAttributes) {
+			synchronized (object) {
+				readAttributes(attributesNames, resultList);
+			}
+		}
+		else
+			readAttributes(attributesNames, resultList);
+		return resultList;
+	}
+
+	private void readAttributes(String[] attributesNames, AttributeList resultList) {
+		for (String attributesName : attributesNames) {
+			if (attributesName == null)
+				continue;
+			try {
+				resultList.add(new Attribute(attributesName, doGetAttribute(attributesName)));
+			}
+			catch (Exception ignored) {}
+		}
+	}
+
+	@Override public void setAttribute(Attribute attribute) throws AttributeNotFoundException, InvalidAttributeValueException, MBeanException, ReflectionException {
+		if (attribute == null)
+			throw new RuntimeOperationsException(new IllegalArgumentException("Attribute cannot be null"), "Cannot invoke a setter of " + mBeanInfo.getClassName() + " with null attribute");
+		String attributeName = attribute.getName();
+		Object value = attribute.getValue();
+		if (attributeName == null)
+			throw new RuntimeOperationsException(new IllegalArgumentException("Attribute name cannot be null"), "Cannot invoke the setter of " + mBeanInfo.getClassName() + " with null attribute name");
+		if (value == null)
+			throw new InvalidAttributeValueException("Cannot set attribute " + attributeName + " to null");
+		doSetAttribute(attributeName, value);
+	}
+
+	@Override public AttributeList setAttributes(AttributeList attributes) {
+		if (attributes == null)
+			throw new RuntimeOperationsException(new IllegalArgumentException("AttributeList attributes cannot be null"), "Cannot invoke a setter of " + mBeanInfo.getClassName());
+		AttributeList resultList = new AttributeList(attributes.size());
+		if (attributes.isEmpty())
+			return resultList;
+		if (synchronizedAttributes) {
+			synchronized (object) {
+				writeAttributes(attributes, resultList);
+			}
+		}
+		else
+			writeAttributes(attributes, resultList);
+		return resultList;
+	}
+
+	private void writeAttributes(AttributeList attributes, AttributeList resultList) {
+		for (Object attribute : attributes) {
+			if (!(attribute instanceof Attribute))
+				continue;
+			Attribute attr = (Attribute)attribute;
+			try {
+				setAttribute(attr);
+				resultList.add(attr);
+			}
+			catch (Exception ignored) {}
+		}
+	}
+
+	@Override public Object invoke(String actionName, Object[] params, String[] signature) throws MBeanException, ReflectionException {
+		if (actionName == null)
+			throw new RuntimeOperationsException(new IllegalArgumentException("Operation name cannot be null"), "Cannot invoke a null operation in " + mBeanInfo.getClassName());
+		return doInvoke(actionName, params, signature);
+	}
+
+	@Override public ObjectName preRegister(MBeanServer server, ObjectName name) {
+		this.server = server;
+		this.name = name;
+		return name;
+	}
+
+	@Override public void postRegister(Boolean registrationDone) {
+		if (Boolean.TRUE.equals(registrationDone))
+			MBeanRegistry.registered(server, name, this);
+	}
+
+	@Override public void preDeregister() {}
+
+	@Override public void postDeregister() {
+		MBeanRegistry.unregistered(server, name);
+	}
+
+	/**
+	 * Reads an attribute value from the managed object.
+	 *
+	 * @param attributeName the attribute name, never <code>null</code>.
+	 * @return the attribute value.
+	 * @throws AttributeNotFoundException if there is no readable attribute with the specified name.
+	 * @throws MBeanException wraps the exception thrown by the getter.
+	 */
+	protected abstract Object doGetAttribute(String attributeName) throws AttributeNotFoundException, MBeanException;
+
+	/**
+	 * Writes an attribute value to the managed object.
+	 *
+	 * @param attributeName the attribute name, never <code>null</code>.
+	 * @param value         the attribute value, never <code>null</code>.
+	 * @throws AttributeNotFoundException if there is no attribute with the specified name.
+	 * @throws InvalidAttributeValueException if the value is not of the attribute type.
+	 * @throws MBeanException wraps the exception thrown by the setter.
+	 */
+	protected abstract void doSetAttribute(String attributeName, Object value) throws AttributeNotFoundException, InvalidAttributeValueException, MBeanException;
+
+	/**
+	 * Invokes an operation on the managed object.
+	 *
+	 * @param actionName the operation name, never <code>null</code>.
+	 * @param params     the operation parameters.
+	 * @param signature  the operation signature.
+	 * @return the value returned by the operation.
+	 * @throws ReflectionException if there is no operation matching the signature or wraps the exception thrown by the
+	 * operation.
+	 */
+	protected abstract Object doInvoke(String actionName, Object[] params, String[] signature) throws ReflectionException;
+
+	protected AttributeNotFoundException attributeNotFound(String attributeName) {
+		return new AttributeNotFoundException("Cannot find " + attributeName + " attribute in " + mBeanInfo.getClassName());
+	}
+
+	protected InvalidAttributeValueException invalidAttributeValue(String attributeName, Object value, String typeName) {
+		return new InvalidAttributeValueException("Cannot set attribute " + attributeName + " to a " + value.getClass().getName() + " object, " + typeName + " expected");
+	}
+
+	protected ReflectionException operationNotFound(String actionName) {
+		return new ReflectionException(new NoSuchMethodException(actionName), "Cannot find the operation " + actionName + " with specified signature in " + mBeanInfo.getClassName());
+	}
+
+	/**
+	 * Checks whether an operation can be invoked with the received signature. Signatures with exactly the parameter
+	 * types of the operation are matched without loading any class.
+	 *
+	 * @param signature  the signature as received with the invocation, may be <code>null</code> for no parameters.
+	 * @param paramTypes the operation parameter types.
+	 * @return <code>true</code> if each received type is assignable to the corresponding parameter type.
+	 */
+	protected static boolean isAssignableSignature(String[] signature, String[] paramTypes) {
+		int length = signature != null ? signature.length : 0;
+		if (length != paramTypes.length)
+			return false;
+		for (int i = 0; i < length; i++) {
+			if (paramTypes[i].equals(signature[i]))
+				continue;
+			if (signature[i] == null)
+				return false;
+			try {
+				if (!isAssignable(findClass(paramTypes[i]), findClass(signature[i])))
+					return false;
+			}
+			catch (ClassNotFoundException e) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
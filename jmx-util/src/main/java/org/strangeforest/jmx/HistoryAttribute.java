@@ -0,0 +1,60 @@
+package org.strangeforest.jmx;
+
+import java.util.*;
+
+/**
+ * Attribute annotated with {@link org.strangeforest.jmx.annotation.ManagedHistory}, with the number of samples kept
+ * and the sampling period.
+ */
+final class HistoryAttribute {
+
+	static final int MAX_SIZE = 1 << 16;
+
+	private static final Set<Class<?>> INTEGRAL_TYPES = new HashSet<>(Arrays.<Class<?>>asList(
+		byte.class, Byte.class, short.class, Short.class, int.class, Integer.class, long.class, Long.class
+	));
+	private static final Set<Class<?>> FLOATING_POINT_TYPES = new HashSet<>(Arrays.<Class<?>>asList(
+		float.class, Float.class, double.class, Double.class
+	));
+
+	private final AttributeAccessor accessor;
+	private final int size;
+	private final long periodMillis;
+
+	HistoryAttribute(AttributeAccessor accessor, int size, long periodMillis) {
+		if (!accessor.isReadable())
+			throw new ManagementException("History attribute " + accessor.getName() + " is not readable.");
+		if (!isIntegral(accessor.getType()) && !FLOATING_POINT_TYPES.contains(accessor.getType()))
+			throw new ManagementException("History attribute " + accessor.getName() + " is not numeric: " + accessor.getType().getName());
+		if (size <= 0 || size > MAX_SIZE)
+			throw new ManagementException("Invalid history size for attribute " + accessor.getName() + ": " + size);
+		if (periodMillis <= 0L)
+			throw new ManagementException("Invalid history period for attribute " + accessor.getName() + ": " + periodMillis);
+		this.accessor = accessor;
+		this.size = size;
+		this.periodMillis = periodMillis;
+	}
+
+	public AttributeAccessor getAccessor() {
+		return accessor;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public long getPeriodMillis() {
+		return periodMillis;
+	}
+
+	/**
+	 * Tells whether the samples are kept as <code>long</code>s rather than <code>double</code>s.
+	 */
+	public boolean isIntegral() {
+		return isIntegral(accessor.getType());
+	}
+
+	private static boolean isIntegral(Class<?> type) {
+		return INTEGRAL_TYPES.contains(type);
+	}
+}
@@ -0,0 +1,146 @@
+package org.strangeforest.jmx;
+
+import javax.management.*;
+import javax.management.openmbean.*;
+
+/**
+ * <p>Fixed-size ring buffer of the samples of a history attribute. Sample times and values are kept in primitive
+ * arrays allocated up front, <code>long</code> values for integral attributes and <code>double</code> values for
+ * floating point ones, so storing a sample never allocates, and the memory held by the buffer does not grow with the
+ * number of samples taken.</p>
+ * <p>Samples are written by a refresher thread and read by MBean clients, both holding the buffer monitor only
+ * while copying the samples.</p>
+ */
+final class HistoryBuffer {
+
+	private static final int ARRAY_HEADER_BYTES = 16;
+
+	static final CompositeType LONG_HISTORY_TYPE;
+	static final CompositeType DOUBLE_HISTORY_TYPE;
+	static final CompositeType STATISTICS_TYPE;
+
+	private static final String[] HISTORY_ITEM_NAMES = {"attribute", "times", "values"};
+	private static final String[] STATISTICS_ITEM_NAMES = {"attribute", "count", "from", "to", "min", "max", "avg"};
+
+	static {
+		try {
+			String[] historyDescriptions = {"Attribute name", "Sample times in milliseconds since the epoch", "Sample values"};
+			LONG_HISTORY_TYPE = new CompositeType(HistoryBuffer.class.getName() + ".LongHistory", "Attribute history", HISTORY_ITEM_NAMES, historyDescriptions,
+				new OpenType[] {SimpleType.STRING, ArrayType.getPrimitiveArrayType(long[].class), ArrayType.getPrimitiveArrayType(long[].class)});
+			DOUBLE_HISTORY_TYPE = new CompositeType(HistoryBuffer.class.getName() + ".DoubleHistory", "Attribute history", HISTORY_ITEM_NAMES, historyDescriptions,
+				new OpenType[] {SimpleType.STRING, ArrayType.getPrimitiveArrayType(long[].class), ArrayType.getPrimitiveArrayType(double[].class)});
+			STATISTICS_TYPE = new CompositeType(HistoryBuffer.class.getName() + ".Statistics", "Attribute history statistics", STATISTICS_ITEM_NAMES,
+				new String[] {"Attribute name", "Number of samples", "First sample time", "Last sample time", "Minimum value", "Maximum value", "Average value"},
+				new OpenType[] {SimpleType.STRING, SimpleType.INTEGER, SimpleType.LONG, SimpleType.LONG, SimpleType.DOUBLE, SimpleType.DOUBLE, SimpleType.DOUBLE});
+		}
+		catch (OpenDataException ex) {
+			throw new ExceptionInInitializerError(ex);
+		}
+	}
+
+	private final String attribute;
+	private final long[] times;
+	private final long[] longValues;
+	private final double[] doubleValues;
+	private long count;
+
+	HistoryBuffer(HistoryAttribute attribute) {
+		this.attribute = attribute.getAccessor().getName();
+		int size = attribute.getSize();
+		times = new long[size];
+		longValues = attribute.isIntegral() ? new long[size] : null;
+		doubleValues = attribute.isIntegral() ? null : new double[size];
+	}
+
+	/**
+	 * Retrieves the memory held by the buffer arrays, which is fixed when the buffer is created.
+	 *
+	 * @return the memory in bytes.
+	 */
+	public long getMemoryBytes() {
+		return 2L * (ARRAY_HEADER_BYTES + 8L * times.length);
+	}
+
+	synchronized void add(long time, Number value) {
+		int index = index(count++);
+		times[index] = time;
+		if (longValues != null)
+			longValues[index] = value.longValue();
+		else
+			doubleValues[index] = value.doubleValue();
+	}
+
+	/**
+	 * Retrieves the last samples, oldest first.
+	 *
+	 * @param maxCount the maximum number of samples.
+	 * @return the composite data of {@link #LONG_HISTORY_TYPE} or {@link #DOUBLE_HISTORY_TYPE} type.
+	 */
+	CompositeData getHistory(int maxCount) {
+		long[] sampleTimes;
+		Object values;
+		synchronized (this) {
+			int length = (int)Math.min(Math.min(count, times.length), Math.max(maxCount, 0));
+			sampleTimes = new long[length];
+			values = longValues != null ? new long[length] : new double[length];
+			for (int i = 0; i < length; i++) {
+				int index = index(count - length + i);
+				sampleTimes[i] = times[index];
+				if (longValues != null)
+					((long[])values)[i] = longValues[index];
+				else
+					((double[])values)[i] = doubleValues[index];
+			}
+		}
+		return toCompositeData(longValues != null ? LONG_HISTORY_TYPE : DOUBLE_HISTORY_TYPE, HISTORY_ITEM_NAMES, new Object[] {attribute, sampleTimes, values});
+	}
+
+	/**
+	 * Computes the statistics of the samples taken within a window ending now. Minimum, maximum and average are NaN if
+	 * there are no samples in the window.
+	 *
+	 * @param windowMillis the window length in milliseconds.
+	 * @return the composite data of {@link #STATISTICS_TYPE} type.
+	 */
+	CompositeData getStatistics(long windowMillis) {
+		long since = System.currentTimeMillis() - windowMillis;
+		int sampleCount = 0;
+		long from = 0L, to = 0L;
+		double min = Double.NaN, max = Double.NaN, sum = 0.0;
+		synchronized (this) {
+			for (long i = count - 1, oldest = Math.max(count - times.length, 0L); i >= oldest; i--) {
+				int index = index(i);
+				if (times[index] < since)
+					break;
+				double value = longValues != null ? longValues[index] : doubleValues[index];
+				if (sampleCount++ == 0) {
+					to = times[index];
+					min = max = value;
+				}
+				else {
+					min = Math.min(min, value);
+					max = Math.max(max, value);
+				}
+				from = times[index];
+				sum += value;
+			}
+		}
+		double avg = sampleCount > 0 ? sum / sampleCount : Double.NaN;
+		return toCompositeData(STATISTICS_TYPE, STATISTICS_ITEM_NAMES, new Object[] {attribute, sampleCount, from, to, min, max, avg});
+	}
+
+	private int index(long sample) {
+		return (int)(sample % times.length);
+	}
+
+	private static CompositeData toCompositeData(CompositeType type, String[] itemNames, Object[] values) {
+		try {
+			return new CompositeDataSupport(type, itemNames, values);
+		}
+		catch (OpenDataException ex) {
+			JMRuntimeException jmEx = new JMRuntimeException(ex.getMessage());
+			jmEx.initCause(ex);
+			throw jmEx;
+		}
+	}
+}
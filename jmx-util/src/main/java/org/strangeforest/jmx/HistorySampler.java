@@ -0,0 +1,135 @@
+package org.strangeforest.jmx;
+
+import java.util.*;
+import java.util.concurrent.*;
+import javax.management.*;
+import javax.management.openmbean.*;
+
+/**
+ * <p>Samples the history attributes of a managed object into their {@link HistoryBuffer}s. While the MBean is
+ * registered, each attribute is sampled once per its period on the refresher threads shared by all the MBeans, as
+ * getters are application code which may be slow. Samples are taken with a fixed delay, so a slow getter delays the
+ * following samples instead of causing a burst of them. A getter failure, including an error, skips the sample and is
+ * counted as a failed sample. If the class is annotated with {@link org.strangeforest.jmx.annotation.SynchronizedAttributes},
+ * a sample is taken holding the monitor of the managed object.</p>
+ * <p>The sampler adds the operations reading the history to the MBean, see {@link #OPERATIONS}.</p>
+ */
+final class HistorySampler {
+
+	static final String GET_HISTORY = "getAttributeHistory";
+	static final String GET_HISTORY_STATISTICS = "getAttributeHistoryStatistics";
+
+	private static final String[] GET_HISTORY_SIGNATURE = {String.class.getName(), int.class.getName()};
+	private static final String[] GET_HISTORY_STATISTICS_SIGNATURE = {String.class.getName(), long.class.getName()};
+
+	/**
+	 * The operations added to MBeans with history attributes.
+	 */
+	static final MBeanOperationInfo[] OPERATIONS = {
+		new MBeanOperationInfo(GET_HISTORY, "Returns the last samples of the attribute, oldest first", new MBeanParameterInfo[] {
+			new MBeanParameterInfo("attribute", String.class.getName(), "Attribute name"),
+			new MBeanParameterInfo("count", int.class.getName(), "Maximum number of samples")
+		}, CompositeData.class.getName(), MBeanOperationInfo.INFO),
+		new MBeanOperationInfo(GET_HISTORY_STATISTICS, "Returns the minimum, maximum and average of the attribute samples within the window", new MBeanParameterInfo[] {
+			new MBeanParameterInfo("attribute", String.class.getName(), "Attribute name"),
+			new MBeanParameterInfo("windowMillis", long.class.getName(), "Window ending now in milliseconds")
+		}, CompositeData.class.getName(), MBeanOperationInfo.INFO)
+	};
+
+	private final Object object;
+	private final boolean synchronizedAttributes;
+	private final List<HistoryAttribute> attributes;
+	private final Map<String, HistoryBuffer> buffers = new HashMap<>();
+	private final HistoryStatistics statistics;
+	private final List<ScheduledFuture<?>> samplers = new ArrayList<>();
+
+	HistorySampler(Object object, MBeanMetadata metadata) {
+		this.object = object;
+		synchronizedAttributes = metadata.isSynchronizedAttributes();
+		attributes = metadata.getHistoryAttributes();
+		long memoryBytes = 0L;
+		for (HistoryAttribute attribute : attributes) {
+			HistoryBuffer buffer = new HistoryBuffer(attribute);
+			buffers.put(attribute.getAccessor().getName(), buffer);
+			memoryBytes += buffer.getMemoryBytes();
+		}
+		statistics = new HistoryStatistics(attributes.size(), memoryBytes);
+	}
+
+	static boolean isOperation(String operationName, String[] signature) {
+		return GET_HISTORY.equals(operationName) && Arrays.equals(GET_HISTORY_SIGNATURE, signature)
+			|| GET_HISTORY_STATISTICS.equals(operationName) && Arrays.equals(GET_HISTORY_STATISTICS_SIGNATURE, signature);
+	}
+
+	/**
+	 * Invokes one of the history operations.
+	 *
+	 * @param operationName the operation name, for which {@link #isOperation(String, String[])} returns <code>true</code>.
+	 * @param params        the operation parameters.
+	 * @return the composite data with the history or its statistics.
+	 * @throws IllegalArgumentException if the attribute has no history.
+	 */
+	CompositeData invoke(String operationName, Object[] params) {
+		HistoryBuffer buffer = buffers.get((String)params[0]);
+		if (buffer == null)
+			throw new IllegalArgumentException("Attribute " + params[0] + " has no history");
+		return GET_HISTORY.equals(operationName) ? buffer.getHistory((Integer)params[1]) : buffer.getStatistics((Long)params[1]);
+	}
+
+	public HistoryStatistics getStatistics() {
+		return statistics;
+	}
+
+	synchronized void start() {
+		if (!samplers.isEmpty())
+			return;
+		for (HistoryAttribute attribute : attributes) {
+			Sampler sampler = new Sampler(attribute.getAccessor(), buffers.get(attribute.getAccessor().getName()));
+			samplers.add(ManagementExecutors.REFRESHER.scheduleWithFixedDelay(sampler, 0L, attribute.getPeriodMillis(), TimeUnit.MILLISECONDS));
+		}
+	}
+
+	synchronized void stop() {
+		for (ScheduledFuture<?> sampler : samplers)
+			sampler.cancel(false);
+		samplers.clear();
+	}
+
+	private final class Sampler implements Runnable {
+
+		private final AttributeAccessor accessor;
+		private final HistoryBuffer buffer;
+
+		Sampler(AttributeAccessor accessor, HistoryBuffer buffer) {
+			this.accessor = accessor;
+			this.buffer = buffer;
+		}
+
+		@Override public void run() {
+			Object value;
+			try {
+				value = read();
+			}
+			catch (Throwable th) {
+				// an error escaping the sampler would silently cancel its scheduled task
+				statistics.sampled(false);
+				return;
+			}
+			if (value instanceof Number) {
+				buffer.add(System.currentTimeMillis(), (Number)value);
+				statistics.sampled(true);
+			}
+			else
+				statistics.sampled(false);
+		}
+
+		private Object read() throws ReflectiveOperationException {
+			if (synchronizedAttributes) {
+				synchronized (object) {
+					return accessor.get(object);
+				}
+			}
+			return accessor.get(object);
+		}
+	}
+}
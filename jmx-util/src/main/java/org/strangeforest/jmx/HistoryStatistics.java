@@ -0,0 +1,58 @@
+package org.strangeforest.jmx;
+
+import java.util.concurrent.atomic.*;
+
+import org.strangeforest.jmx.annotation.*;
+
+/**
+ * <p>Statistics of the attribute history of an MBean created by {@link MBeanFactory}. The history buffers are
+ * allocated when the MBean is created, so the memory they hold is fixed, at 16 bytes per sample they can keep.</p>
+ * <p>The statistics are registered together with the MBean, under its name with the added
+ * <code>statistics=history</code> key property.</p>
+ */
+@MBeanDescription("Attribute history statistics")
+public final class HistoryStatistics {
+
+	private final int attributes;
+	private final long memoryBytes;
+	private final LongAdder samples = new LongAdder();
+	private final LongAdder failedSamples = new LongAdder();
+
+	HistoryStatistics(int attributes, long memoryBytes) {
+		this.attributes = attributes;
+		this.memoryBytes = memoryBytes;
+	}
+
+	@ManagedAttribute(description = "Number of attributes with history")
+	public int getAttributes() {
+		return attributes;
+	}
+
+	@ManagedAttribute(description = "Memory held by the history buffers in bytes")
+	public long getMemoryBytes() {
+		return memoryBytes;
+	}
+
+	@ManagedAttribute(description = "Number of samples taken")
+	public long getSamples() {
+		return samples.sum();
+	}
+
+	@ManagedAttribute(description = "Number of samples skipped because the getter failed")
+	public long getFailedSamples() {
+		return failedSamples.sum();
+	}
+
+	@ManagedOperation(impact = Impact.ACTION, description = "Resets the sample counters")
+	public void reset() {
+		samples.reset();
+		failedSamples.reset();
+	}
+
+	void sampled(boolean succeeded) {
+		if (succeeded)
+			samples.increment();
+		else
+			failedSamples.increment();
+	}
+}
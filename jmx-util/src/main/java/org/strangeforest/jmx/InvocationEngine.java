@@ -0,0 +1,94 @@
+package org.strangeforest.jmx;
+
+import java.lang.invoke.*;
+import java.lang.reflect.*;
+
+/**
+ * <p>Strategy used by {@link MBeanFactory} to bind the getters, setters and operations of a managed object. Methods
+ * are bound once when the MBean is created, so the engine only affects how the bound methods are called.</p>
+ * <ul>
+ *    <li>{@link #REFLECTION} calls methods with <code>Method.invoke</code>.</li>
+ *    <li>{@link #METHOD_HANDLE} calls methods through a <code>MethodHandle</code> adapted to a generic signature, which
+ *    avoids the reflective access and argument checks on every call. The handle is not a constant to the JIT, so the
+ *    call is not inlined, and primitive results are boxed as with reflection: <code>DispatchBenchmark</code> shows
+ *    both engines within the noise of the <code>MBeanServer</code> dispatch. Arguments of the wrong type are reported
+ *    with <code>IllegalArgumentException</code>, as with reflection. Methods that cannot be accessed through a method
+ *    handle (i.e. methods of non-public classes) fall back to reflection.</li>
+ * </ul>
+ * <p>The default engine is {@link #REFLECTION} and can be changed with the
+ * <code>org.strangeforest.jmx.invocationEngine</code> system property.</p>
+ */
+public enum InvocationEngine {
+
+	REFLECTION {
+		@Override Invoker bind(Method method) {
+			return method::invoke;
+		}
+	},
+
+	METHOD_HANDLE {
+		@Override Invoker bind(Method method) {
+			MethodHandle methodHandle;
+			try {
+				methodHandle = MethodHandles.publicLookup().unreflect(method);
+			}
+			catch (IllegalAccessException ex) {
+				return REFLECTION.bind(method);
+			}
+			Class<?>[] paramTypes = method.getParameterTypes();
+			MethodHandle invoker = methodHandle.asSpreader(Object[].class, paramTypes.length).asType(GENERIC_INVOKER_TYPE);
+			return (object, params) -> {
+				try {
+					return invoker.invokeExact(object, params);
+				}
+				catch (VirtualMachineError err) {
+					throw err;
+				}
+				catch (Throwable th) {
+					// arguments are checked only on failure, to tell adaptation errors from exceptions of the method
+					if (!isApplicable(method, paramTypes, object, params))
+						throw (IllegalArgumentException)new IllegalArgumentException("argument type mismatch").initCause(th);
+					throw new InvocationTargetException(th);
+				}
+			};
+		}
+	};
+
+	private static final MethodType GENERIC_INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+	private static final String DEFAULT_ENGINE_PROPERTY = "org.strangeforest.jmx.invocationEngine";
+
+	/**
+	 * Binds a method to an invoker.
+	 *
+	 * @param method the public method to bind.
+	 * @return an invoker calling the method.
+	 */
+	abstract Invoker bind(Method method);
+
+	private static boolean isApplicable(Method method, Class<?>[] paramTypes, Object object, Object[] params) {
+		if (!method.getDeclaringClass().isInstance(object))
+			return false;
+		int paramCount = params != null ? params.length : 0;
+		if (paramCount != paramTypes.length)
+			return false;
+		for (int i = 0; i < paramCount; i++) {
+			Class<?> paramType = paramTypes[i];
+			Object param = params[i];
+			if (param == null ? paramType.isPrimitive() : !MethodType.methodType(paramType).wrap().returnType().isInstance(param))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the engine used by {@link MBeanFactory#createMBean(Object)}.
+	 *
+	 * @return the engine specified with the <code>org.strangeforest.jmx.invocationEngine</code> system property, or
+	 * {@link #REFLECTION} if the property is not set.
+	 */
+	public static InvocationEngine getDefault() {
+		String engine = System.getProperty(DEFAULT_ENGINE_PROPERTY);
+		return engine != null ? valueOf(engine) : REFLECTION;
+	}
+}
@@ -0,0 +1,83 @@
+package org.strangeforest.jmx;
+
+import java.lang.reflect.*;
+import java.util.concurrent.*;
+import javax.management.*;
+import javax.management.remote.*;
+
+/**
+ * Forwards the MBeanServer calls of a connector server to an executor. The calling connector thread waits for the
+ * invocation to complete, and receives its result or exception as if it invoked the MBeanServer itself.
+ */
+final class InvocationForwarder implements InvocationHandler {
+
+	private final ExecutorService executor;
+	private final ConnectorStatistics statistics;
+	private volatile MBeanServer mBeanServer;
+
+	private InvocationForwarder(ExecutorService executor, ConnectorStatistics statistics) {
+		this.executor = executor;
+		this.statistics = statistics;
+	}
+
+	static MBeanServerForwarder newForwarder(ExecutorService executor, ConnectorStatistics statistics) {
+		return (MBeanServerForwarder)Proxy.newProxyInstance(MBeanServerForwarder.class.getClassLoader(), new Class<?>[] {MBeanServerForwarder.class}, new InvocationForwarder(executor, statistics));
+	}
+
+	@Override public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		switch (method.getName()) {
+			case "getMBeanServer":
+				return mBeanServer;
+			case "setMBeanServer":
+				if (mBeanServer != null)
+					throw new IllegalArgumentException("MBeanServer is already set.");
+				mBeanServer = (MBeanServer)args[0];
+				return null;
+		}
+		if (method.getDeclaringClass() == Object.class)
+			return invokeObjectMethod(proxy, method, args);
+		MBeanServer mBeanServer = this.mBeanServer;
+		if (mBeanServer == null)
+			throw new IllegalStateException("No MBeanServer set.");
+		long submitTime = System.nanoTime();
+		statistics.queued();
+		Future<Object> result;
+		try {
+			result = executor.submit(() -> {
+				statistics.started(System.nanoTime() - submitTime);
+				boolean failed = true;
+				try {
+					Object value = method.invoke(mBeanServer, args);
+					failed = false;
+					return value;
+				}
+				finally {
+					statistics.finished(failed);
+				}
+			});
+		}
+		catch (RejectedExecutionException ex) {
+			statistics.rejected();
+			throw ex;
+		}
+		try {
+			return result.get();
+		}
+		catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			throw cause instanceof InvocationTargetException ? cause.getCause() : cause;
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new JMRuntimeException("Interrupted while invoking " + method.getName());
+		}
+	}
+
+	private Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+		switch (method.getName()) {
+			case "equals": return proxy == args[0];
+			case "hashCode": return System.identityHashCode(proxy);
+			default: return getClass().getSimpleName() + '[' + mBeanServer + ']';
+		}
+	}
+}
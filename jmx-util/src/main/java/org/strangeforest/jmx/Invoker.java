@@ -0,0 +1,21 @@
+package org.strangeforest.jmx;
+
+/**
+ * Invokes a method resolved when the MBean is created on a managed object. Implementations are created by an
+ * {@link InvocationEngine}.
+ */
+interface Invoker {
+
+	Object[] NO_PARAMS = new Object[0];
+
+	/**
+	 * Invokes the bound method.
+	 *
+	 * @param object the managed object on which the method is invoked.
+	 * @param params the method parameters.
+	 * @return the value returned by the method, or <code>null</code> for void methods.
+	 * @throws InvocationTargetException wraps the exception thrown by the invoked method.
+	 * @throws ReflectiveOperationException if the method cannot be invoked with specified parameters.
+	 */
+	Object invoke(Object object, Object[] params) throws ReflectiveOperationException;
+}
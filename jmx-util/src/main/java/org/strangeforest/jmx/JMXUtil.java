@@ -2,6 +2,7 @@ package org.strangeforest.jmx;
 
 import java.lang.management.*;
 import java.util.*;
+import java.util.stream.*;
 import javax.management.*;
 
 import org.strangeforest.jmx.annotation.*;
@@ -42,6 +43,42 @@ public abstract class JMXUtil {
 		}
 	}
 
+	/**
+	 * <p>Registers many objects in the default <code>MBeanServer</code>, as {@link #register(Object, String)} does for a
+	 * single object.</p>
+	 * <p>The object names are parsed and the MBeans are created in parallel in the common fork-join pool, which also
+	 * introspects in parallel the classes not introspected before. The MBeans are then registered one by one, as the
+	 * <code>MBeanServer</code> serializes the registrations anyway. A failure to register an object does not abort the
+	 * registration of the others, and the objects registered before a failure stay registered.</p>
+	 *
+	 * @param objects the objects to expose as MBeans by the names used to expose them.
+	 * @return the failures by the names of the objects that were not registered, in the iteration order of the
+	 * <code>objects</code> map. Empty if all the objects were registered.
+	 * @throws ManagementException if there is no <code>MBeanServer</code>.
+	 */
+	public static Map<String, Exception> registerAll(Map<String, ?> objects) throws ManagementException {
+		Objects.requireNonNull(objects, "No objects specified.");
+		MBeanServer mBeanServer = getMBeanServer();
+		List<Map.Entry<String, ?>> entries = new ArrayList<>(objects.entrySet());
+		Registration[] registrations = new Registration[entries.size()];
+		IntStream.range(0, registrations.length).parallel().forEach(i -> registrations[i] = new Registration(entries.get(i).getKey(), entries.get(i).getValue()));
+		Map<String, Exception> failures = new LinkedHashMap<>();
+		for (int i = 0; i < registrations.length; i++) {
+			Registration registration = registrations[i];
+			if (registration.failure == null) {
+				try {
+					mBeanServer.registerMBean(registration.mBean, registration.name);
+				}
+				catch (Exception ex) {
+					registration.failure = ex;
+				}
+			}
+			if (registration.failure != null)
+				failures.put(entries.get(i).getKey(), registration.failure);
+		}
+		return failures;
+	}
+
 	/**
 	 * <p>Unregisters an MBean with the specified <code>name</code> if it exists in the default
 	 * <code>MBeanServer</code> (which is retrieved using the <code>ManagementFactory.getPlatformServer()</code>
@@ -62,6 +99,29 @@ public abstract class JMXUtil {
 		}
 	}
 
+	/**
+	 * <p>Registers a {@link BulkReader} of the default <code>MBeanServer</code> in the same <code>MBeanServer</code>,
+	 * with the name {@link BulkReader#NAME}.</p>
+	 *
+	 * @param threads the maximum number of threads reading MBeans in parallel.
+	 * @throws InstanceAlreadyExistsException if the bulk reader is already registered.
+	 * @throws ManagementException            if there is a problem creating or registering the MBean.
+	 */
+	public static void registerBulkReader(int threads) throws InstanceAlreadyExistsException, ManagementException {
+		register(new BulkReader(getMBeanServer(), threads), BulkReader.NAME);
+	}
+
+	/**
+	 * <p>Registers the {@link SignatureCacheStatistics} of the MBeans created by {@link MBeanFactory} in the default
+	 * <code>MBeanServer</code>, with the name {@link SignatureCacheStatistics#NAME}.</p>
+	 *
+	 * @throws InstanceAlreadyExistsException if the statistics are already registered.
+	 * @throws ManagementException            if there is a problem creating or registering the MBean.
+	 */
+	public static void registerSignatureCacheStatistics() throws InstanceAlreadyExistsException, ManagementException {
+		register(MBeanFactory.getSignatureCacheStatistics(), SignatureCacheStatistics.NAME);
+	}
+
 	public boolean isRegistered(String name) throws ManagementException {
 		checkName(name);
 		MBeanServer mBeanServer = getMBeanServer();
@@ -84,4 +144,26 @@ public abstract class JMXUtil {
 			throw new ManagementException("No MBeanServer found.");
 		return mBeanServer;
 	}
+
+	/**
+	 * An MBean prepared for registration, or the failure to prepare it.
+	 */
+	private static final class Registration {
+
+		private ObjectName name;
+		private DynamicMBean mBean;
+		private Exception failure;
+
+		private Registration(String name, Object object) {
+			try {
+				Objects.requireNonNull(object, "No object specified.");
+				checkName(name);
+				this.name = new ObjectName(name);
+				mBean = MBeanFactory.createMBean(object);
+			}
+			catch (Exception ex) {
+				failure = ex;
+			}
+		}
+	}
 }
@@ -1,6 +1,7 @@
 package org.strangeforest.jmx;
 
 import java.lang.annotation.*;
+import java.lang.invoke.*;
 import java.lang.reflect.*;
 import java.util.*;
 import javax.management.*;
@@ -16,6 +17,34 @@ import static org.strangeforest.jmx.MBeanUtil.*;
  */
 public final class MBeanFactory {
 
+	/**
+	 * Suffix of the class names of the DynamicMBeans generated by the <code>jmx-processor</code> annotation processor.
+	 */
+	public static final String GENERATED_MBEAN_SUFFIX = "_MBean";
+
+	/**
+	 * Class metadata cache, one per invocation engine.
+	 */
+	private static final Map<InvocationEngine, ClassValue<MBeanMetadata>> METADATA_CACHE = new EnumMap<>(InvocationEngine.class);
+	static {
+		for (InvocationEngine engine : InvocationEngine.values()) {
+			METADATA_CACHE.put(engine, new ClassValue<MBeanMetadata>() {
+				@Override protected MBeanMetadata computeValue(Class<?> objectType) {
+					return createMetadata(objectType, engine);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Constructors of generated MBeans, if they exist, by managed object class.
+	 */
+	private static final ClassValue<Optional<MethodHandle>> GENERATED_MBEANS = new ClassValue<Optional<MethodHandle>>() {
+		@Override protected Optional<MethodHandle> computeValue(Class<?> objectType) {
+			return findGeneratedMBean(objectType);
+		}
+	};
+
 	/**
 	 * Hide public constructor.
 	 */
@@ -24,29 +53,356 @@ public final class MBeanFactory {
 
 	/**
 	 * Creates a DynamicMBean from an object annotated with {@link javax.annotation.ManagedBean} exposing all methods and attributes
-	 * annotated with {@link ManagedOperation} and {@link ManagedAttribute} respectively.
+	 * annotated with {@link ManagedOperation} and {@link ManagedAttribute} respectively. If a {@link GeneratedMBean}
+	 * was generated at compile time for the object class, it is used, otherwise methods are bound using the default
+	 * {@link InvocationEngine}.
 	 *
 	 * @param object the object from which we are creating the DynamicMBean.
 	 * @return a constructed DynamicMBean object that can be registered with any MBeanServer.
 	 */
 	public static DynamicMBean createMBean(Object object) {
 		Objects.requireNonNull(object, "No object specified.");
-		Class<?> objectType = object.getClass();
+		Optional<MethodHandle> generatedMBean = GENERATED_MBEANS.get(object.getClass());
+		if (generatedMBean.isPresent()) {
+			try {
+				return (DynamicMBean)generatedMBean.get().invoke(object);
+			}
+			catch (RuntimeException | Error ex) {
+				throw ex;
+			}
+			catch (Throwable th) {
+				throw new ManagementException(new InvocationTargetException(th));
+			}
+		}
+		return createMBean(object, InvocationEngine.getDefault());
+	}
+
+	/**
+	 * Creates a DynamicMBean from an object annotated with {@link javax.annotation.ManagedBean} exposing all methods and attributes
+	 * annotated with {@link ManagedOperation} and {@link ManagedAttribute} respectively.
+	 *
+	 * @param object the object from which we are creating the DynamicMBean.
+	 * @param engine the engine used to bind the exposed methods.
+	 * @return a constructed DynamicMBean object that can be registered with any MBeanServer.
+	 */
+	public static DynamicMBean createMBean(Object object, InvocationEngine engine) {
+		Objects.requireNonNull(object, "No object specified.");
+		Objects.requireNonNull(engine, "No invocation engine specified.");
+		return new MBeanImpl(object, getMetadata(object.getClass(), engine));
+	}
+
+	/**
+	 * Retrieves the metadata of a managed object class. The class is introspected only the first time its metadata is
+	 * requested with a specific engine, later requests are served from a cache. Cached metadata is associated with the
+	 * class itself using a <code>ClassValue</code>, so it does not prevent the class (and its class loader) from being
+	 * garbage collected.
+	 *
+	 * @param objectType the class of the managed object.
+	 * @param engine     the engine used to bind the exposed methods.
+	 * @return the class metadata.
+	 * @throws ManagementException wraps anything that could go wrong introspecting the class.
+	 */
+	static MBeanMetadata getMetadata(Class<?> objectType, InvocationEngine engine) {
+		return METADATA_CACHE.get(engine).get(objectType);
+	}
+
+	private static MBeanMetadata createMetadata(Class<?> objectType, InvocationEngine engine) {
 		String description = objectType.isAnnotationPresent(MBeanDescription.class) ? objectType.getAnnotation(MBeanDescription.class).value() : "";
 
 		// build attributes and operations
 		Method[] methods = objectType.getMethods();
-		MethodHandler methodHandler = new MBeanFactory().new MethodHandler(objectType);
+		MethodHandler methodHandler = new MBeanFactory().new MethodHandler(objectType, engine);
 		for (Method method : methods)
 			methodHandler.handleMethod(method);
 
 		// build the MBeanInfo
+		List<NotifyingAttribute> notifyingAttributes = methodHandler.getNotifyingAttributes();
+		List<HistoryAttribute> historyAttributes = methodHandler.getHistoryAttributes();
+		Map<String, PagedAttribute> pagedAttributes = methodHandler.getPagedAttributes();
 		MBeanInfo mBeanInfo = new MBeanInfo(objectType.getName(), description, methodHandler.getMBeanAttributes(),
-			new MBeanConstructorInfo[0], methodHandler.getMBeanOperations(), new MBeanNotificationInfo[0]);
+			new MBeanConstructorInfo[0], buildMBeanOperations(methodHandler.getMBeanOperations(), historyAttributes, pagedAttributes), buildMBeanNotifications(notifyingAttributes));
+
+		return new MBeanMetadata(mBeanInfo, methodHandler.getAttributeAccessors(), methodHandler.getOperationInvokers(), objectType.isAnnotationPresent(SynchronizedAttributes.class),
+			notifyingAttributes, methodHandler.getSnapshotAttributes(), getSnapshotPeriodMillis(objectType), historyAttributes, pagedAttributes);
+	}
+
+	/**
+	 * Creates the metadata of an object type from an already built MBeanInfo. Used when an {@link MBeanImpl} is
+	 * constructed directly, without going through {@link #createMBean(Object)}.
+	 *
+	 * @param objectType the class of the object exposed as MBean.
+	 * @param mBeanInfo  the MBeanInfo describing the attributes and operations.
+	 * @param engine     the engine used to bind getters, setters and operations.
+	 * @return the metadata.
+	 * @throws ManagementException if some attribute type, operation or operation parameter type cannot be found.
+	 */
+	static MBeanMetadata createMetadata(Class<?> objectType, MBeanInfo mBeanInfo, InvocationEngine engine) {
+		Map<String, AttributeAccessor> attributeAccessors = createAttributeAccessors(objectType, mBeanInfo, engine);
+		Map<AttributeAccessor, Method> getters = findGetters(objectType, mBeanInfo, attributeAccessors);
+		Map<String, PagedAttribute> pagedAttributes = findPagedAttributes(objectType, getters, engine);
+		return new MBeanMetadata(mBeanInfo, attributeAccessors, createOperationInvokers(objectType, mBeanInfo, pagedAttributes, engine),
+			objectType.isAnnotationPresent(SynchronizedAttributes.class), findNotifyingAttributes(mBeanInfo, getters),
+			findSnapshotAttributes(getters), getSnapshotPeriodMillis(objectType), findHistoryAttributes(getters), pagedAttributes);
+	}
+
+	private static long getSnapshotPeriodMillis(Class<?> objectType) {
+		SnapshotRefresh snapshotRefresh = objectType.getAnnotation(SnapshotRefresh.class);
+		return snapshotRefresh != null ? snapshotRefresh.periodMillis() : 1000L;
+	}
+
+	/**
+	 * Adds the operations reading the attribute history, if the MBean has history attributes, see {@link HistorySampler},
+	 * and the operations reading the paged attributes, see {@link PagedAttribute}.
+	 *
+	 * @throws ManagementException if the class already has an operation named as one of the added operations.
+	 */
+	private static MBeanOperationInfo[] buildMBeanOperations(MBeanOperationInfo[] mBeanOperations, List<HistoryAttribute> historyAttributes, Map<String, PagedAttribute> pagedAttributes) {
+		List<MBeanOperationInfo> addedOperations = new ArrayList<>();
+		if (!historyAttributes.isEmpty())
+			addedOperations.addAll(Arrays.asList(HistorySampler.OPERATIONS));
+		for (PagedAttribute pagedAttribute : pagedAttributes.values())
+			addedOperations.add(pagedAttribute.getMBeanOperation());
+		if (addedOperations.isEmpty())
+			return mBeanOperations;
+		for (MBeanOperationInfo mBeanOperation : mBeanOperations) {
+			for (MBeanOperationInfo addedOperation : addedOperations) {
+				if (mBeanOperation.getName().equals(addedOperation.getName()))
+					throw new ManagementException("Operation " + mBeanOperation.getName() + " is reserved for reading history or paged attributes.");
+			}
+		}
+		MBeanOperationInfo[] allOperations = Arrays.copyOf(mBeanOperations, mBeanOperations.length + addedOperations.size());
+		for (int i = 0; i < addedOperations.size(); i++)
+			allOperations[mBeanOperations.length + i] = addedOperations.get(i);
+		return allOperations;
+	}
+
+	private static MBeanNotificationInfo[] buildMBeanNotifications(List<NotifyingAttribute> notifyingAttributes) {
+		if (notifyingAttributes.isEmpty())
+			return new MBeanNotificationInfo[0];
+		return new MBeanNotificationInfo[] {
+			new MBeanNotificationInfo(new String[] {AttributeChangeNotification.ATTRIBUTE_CHANGE}, AttributeChangeNotification.class.getName(), "Attribute changes")
+		};
+	}
+
+	/**
+	 * Resolves the getters of the readable attributes of an already built MBeanInfo, whose annotations tell the
+	 * notifying, snapshot, history and paged attributes.
+	 *
+	 * @param objectType         the class of the object exposed as MBean.
+	 * @param mBeanInfo          the MBeanInfo describing the attributes.
+	 * @param attributeAccessors the resolved attribute accessors.
+	 * @return the getters by attribute accessor, in the order of the MBeanInfo attributes.
+	 */
+	private static Map<AttributeAccessor, Method> findGetters(Class<?> objectType, MBeanInfo mBeanInfo, Map<String, AttributeAccessor> attributeAccessors) {
+		Map<AttributeAccessor, Method> getters = new LinkedHashMap<>();
+		for (MBeanAttributeInfo mBeanAttribute : mBeanInfo.getAttributes()) {
+			AttributeAccessor attributeAccessor = attributeAccessors.get(mBeanAttribute.getName());
+			if (!attributeAccessor.isReadable())
+				continue;
+			Method getter = findGetterMethod(objectType, mBeanAttribute.getName());
+			if (getter != null)
+				getters.put(attributeAccessor, getter);
+		}
+		return getters;
+	}
+
+	/**
+	 * Finds the attributes whose getters are annotated with {@link ManagedNotification}. Notifications are emitted only
+	 * if the MBeanInfo declares attribute change notifications.
+	 *
+	 * @param mBeanInfo the MBeanInfo describing the attributes and notifications.
+	 * @param getters   the getters of the readable attributes.
+	 * @return an immutable list of notifying attributes.
+	 */
+	private static List<NotifyingAttribute> findNotifyingAttributes(MBeanInfo mBeanInfo, Map<AttributeAccessor, Method> getters) {
+		if (!declaresAttributeChanges(mBeanInfo))
+			return Collections.emptyList();
+		List<NotifyingAttribute> notifyingAttributes = new ArrayList<>();
+		for (Map.Entry<AttributeAccessor, Method> getter : getters.entrySet()) {
+			ManagedNotification managedNotification = getter.getValue().getAnnotation(ManagedNotification.class);
+			if (managedNotification != null)
+				notifyingAttributes.add(new NotifyingAttribute(getter.getKey(), managedNotification.windowMillis()));
+		}
+		return Collections.unmodifiableList(notifyingAttributes);
+	}
+
+	/**
+	 * Finds the attributes whose getters are annotated as {@link ManagedAttribute#snapshot()}.
+	 */
+	private static List<AttributeAccessor> findSnapshotAttributes(Map<AttributeAccessor, Method> getters) {
+		List<AttributeAccessor> snapshotAttributes = new ArrayList<>();
+		for (Map.Entry<AttributeAccessor, Method> getter : getters.entrySet()) {
+			ManagedAttribute managedAttribute = getter.getValue().getAnnotation(ManagedAttribute.class);
+			if (managedAttribute != null && managedAttribute.snapshot())
+				snapshotAttributes.add(checkSnapshotAttribute(getter.getKey()));
+		}
+		return Collections.unmodifiableList(snapshotAttributes);
+	}
+
+	/**
+	 * Finds the attributes whose getters are annotated with {@link ManagedHistory}. The history operations are
+	 * available even if the MBeanInfo does not declare them.
+	 */
+	private static List<HistoryAttribute> findHistoryAttributes(Map<AttributeAccessor, Method> getters) {
+		List<HistoryAttribute> historyAttributes = new ArrayList<>();
+		for (Map.Entry<AttributeAccessor, Method> getter : getters.entrySet()) {
+			ManagedHistory managedHistory = getter.getValue().getAnnotation(ManagedHistory.class);
+			if (managedHistory != null)
+				historyAttributes.add(new HistoryAttribute(getter.getKey(), managedHistory.size(), managedHistory.periodMillis()));
+		}
+		return Collections.unmodifiableList(historyAttributes);
+	}
+
+	/**
+	 * Finds the attributes whose getters are annotated as {@link ManagedAttribute#paged()}. The page operations are
+	 * available even if the MBeanInfo does not declare them.
+	 */
+	private static Map<String, PagedAttribute> findPagedAttributes(Class<?> objectType, Map<AttributeAccessor, Method> getters, InvocationEngine engine) {
+		Map<String, PagedAttribute> pagedAttributes = new HashMap<>();
+		for (Map.Entry<AttributeAccessor, Method> getter : getters.entrySet()) {
+			ManagedAttribute managedAttribute = getter.getValue().getAnnotation(ManagedAttribute.class);
+			if (managedAttribute != null && managedAttribute.paged()) {
+				PagedAttribute pagedAttribute = new PagedAttribute(objectType, getter.getKey(), engine);
+				pagedAttributes.put(pagedAttribute.getOperationName(), pagedAttribute);
+			}
+		}
+		return Collections.unmodifiableMap(pagedAttributes);
+	}
 
-		// create the MBean
-		return new MBeanImpl(object, mBeanInfo);
+	private static Method findGetterMethod(Class<?> objectType, String attributeName) {
+		try {
+			return objectType.getMethod("get" + capitalize(attributeName));
+		}
+		catch (NoSuchMethodException ignored) {}
+		try {
+			return objectType.getMethod("is" + capitalize(attributeName));
+		}
+		catch (NoSuchMethodException ignored) {}
+		return null;
+	}
 
+	private static AttributeAccessor checkSnapshotAttribute(AttributeAccessor attributeAccessor) {
+		if (!attributeAccessor.isReadable())
+			throw new ManagementException("Snapshot attribute " + attributeAccessor.getName() + " is not readable.");
+		if (attributeAccessor.isCached())
+			throw new ManagementException("Snapshot attribute " + attributeAccessor.getName() + " cannot be cached.");
+		return attributeAccessor;
+	}
+
+	private static boolean declaresAttributeChanges(MBeanInfo mBeanInfo) {
+		for (MBeanNotificationInfo mBeanNotification : mBeanInfo.getNotifications()) {
+			if (Arrays.asList(mBeanNotification.getNotifTypes()).contains(AttributeChangeNotification.ATTRIBUTE_CHANGE))
+				return true;
+		}
+		return false;
+	}
+
+	private static Optional<MethodHandle> findGeneratedMBean(Class<?> objectType) {
+		Class<?> generatedType;
+		try {
+			generatedType = Class.forName(objectType.getName() + GENERATED_MBEAN_SUFFIX, true, objectType.getClassLoader());
+		}
+		catch (ClassNotFoundException ex) {
+			return Optional.empty();
+		}
+		if (!GeneratedMBean.class.isAssignableFrom(generatedType))
+			return Optional.empty();
+		try {
+			MethodHandle constructor = MethodHandles.publicLookup().findConstructor(generatedType, MethodType.methodType(void.class, objectType));
+			return Optional.of(constructor.asType(MethodType.methodType(DynamicMBean.class, Object.class)));
+		}
+		catch (ReflectiveOperationException ex) {
+			throw new ManagementException(ex);
+		}
+	}
+
+	/**
+	 * Retrieves the statistics of the operation signature cache shared by all the MBeans created by this factory.
+	 *
+	 * @return the signature cache statistics.
+	 */
+	public static SignatureCacheStatistics getSignatureCacheStatistics() {
+		return MBeanMetadata.SIGNATURE_CACHE_STATISTICS;
+	}
+
+	/**
+	 * Resolves the attribute accessors of an object type from an already built MBeanInfo.
+	 *
+	 * @param objectType the class of the object exposed as MBean.
+	 * @param mBeanInfo  the MBeanInfo describing the attributes.
+	 * @param engine     the engine used to bind getters and setters.
+	 * @return an immutable map of attribute accessors by attribute name.
+	 * @throws ManagementException if the type of some attribute cannot be found.
+	 */
+	private static Map<String, AttributeAccessor> createAttributeAccessors(Class<?> objectType, MBeanInfo mBeanInfo, InvocationEngine engine) {
+		Map<String, AttributeAccessor> attributeAccessors = new HashMap<>();
+		for (MBeanAttributeInfo mBeanAttribute : mBeanInfo.getAttributes()) {
+			String attributeName = mBeanAttribute.getName();
+			try {
+				Class<?> attributeType = findClass(mBeanAttribute.getType());
+				Invoker getter = null;
+				long cacheMillis = 0L;
+				if (mBeanAttribute.isReadable()) {
+					try {
+						Method getterMethod = objectType.getMethod((mBeanAttribute.isIs() ? "is" : "get") + capitalize(attributeName));
+						getter = engine.bind(getterMethod);
+						ManagedAttribute managedAttribute = getterMethod.getAnnotation(ManagedAttribute.class);
+						cacheMillis = managedAttribute != null ? managedAttribute.cacheMillis() : 0L;
+					}
+					catch (NoSuchMethodException ignored) {}
+				}
+				Invoker setter = null;
+				if (mBeanAttribute.isWritable()) {
+					try {
+						setter = engine.bind(objectType.getMethod("set" + capitalize(attributeName), attributeType));
+					}
+					catch (NoSuchMethodException ignored) {}
+				}
+				attributeAccessors.put(attributeName, new AttributeAccessor(attributeName, attributeType, getter, setter, cacheMillis));
+			}
+			catch (ClassNotFoundException e) {
+				throw new ManagementException(e);
+			}
+		}
+		return Collections.unmodifiableMap(attributeAccessors);
+	}
+
+	/**
+	 * Resolves the operation invokers of an object type from an already built MBeanInfo.
+	 *
+	 * @param objectType the class of the object exposed as MBean.
+	 * @param mBeanInfo  the MBeanInfo describing the operations.
+	 * @param engine     the engine used to bind the operations.
+	 * @return an immutable map of operation invokers by operation name.
+	 * @throws ManagementException if some operation or its parameter types cannot be found.
+	 */
+	private static Map<String, List<OperationInvoker>> createOperationInvokers(Class<?> objectType, MBeanInfo mBeanInfo, Map<String, PagedAttribute> pagedAttributes, InvocationEngine engine) {
+		Map<String, List<OperationInvoker>> operationInvokers = new HashMap<>();
+		for (MBeanOperationInfo mBeanOperation : mBeanInfo.getOperations()) {
+			if (Arrays.asList(HistorySampler.OPERATIONS).contains(mBeanOperation) || pagedAttributes.containsKey(mBeanOperation.getName()))
+				continue;
+			try {
+				MBeanParameterInfo[] signature = mBeanOperation.getSignature();
+				Class<?>[] paramTypes = new Class<?>[signature.length];
+				for (int i = 0; i < signature.length; i++)
+					paramTypes[i] = findClass(signature[i].getType());
+				Method method = objectType.getMethod(mBeanOperation.getName(), paramTypes);
+				addOperationInvoker(operationInvokers, new OperationInvoker(mBeanOperation, paramTypes, engine.bind(method)));
+			}
+			catch (ReflectiveOperationException e) {
+				throw new ManagementException(e);
+			}
+		}
+		return Collections.unmodifiableMap(operationInvokers);
+	}
+
+	private static void addOperationInvoker(Map<String, List<OperationInvoker>> operationInvokers, OperationInvoker operationInvoker) {
+		List<OperationInvoker> overloads = operationInvokers.get(operationInvoker.getName());
+		if (overloads == null) {
+			overloads = new ArrayList<>(1);
+			operationInvokers.put(operationInvoker.getName(), overloads);
+		}
+		overloads.add(operationInvoker);
 	}
 
 	/**
@@ -57,16 +413,25 @@ public final class MBeanFactory {
 	private class MethodHandler {
 
 		private Class<?> objectType;
+		private InvocationEngine engine;
 		private Collection<MBeanAttributeInfo> mBeanAttributes = new ArrayList<>();
 		private Collection<MBeanOperationInfo> mBeanOperations = new ArrayList<>();
+		private Map<String, AttributeAccessor> attributeAccessors = new HashMap<>();
+		private Map<String, List<OperationInvoker>> operationInvokers = new HashMap<>();
+		private List<NotifyingAttribute> notifyingAttributes = new ArrayList<>();
+		private List<AttributeAccessor> snapshotAttributes = new ArrayList<>();
+		private List<HistoryAttribute> historyAttributes = new ArrayList<>();
+		private Map<String, PagedAttribute> pagedAttributes = new HashMap<>();
 
 		/**
 		 * Constructor. Initializes the object with the specified class.
 		 *
 		 * @param objectType the class of the object that the MBeanFactory is handling.
+		 * @param engine     the engine used to bind the handled methods.
 		 */
-		public MethodHandler(Class<?> objectType) {
+		public MethodHandler(Class<?> objectType, InvocationEngine engine) {
 			this.objectType = objectType;
+			this.engine = engine;
 		}
 
 		/**
@@ -83,6 +448,8 @@ public final class MBeanFactory {
 			boolean hasManagedOperation = method.isAnnotationPresent(ManagedOperation.class);
 			if (hasManagedAttribute && hasManagedOperation)
 				throw new ManagementException("Method " + method.getName() + " cannot have both ManagedAttribute and " +	"ManagedOperation annotations.");
+			if (method.isAnnotationPresent(ManagedNotification.class) && !isGetterMethod(method))
+				throw new ManagementException("Method " + method.getName() + " is annotated as ManagedNotification but doesn't looks like a valid getter.");
 			if (hasManagedAttribute)
 				handleManagedAttribute(method);
 			if (hasManagedOperation)
@@ -109,6 +476,66 @@ public final class MBeanFactory {
 			return mBeanOperations.toArray(new MBeanOperationInfo[mBeanOperations.size()]);
 		}
 
+		/**
+		 * Called after the {@link #handleMethod(Method)} is called for all the methods of the <code>objectType</code>.
+		 * Retrieves the accessors of the exposed attributes.
+		 *
+		 * @return an immutable map of attribute accessors by attribute name. It will never return null.
+		 */
+		public Map<String, AttributeAccessor> getAttributeAccessors() {
+			return Collections.unmodifiableMap(attributeAccessors);
+		}
+
+		/**
+		 * Called after the {@link #handleMethod(Method)} is called for all the methods of the <code>objectType</code>.
+		 * Retrieves the invokers of the exposed operations.
+		 *
+		 * @return an immutable map of operation invokers by operation name. It will never return null.
+		 */
+		public Map<String, List<OperationInvoker>> getOperationInvokers() {
+			return Collections.unmodifiableMap(operationInvokers);
+		}
+
+		/**
+		 * Called after the {@link #handleMethod(Method)} is called for all the methods of the <code>objectType</code>.
+		 * Retrieves the exposed attributes whose getters are annotated with {@link ManagedNotification}.
+		 *
+		 * @return an immutable list of notifying attributes. It will never return null.
+		 */
+		public List<NotifyingAttribute> getNotifyingAttributes() {
+			return Collections.unmodifiableList(notifyingAttributes);
+		}
+
+		/**
+		 * Called after the {@link #handleMethod(Method)} is called for all the methods of the <code>objectType</code>.
+		 * Retrieves the exposed attributes annotated as {@link ManagedAttribute#snapshot()}.
+		 *
+		 * @return an immutable list of snapshot attributes. It will never return null.
+		 */
+		public List<AttributeAccessor> getSnapshotAttributes() {
+			return Collections.unmodifiableList(snapshotAttributes);
+		}
+
+		/**
+		 * Called after the {@link #handleMethod(Method)} is called for all the methods of the <code>objectType</code>.
+		 * Retrieves the exposed attributes whose getters are annotated with {@link ManagedHistory}.
+		 *
+		 * @return an immutable list of history attributes. It will never return null.
+		 */
+		public List<HistoryAttribute> getHistoryAttributes() {
+			return Collections.unmodifiableList(historyAttributes);
+		}
+
+		/**
+		 * Called after the {@link #handleMethod(Method)} is called for all the methods of the <code>objectType</code>.
+		 * Retrieves the exposed attributes annotated as {@link ManagedAttribute#paged()}.
+		 *
+		 * @return an immutable map of paged attributes by the name of their page operation. It will never return null.
+		 */
+		public Map<String, PagedAttribute> getPagedAttributes() {
+			return Collections.unmodifiableMap(pagedAttributes);
+		}
+
 		private void handleManagedAttribute(Method method) {
 			// validate if the method is a getter or setter
 			Method getterMethod = isGetterMethod(method) ? method : null;
@@ -131,8 +558,26 @@ public final class MBeanFactory {
 			if (!existsAttribute) {
 				// add the MBeanAttribute to the collection
 				MBeanAttributeInfo mBeanAttribute = buildMBeanAttribute(attributeName, attributeType, getterMethod, setterMethod, method);
-				if (mBeanAttribute != null)
+				if (mBeanAttribute != null) {
 					mBeanAttributes.add(mBeanAttribute);
+					ManagedAttribute managedAttribute = method.getAnnotation(ManagedAttribute.class);
+					AttributeAccessor attributeAccessor = new AttributeAccessor(attributeName, attributeType,
+						mBeanAttribute.isReadable() ? engine.bind(getterMethod) : null, mBeanAttribute.isWritable() ? engine.bind(setterMethod) : null,
+						managedAttribute.cacheMillis());
+					attributeAccessors.put(attributeName, attributeAccessor);
+					if (managedAttribute.snapshot())
+						snapshotAttributes.add(checkSnapshotAttribute(attributeAccessor));
+					if (managedAttribute.paged()) {
+						PagedAttribute pagedAttribute = new PagedAttribute(objectType, attributeAccessor, engine);
+						pagedAttributes.put(pagedAttribute.getOperationName(), pagedAttribute);
+					}
+					ManagedNotification managedNotification = getterMethod != null ? getterMethod.getAnnotation(ManagedNotification.class) : null;
+					if (managedNotification != null && mBeanAttribute.isReadable())
+						notifyingAttributes.add(new NotifyingAttribute(attributeAccessor, managedNotification.windowMillis()));
+					ManagedHistory managedHistory = getterMethod != null ? getterMethod.getAnnotation(ManagedHistory.class) : null;
+					if (managedHistory != null)
+						historyAttributes.add(new HistoryAttribute(attributeAccessor, managedHistory.size(), managedHistory.periodMillis()));
+				}
 			}
 			else
 				throw new ManagementException("Both getter and setter are annotated for attribute " + attributeName + ". Please remove one of the annotations.");
@@ -146,18 +591,6 @@ public final class MBeanFactory {
 			return method.getName().startsWith("set") && method.getReturnType().equals(Void.TYPE) && method.getParameterTypes().length == 1;
 		}
 
-		private Method findGetterMethod(Class<?> objectType, String attributeName) {
-			try {
-				return objectType.getMethod("get" + capitalize(attributeName));
-			}
-			catch (NoSuchMethodException ignored) {}
-			try {
-				return objectType.getMethod("is" + capitalize(attributeName));
-			}
-			catch (NoSuchMethodException ignored) {}
-			return null;
-		}
-
 		private Method findSetterMethod(Class<?> objectType, String name, Class<?> attributeType) {
 			try {
 				return objectType.getMethod("set" + capitalize(name), attributeType);
@@ -188,7 +621,9 @@ public final class MBeanFactory {
 		private void handleManagedOperation(Method method) {
 			MBeanParameterInfo[] mBeanParameters = buildMBeanParameters(method.getParameterTypes(), method.getParameterAnnotations());
 			ManagedOperation managedOperation = method.getAnnotation(ManagedOperation.class);
-			mBeanOperations.add(new MBeanOperationInfo(method.getName(), managedOperation.description(), mBeanParameters, method.getReturnType().getName(), managedOperation.impact().getCode()));
+			MBeanOperationInfo mBeanOperation = new MBeanOperationInfo(method.getName(), managedOperation.description(), mBeanParameters, method.getReturnType().getName(), managedOperation.impact().getCode());
+			mBeanOperations.add(mBeanOperation);
+			addOperationInvoker(operationInvokers, new OperationInvoker(mBeanOperation, method.getParameterTypes(), engine.bind(method)));
 		}
 
 		private MBeanParameterInfo[] buildMBeanParameters(Class<?>[] paramsTypes, Annotation[][] paramsAnnotations) {
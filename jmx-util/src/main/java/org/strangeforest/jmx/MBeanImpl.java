@@ -1,260 +1,343 @@
 package org.strangeforest.jmx;
 
-import java.lang.reflect.*;
+import java.lang.ref.*;
+import java.util.*;
 import javax.management.*;
 
-import static org.strangeforest.jmx.MBeanUtil.*;
-
 /**
- * This is the DynamicMBean implementation that is returned from the {@link MBeanFactory#createMBean(Object)} method.
+ * <p>This is the DynamicMBean implementation that is returned from the {@link MBeanFactory#createMBean(Object)} method.</p>
+ * <p>If the managed object has attributes annotated with {@link org.strangeforest.jmx.annotation.ManagedNotification},
+ * their changes are notified to listeners while the MBean is registered in an MBeanServer, and the
+ * {@link NotificationDispatchStatistics} are registered along with the MBean.</p>
+ * <p>Values of attributes with {@link org.strangeforest.jmx.annotation.ManagedAttribute#cacheMillis()} set are cached
+ * per MBean, see {@link CachedAttribute}. Values of snapshot attributes are read in background while the MBean is
+ * registered, see {@link SnapshotRefresher}, and their {@link SnapshotStatistics} are registered along with the MBean.
+ * Likewise, attributes annotated with {@link org.strangeforest.jmx.annotation.ManagedHistory} are sampled while the
+ * MBean is registered, see {@link HistorySampler}, and their {@link HistoryStatistics} are registered along with the
+ * MBean. Attributes annotated as {@link org.strangeforest.jmx.annotation.ManagedAttribute#paged()} can be read in
+ * pages, see {@link PagedAttribute}.</p>
  */
 @MXBean
-public class MBeanImpl implements DynamicMBean {
+public class MBeanImpl implements ManagedMBean, NotificationEmitter, MBeanRegistration {
+
+	private static final String SNAPSHOT_STATISTICS = "snapshot";
+	private static final String HISTORY_STATISTICS = "history";
+	private static final String NOTIFICATION_STATISTICS = "notifications";
 
 	private Object object;
-	private MBeanInfo mBeanInfo;
+	private MBeanMetadata metadata;
+	private Map<String, CachedAttribute> cachedAttributes;
+	private SnapshotRefresher snapshotRefresher;
+	private HistorySampler historySampler;
+	private AsyncNotificationEmitter broadcaster;
+	private WeakReference<MBeanServer> server; // weak, so the MBeanRegistry entry of the server can be cleared
+	private ObjectName name;
+	private final List<ObjectName> statisticsNames = new ArrayList<>(2);
 
 	public MBeanImpl(Object object, MBeanInfo mBeanInfo) {
+		this(object, mBeanInfo, InvocationEngine.getDefault());
+	}
+
+	public MBeanImpl(Object object, MBeanInfo mBeanInfo, InvocationEngine engine) {
+		this(object, MBeanFactory.createMetadata(object.getClass(), mBeanInfo, engine));
+	}
+
+	MBeanImpl(Object object, MBeanMetadata metadata) {
 		this.object = object;
-		this.mBeanInfo = mBeanInfo;
+		this.metadata = metadata;
+		cachedAttributes = createCachedAttributes(metadata);
+		if (metadata.hasSnapshotAttributes())
+			snapshotRefresher = new SnapshotRefresher(object, metadata);
+		if (metadata.hasHistoryAttributes())
+			historySampler = new HistorySampler(object, metadata);
+		if (metadata.hasNotifyingAttributes())
+			broadcaster = new AttributeChangeNotifier(object, metadata);
+	}
+
+	private static Map<String, CachedAttribute> createCachedAttributes(MBeanMetadata metadata) {
+		Map<String, CachedAttribute> cachedAttributes = null;
+		for (MBeanAttributeInfo attributeInfo : metadata.getMBeanInfo().getAttributes()) {
+			AttributeAccessor attributeAccessor = metadata.getAttributeAccessor(attributeInfo.getName());
+			if (attributeAccessor != null && attributeAccessor.isCached()) {
+				if (cachedAttributes == null)
+					cachedAttributes = new HashMap<>();
+				cachedAttributes.put(attributeAccessor.getName(), new CachedAttribute(attributeAccessor));
+			}
+		}
+		return cachedAttributes != null ? cachedAttributes : Collections.<String, CachedAttribute>emptyMap();
 	}
 
 	@Override public Object getAttribute(String attributeName) throws AttributeNotFoundException, MBeanException, ReflectionException {
 		if (attributeName == null)
-			throw new RuntimeOperationsException(new IllegalArgumentException("Attribute name cannot be null"), "Cannot invoke a getter of " + mBeanInfo.getClassName() + " with null attribute name");
-		MBeanAttributeInfo mBeanAttribute = findMBeanAttribute(attributeName);
-		if (mBeanAttribute == null)
-			throw new AttributeNotFoundException("Cannot find " + attributeName + " attribute in " + mBeanInfo.getClassName());
-		Method getterMethod = findGetterMethod(mBeanAttribute);
-		if (getterMethod == null)
-			throw new AttributeNotFoundException("Cannot find " + attributeName + " attribute or equivalent getter in " + mBeanInfo.getClassName());
+			throw new RuntimeOperationsException(new IllegalArgumentException("Attribute name cannot be null"), "Cannot invoke a getter of " + metadata.getClassName() + " with null attribute name");
+		AttributeAccessor attributeAccessor = metadata.getAttributeAccessor(attributeName);
+		if (attributeAccessor == null)
+			throw new AttributeNotFoundException("Cannot find " + attributeName + " attribute in " + metadata.getClassName());
+		if (!attributeAccessor.isReadable())
+			throw new AttributeNotFoundException("Cannot find " + attributeName + " attribute or equivalent getter in " + metadata.getClassName());
 		try {
-			return getterMethod.invoke(object);
+			return readAttribute(attributeAccessor);
 		}
 		catch (Exception e) {
 			throw new MBeanException(e);
 		}
 	}
 
+	/**
+	 * Reads the attributes in a single pass over the requested names. As specified by <code>DynamicMBean</code>,
+	 * attributes that do not exist, are not readable or whose getter fails are omitted from the result.
+	 */
 	@Override public AttributeList getAttributes(String[] attributesNames) {
 		if (attributesNames == null)
-			throw new RuntimeOperationsException(new IllegalArgumentException("attributeNames[] cannot be null"), "Cannot invoke a getter of " + mBeanInfo.getClassName());
-		AttributeList resultList = new AttributeList();
+			throw new RuntimeOperationsException(new IllegalArgumentException("attributeNames[] cannot be null"), "Cannot invoke a getter of " + metadata.getClassName());
+		AttributeList resultList = new AttributeList(attributesNames.length);
 		if (attributesNames.length == 0)
 			return resultList;
+		if (metadata.isSynchronizedAttributes()) {
+			synchronized (object) {
+				readAttributes(attributesNames, resultList);
+			}
+		}
+		else
+			readAttributes(attributesNames, resultList);
+		return resultList;
+	}
+
+	private void readAttributes(String[] attributesNames, AttributeList resultList) {
 		for (String attributesName : attributesNames) {
+			AttributeAccessor attributeAccessor = attributesName != null ? metadata.getAttributeAccessor(attributesName) : null;
+			if (attributeAccessor == null || !attributeAccessor.isReadable())
+				continue;
 			try {
-				Object value = getAttribute(attributesName);
-				resultList.add(new Attribute(attributesName, value));
-			}
-			catch (Exception e) {
-				throw new RuntimeException(e);
+				resultList.add(new Attribute(attributesName, readAttribute(attributeAccessor)));
 			}
+			catch (Exception ignored) {}
 		}
-		return resultList;
+	}
+
+	private Object readAttribute(AttributeAccessor attributeAccessor) throws Exception {
+		String attributeName = attributeAccessor.getName();
+		if (snapshotRefresher != null && snapshotRefresher.isSnapshotAttribute(attributeName))
+			return snapshotRefresher.get(attributeName);
+		return attributeAccessor.isCached() ? cachedAttributes.get(attributeName).get(object) : attributeAccessor.get(object);
 	}
 
 	@Override public void setAttribute(Attribute attribute) throws AttributeNotFoundException, InvalidAttributeValueException, MBeanException, ReflectionException {
 		if (attribute == null)
-			throw new RuntimeOperationsException(new IllegalArgumentException("Attribute cannot be null"), "Cannot invoke a setter of " + mBeanInfo.getClassName() + " with null attribute");
+			throw new RuntimeOperationsException(new IllegalArgumentException("Attribute cannot be null"), "Cannot invoke a setter of " + metadata.getClassName() + " with null attribute");
 		String attributeName = attribute.getName();
 		Object value = attribute.getValue();
 		if (attributeName == null)
-			throw new RuntimeOperationsException(new IllegalArgumentException("Attribute name cannot be null"), "Cannot invoke the setter of " + mBeanInfo.getClassName() + " with null attribute name");
+			throw new RuntimeOperationsException(new IllegalArgumentException("Attribute name cannot be null"), "Cannot invoke the setter of " + metadata.getClassName() + " with null attribute name");
 		if (value == null)
 			throw new InvalidAttributeValueException("Cannot set attribute " + attributeName + " to null");
-		MBeanAttributeInfo mBeanAttribute = findMBeanAttribute(attributeName);
-		if (mBeanAttribute == null)
-			throw new AttributeNotFoundException("Cannot find " + attributeName + " attribute in " + mBeanInfo.getClassName());
-
+		AttributeAccessor attributeAccessor = metadata.getAttributeAccessor(attributeName);
+		if (attributeAccessor == null)
+			throw new AttributeNotFoundException("Cannot find " + attributeName + " attribute in " + metadata.getClassName());
+		if (!attributeAccessor.isAssignableFrom(value))
+			throw new InvalidAttributeValueException("Cannot set attribute " + attributeName + " to a " + value.getClass().getName() + " object, " + attributeAccessor.getType().getName() + " expected");
+		if (!attributeAccessor.isWritable())
+			throw new ManagementException("No setter method for attribute " + attributeName);
 		try {
-			Class<?> type = findClass(mBeanAttribute.getType());
-			if (!isAssignable(type, value.getClass()))
-				throw new InvalidAttributeValueException("Cannot set attribute " + attributeName + " to a " + value.getClass().getName() + " object, " + type.getName() + " expected");
-			Method setterMethod = findSetterMethod(mBeanAttribute, type);
-			if (setterMethod == null)
-				throw new ManagementException("No setter method for attribute " + attributeName);
-			try {
-				setterMethod.invoke(object, value);
-			}
-			catch (Exception e) {
-				throw new MBeanException(e);
-			}
+			attributeAccessor.set(object, value);
+			if (attributeAccessor.isCached())
+				cachedAttributes.get(attributeName).invalidate();
+			if (snapshotRefresher != null && snapshotRefresher.isSnapshotAttribute(attributeName))
+				snapshotRefresher.set(attributeName, value);
 		}
-		catch (ClassNotFoundException e) {
-			throw new ManagementException(e);
+		catch (Exception e) {
+			throw new MBeanException(e);
 		}
 	}
 
+	/**
+	 * Writes the attributes in a single pass over the received list. As specified by <code>DynamicMBean</code>,
+	 * attributes that cannot be written are omitted from the result, which holds the values that were set.
+	 */
 	@Override public AttributeList setAttributes(AttributeList attributes) {
 		if (attributes == null)
-			throw new RuntimeOperationsException(new IllegalArgumentException("AttributeList attributes cannot be null"), "Cannot invoke a setter of " + mBeanInfo.getClassName());
-		AttributeList resultList = new AttributeList();
+			throw new RuntimeOperationsException(new IllegalArgumentException("AttributeList attributes cannot be null"), "Cannot invoke a setter of " + metadata.getClassName());
+		AttributeList resultList = new AttributeList(attributes.size());
 		if (attributes.isEmpty())
 			return resultList;
-		try {
-			for (Object attribute : attributes) {
-				Attribute attr = (Attribute)attribute;
-				setAttribute(attr);
-				String name = attr.getName();
-				Object value = getAttribute(name);
-				resultList.add(new Attribute(name, value));
+		if (metadata.isSynchronizedAttributes()) {
+			synchronized (object) {
+				writeAttributes(attributes, resultList);
 			}
 		}
-		catch (Exception e) {
-			throw new ManagementException(e);
-		}
+		else
+			writeAttributes(attributes, resultList);
 		return resultList;
 	}
 
+	private void writeAttributes(AttributeList attributes, AttributeList resultList) {
+		for (Object attribute : attributes) {
+			if (!(attribute instanceof Attribute))
+				continue;
+			Attribute attr = (Attribute)attribute;
+			try {
+				setAttribute(attr);
+				resultList.add(attr);
+			}
+			catch (Exception ignored) {}
+		}
+	}
+
 	@Override public Object invoke(String actionName, Object[] params, String[] signature) throws MBeanException, ReflectionException {
 		if (actionName == null)
-			throw new RuntimeOperationsException(new IllegalArgumentException("Operation name cannot be null"), "Cannot invoke a null operation in " + mBeanInfo.getClassName());
-		MBeanOperationInfo mBeanOperation = findMBeanOperation(actionName, signature);
-		if (mBeanOperation == null)
-			throw new ReflectionException(new NoSuchMethodException(actionName), "Cannot find the operation " + actionName + " with specified signature in " + mBeanInfo.getClassName());
+			throw new RuntimeOperationsException(new IllegalArgumentException("Operation name cannot be null"), "Cannot invoke a null operation in " + metadata.getClassName());
+		if (historySampler != null && HistorySampler.isOperation(actionName, signature)) {
+			try {
+				return historySampler.invoke(actionName, params);
+			}
+			catch (Exception e) {
+				throw new ReflectionException(e);
+			}
+		}
+		PagedAttribute pagedAttribute = metadata.getPagedAttribute(actionName);
+		if (pagedAttribute != null && Arrays.equals(PagedAttribute.SIGNATURE, signature)) {
+			try {
+				return pagedAttribute.page(object, params);
+			}
+			catch (Exception e) {
+				throw new ReflectionException(e);
+			}
+		}
+		OperationInvoker operationInvoker;
+		try {
+			operationInvoker = metadata.resolveOperation(actionName, signature);
+		}
+		catch (ClassNotFoundException e) {
+			throw new ReflectionException(e, "Cannot find the class of some " + actionName + " operation parameter in " + metadata.getClassName());
+		}
+		if (operationInvoker == null)
+			throw new ReflectionException(new NoSuchMethodException(actionName), "Cannot find the operation " + actionName + " with specified signature in " + metadata.getClassName());
 
 		try {
-			Method method = object.getClass().getMethod(actionName, getParametersTypes(signature));
-			return method.invoke(object, params);
+			return operationInvoker.invoke(object, params);
 		}
 		catch (Exception e) {
 			throw new ReflectionException(e);
 		}
 	}
 
-	private Class<?>[] getParametersTypes(String[] signature) throws ClassNotFoundException {
-		if (signature == null)
-			return null;
-		Class<?>[] paramTypes = new Class<?>[signature.length];
-		for (int i = 0; i < signature.length; i++)
-			paramTypes[i] = findClass(signature[i]);
-		return paramTypes;
+	@Override public MBeanInfo getMBeanInfo() {
+		return metadata.getMBeanInfo();
 	}
 
-	@Override public MBeanInfo getMBeanInfo() {
-		return mBeanInfo;
+	@Override public Object getManagedObject() {
+		return object;
 	}
 
-	private MBeanAttributeInfo findMBeanAttribute(String attributeName) {
-		MBeanAttributeInfo[] mBeanAttributes = mBeanInfo.getAttributes();
-		for (MBeanAttributeInfo mBeanAttribute : mBeanAttributes) {
-			if (mBeanAttribute.getName().equals(attributeName))
-				return mBeanAttribute;
-		}
-		return null;
+	@Override public void addNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback) {
+		getBroadcaster().addNotificationListener(listener, filter, handback);
 	}
 
-	private MBeanOperationInfo findMBeanOperation(String operationName, String[] receivedSignature) {
-		MBeanOperationInfo[] mBeanOperations = mBeanInfo.getOperations();
-		for (MBeanOperationInfo mBeanOperation : mBeanOperations) {
-			if (mBeanOperation.getName().equals(operationName)
-				&& isAssignableSignature(mBeanOperation.getSignature(), receivedSignature)) {
-				return mBeanOperation;
-			}
-		}
-		return null;
+	@Override public void removeNotificationListener(NotificationListener listener) throws ListenerNotFoundException {
+		getBroadcaster().removeNotificationListener(listener);
 	}
 
-	private boolean isAssignableSignature(MBeanParameterInfo[] operationSignature, String[] receivedSignature) {
-		if (operationSignature == null && receivedSignature == null)
-			return true;
-		if ((operationSignature == null) || (receivedSignature == null))
-			return false;
-		if (operationSignature.length != receivedSignature.length)
-			return false;
+	@Override public void removeNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback) throws ListenerNotFoundException {
+		getBroadcaster().removeNotificationListener(listener, filter, handback);
+	}
 
-		try {
-			for (int i = 0; i < operationSignature.length; i++) {
-				Class<?> operationParamClass = findClass(operationSignature[i].getType());
-				Class<?> receivedParamClass = findClass(receivedSignature[i]);
-				if (!isAssignable(operationParamClass, receivedParamClass))
-					return false;
-			}
-		}
-		catch (ClassNotFoundException e) {
-			throw new RuntimeException(e);
-		}
-		return true;
+	@Override public MBeanNotificationInfo[] getNotificationInfo() {
+		return metadata.getMBeanInfo().getNotifications();
 	}
 
-	private Method findGetterMethod(MBeanAttributeInfo mBeanAttribute) {
-		String prefix = "get";
-		if (mBeanAttribute.isIs())
-			prefix = "is";
-		try {
-			return object.getClass().getMethod(prefix + capitalize(mBeanAttribute.getName()));
-		}
-		catch (NoSuchMethodException e) {
-			return null;
-		}
+	private synchronized AsyncNotificationEmitter getBroadcaster() {
+		if (broadcaster == null)
+			broadcaster = new AsyncNotificationEmitter();
+		return broadcaster;
 	}
 
-	private Method findSetterMethod(MBeanAttributeInfo mBeanAttribute, Class<?> attributeType) {
+	/**
+	 * Registers the snapshot, history and notification statistics, if the MBean has snapshot, history or notifying
+	 * attributes. Nothing is registered if the name of the MBean is already taken, so the registration fails with
+	 * <code>InstanceAlreadyExistsException</code> for the MBean itself.
+	 */
+	@Override public ObjectName preRegister(MBeanServer server, ObjectName name) throws Exception {
+		this.server = new WeakReference<>(server);
+		this.name = name;
+		if (server.isRegistered(name))
+			return name;
 		try {
-			return object.getClass().getMethod("set" + capitalize(mBeanAttribute.getName()), attributeType);
+			if (snapshotRefresher != null)
+				registerStatistics(snapshotRefresher.getStatistics(), SNAPSHOT_STATISTICS);
+			if (historySampler != null)
+				registerStatistics(historySampler.getStatistics(), HISTORY_STATISTICS);
+			if (broadcaster instanceof AttributeChangeNotifier)
+				registerStatistics(broadcaster.getStatistics(), NOTIFICATION_STATISTICS);
 		}
-		catch (NoSuchMethodException e) {
-			return null;
+		catch (Exception ex) {
+			unregisterStatistics();
+			throw ex;
 		}
+		return name;
 	}
 
-	private Class<?> findClass(String className) throws ClassNotFoundException {
-		if (className == null)
-			throw new NullPointerException();
-		if (Integer.TYPE.getName().equals(className))
-			return Integer.TYPE;
-		else if (Byte.TYPE.getName().equals(className))
-			return Byte.TYPE;
-		else if (Short.TYPE.getName().equals(className))
-			return Short.TYPE;
-		else if (Long.TYPE.getName().equals(className))
-			return Long.TYPE;
-		else if (Float.TYPE.getName().equals(className))
-			return Float.TYPE;
-		else if (Double.TYPE.getName().equals(className))
-			return Double.TYPE;
-		else if (Boolean.TYPE.getName().equals(className))
-			return Boolean.TYPE;
-		else if (Character.TYPE.getName().equals(className))
-			return Character.TYPE;
-		return Class.forName(className);
+	/**
+	 * Starts polling the notifying attributes, refreshing the snapshot attributes and sampling the history attributes,
+	 * if any, once the MBean is registered.
+	 */
+	@Override public void postRegister(Boolean registrationDone) {
+		if (Boolean.TRUE.equals(registrationDone)) {
+			MBeanRegistry.registered(server.get(), name, this);
+			if (broadcaster instanceof AttributeChangeNotifier)
+				((AttributeChangeNotifier)broadcaster).start(name);
+			if (snapshotRefresher != null)
+				snapshotRefresher.start();
+			if (historySampler != null)
+				historySampler.start();
+		}
+		else
+			unregisterStatistics();
 	}
 
-	private boolean isAssignable(final Class<?> to, final Class<?> from) {
-		if (to == null)
-			throw new IllegalArgumentException("no to class specified");
-		if (from == null)
-			throw new IllegalArgumentException("no from class specified");
+	@Override public void preDeregister() {}
 
-		Class<?> toClass = to;
-		if (toClass.isPrimitive())
-			toClass = fromPrimitiveToObject(toClass);
+	@Override public void postDeregister() {
+		MBeanRegistry.unregistered(server.get(), name);
+		if (broadcaster instanceof AttributeChangeNotifier)
+			((AttributeChangeNotifier)broadcaster).stop();
+		if (snapshotRefresher != null)
+			snapshotRefresher.stop();
+		if (historySampler != null)
+			historySampler.stop();
+		unregisterStatistics();
+	}
 
-		Class<?> fromClass = from;
-		if (fromClass.isPrimitive())
-			fromClass = fromPrimitiveToObject(fromClass);
+	private ObjectName getStatisticsName(String statistics) throws MalformedObjectNameException {
+		Hashtable<String, String> properties = new Hashtable<>(name.getKeyPropertyList());
+		properties.put("statistics", statistics);
+		return new ObjectName(name.getDomain(), properties);
+	}
 
-		return toClass.isAssignableFrom(fromClass);
+	private void registerStatistics(Object statistics, String type) throws JMException {
+		ObjectName statisticsName = getStatisticsName(type);
+		server.get().registerMBean(MBeanFactory.createMBean(statistics), statisticsName);
+		statisticsNames.add(statisticsName);
 	}
 
-	private Class<?> fromPrimitiveToObject(Class<?> primitive) {
-		if (primitive.equals(Integer.TYPE))
-			return Integer.class;
-		else if (primitive.equals(Byte.TYPE))
-			return Byte.class;
-		else if (primitive.equals(Short.TYPE))
-			return Short.class;
-		else if (primitive.equals(Long.TYPE))
-			return Long.class;
-		else if (primitive.equals(Float.TYPE))
-			return Float.class;
-		else if (primitive.equals(Double.TYPE))
-			return Double.class;
-		else if (primitive.equals(Boolean.TYPE))
-			return Boolean.class;
-		else if (primitive.equals(Character.TYPE))
-			return Character.class;
-		return primitive;
+	/**
+	 * Unregisters the statistics registered by this MBean, leaving alone any MBean registered by others under the same
+	 * names.
+	 */
+	private void unregisterStatistics() {
+		MBeanServer server = this.server.get();
+		try {
+			for (ObjectName statisticsName : statisticsNames) {
+				try {
+					server.unregisterMBean(statisticsName);
+				}
+				catch (InstanceNotFoundException ignored) {}
+				catch (Exception ex) {
+					throw new ManagementException(ex);
+				}
+			}
+		}
+		finally {
+			statisticsNames.clear();
+		}
 	}
 }
@@ -0,0 +1,186 @@
+package org.strangeforest.jmx;
+
+import java.util.*;
+import java.util.concurrent.*;
+import javax.management.*;
+
+import static org.strangeforest.jmx.MBeanUtil.*;
+
+/**
+ * Introspected metadata of a managed object class: the MBeanInfo together with the bound attribute accessors and
+ * operation invokers. Metadata does not refer to any managed object, so it is shared by all the MBeans created for
+ * instances of the same class. Besides the immutable introspected data, it caches up to
+ * {@link #MAX_RESOLVED_OPERATIONS} operation invokers resolved by received operation name and signature.
+ */
+final class MBeanMetadata {
+
+	static final int MAX_RESOLVED_OPERATIONS = 256;
+
+	static final SignatureCacheStatistics SIGNATURE_CACHE_STATISTICS = new SignatureCacheStatistics();
+
+	/**
+	 * Metadata with cached operation invokers, held weakly so that metadata of collected classes is not counted.
+	 */
+	private static final Set<MBeanMetadata> CACHING_METADATA = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+	private final MBeanInfo mBeanInfo;
+	private final Map<String, AttributeAccessor> attributeAccessors;
+	private final Map<String, List<OperationInvoker>> operationInvokers;
+	private final boolean synchronizedAttributes;
+	private final List<NotifyingAttribute> notifyingAttributes;
+	private final List<AttributeAccessor> snapshotAttributes;
+	private final long snapshotPeriodMillis;
+	private final List<HistoryAttribute> historyAttributes;
+	private final Map<String, PagedAttribute> pagedAttributes;
+	private final ConcurrentMap<OperationSignature, OperationInvoker> resolvedOperations = new ConcurrentHashMap<>();
+
+	MBeanMetadata(MBeanInfo mBeanInfo, Map<String, AttributeAccessor> attributeAccessors, Map<String, List<OperationInvoker>> operationInvokers, boolean synchronizedAttributes,
+		List<NotifyingAttribute> notifyingAttributes, List<AttributeAccessor> snapshotAttributes, long snapshotPeriodMillis, List<HistoryAttribute> historyAttributes,
+		Map<String, PagedAttribute> pagedAttributes) {
+		if (!snapshotAttributes.isEmpty() && snapshotPeriodMillis <= 0L)
+			throw new ManagementException("Invalid snapshot refresh period for " + mBeanInfo.getClassName() + ": " + snapshotPeriodMillis);
+		this.mBeanInfo = mBeanInfo;
+		this.attributeAccessors = attributeAccessors;
+		this.operationInvokers = operationInvokers;
+		this.synchronizedAttributes = synchronizedAttributes;
+		this.notifyingAttributes = notifyingAttributes;
+		this.snapshotAttributes = snapshotAttributes;
+		this.snapshotPeriodMillis = snapshotPeriodMillis;
+		this.historyAttributes = historyAttributes;
+		this.pagedAttributes = pagedAttributes;
+	}
+
+	public MBeanInfo getMBeanInfo() {
+		return mBeanInfo;
+	}
+
+	public String getClassName() {
+		return mBeanInfo.getClassName();
+	}
+
+	public AttributeAccessor getAttributeAccessor(String attributeName) {
+		return attributeAccessors.get(attributeName);
+	}
+
+	/**
+	 * Tells whether bulk attribute reads and writes must hold the monitor of the managed object.
+	 *
+	 * @return <code>true</code> if the class is annotated with {@link org.strangeforest.jmx.annotation.SynchronizedAttributes}.
+	 */
+	public boolean isSynchronizedAttributes() {
+		return synchronizedAttributes;
+	}
+
+	/**
+	 * Retrieves the attributes whose changes are notified.
+	 *
+	 * @return an immutable list of attributes annotated with {@link org.strangeforest.jmx.annotation.ManagedNotification}.
+	 */
+	public List<NotifyingAttribute> getNotifyingAttributes() {
+		return notifyingAttributes;
+	}
+
+	public boolean hasNotifyingAttributes() {
+		return !notifyingAttributes.isEmpty();
+	}
+
+	/**
+	 * Retrieves the attributes read by background snapshot refreshes.
+	 *
+	 * @return an immutable list of attributes annotated as {@link org.strangeforest.jmx.annotation.ManagedAttribute#snapshot()}.
+	 */
+	public List<AttributeAccessor> getSnapshotAttributes() {
+		return snapshotAttributes;
+	}
+
+	public boolean hasSnapshotAttributes() {
+		return !snapshotAttributes.isEmpty();
+	}
+
+	public long getSnapshotPeriodMillis() {
+		return snapshotPeriodMillis;
+	}
+
+	/**
+	 * Retrieves the attributes whose history is kept.
+	 *
+	 * @return an immutable list of attributes annotated with {@link org.strangeforest.jmx.annotation.ManagedHistory}.
+	 */
+	public List<HistoryAttribute> getHistoryAttributes() {
+		return historyAttributes;
+	}
+
+	public boolean hasHistoryAttributes() {
+		return !historyAttributes.isEmpty();
+	}
+
+	/**
+	 * Retrieves the paged attribute read by an operation.
+	 *
+	 * @param operationName the operation name.
+	 * @return the attribute annotated as {@link org.strangeforest.jmx.annotation.ManagedAttribute#paged()} whose page
+	 * operation has the specified name, or <code>null</code> if there is no such attribute.
+	 */
+	public PagedAttribute getPagedAttribute(String operationName) {
+		return pagedAttributes.get(operationName);
+	}
+
+	/**
+	 * Resolves the operation invoker for an operation name and signature as received with an MBean invocation.
+	 * Resolved invokers are cached, so signature classes are loaded only the first time an operation is invoked with a
+	 * specific signature.
+	 *
+	 * @param operationName the operation name.
+	 * @param signature     the signature as received with the invocation, may be <code>null</code> for no parameters.
+	 * @return the operation invoker or <code>null</code> if there is no operation assignable from the signature.
+	 * @throws ClassNotFoundException if some signature class cannot be found.
+	 */
+	public OperationInvoker resolveOperation(String operationName, String[] signature) throws ClassNotFoundException {
+		OperationSignature key = new OperationSignature(operationName, signature);
+		OperationInvoker operationInvoker = resolvedOperations.get(key);
+		if (operationInvoker != null) {
+			SIGNATURE_CACHE_STATISTICS.hit();
+			return operationInvoker;
+		}
+		SIGNATURE_CACHE_STATISTICS.miss();
+		operationInvoker = findOperationInvoker(key);
+		if (operationInvoker != null && resolvedOperations.size() < MAX_RESOLVED_OPERATIONS) {
+			if (resolvedOperations.putIfAbsent(key.copy(), operationInvoker) == null)
+				CACHING_METADATA.add(this);
+		}
+		return operationInvoker;
+	}
+
+	/**
+	 * Counts the operation invokers cached by the live metadata.
+	 *
+	 * @return the number of cached operation invokers.
+	 */
+	static long getResolvedOperationCount() {
+		long count = 0L;
+		synchronized (CACHING_METADATA) {
+			for (MBeanMetadata metadata : CACHING_METADATA)
+				count += metadata.resolvedOperations.size();
+		}
+		return count;
+	}
+
+	private OperationInvoker findOperationInvoker(OperationSignature key) throws ClassNotFoundException {
+		List<OperationInvoker> overloads = operationInvokers.get(key.getName());
+		if (overloads == null)
+			return null;
+		Class<?>[] receivedParamTypes = getParametersTypes(key.getSignature());
+		for (OperationInvoker operationInvoker : overloads) {
+			if (operationInvoker.isAssignableFrom(receivedParamTypes))
+				return operationInvoker;
+		}
+		return null;
+	}
+
+	private static Class<?>[] getParametersTypes(String[] signature) throws ClassNotFoundException {
+		Class<?>[] paramTypes = new Class<?>[signature.length];
+		for (int i = 0; i < signature.length; i++)
+			paramTypes[i] = findClass(signature[i]);
+		return paramTypes;
+	}
+}
@@ -0,0 +1,47 @@
+package org.strangeforest.jmx;
+
+import java.util.*;
+import java.util.concurrent.*;
+import javax.management.*;
+
+/**
+ * <p>Keeps track of the MBeans created by {@link MBeanFactory} while they are registered, per MBeanServer. In-process
+ * clients, like exporters reading many MBeans at once, can use the registry to read such MBeans directly, bypassing
+ * the MBeanServer, and to reuse their precomputed <code>MBeanInfo</code>.</p>
+ * <p>MBeanServers are held weakly, by the registry and by the MBeans, so the MBeans of a discarded MBeanServer are
+ * dropped from the registry once it is garbage collected, unless a managed object references the MBeanServer.</p>
+ */
+public abstract class MBeanRegistry {
+
+	private static final Map<MBeanServer, ConcurrentMap<ObjectName, ManagedMBean>> MBEANS = new WeakHashMap<>();
+
+	/**
+	 * Retrieves the MBeans created by {@link MBeanFactory} registered in an MBeanServer.
+	 *
+	 * @param server the MBeanServer.
+	 * @return an unmodifiable live view of the registered MBeans by name.
+	 */
+	public static Map<ObjectName, ManagedMBean> getMBeans(MBeanServer server) {
+		synchronized (MBEANS) {
+			return Collections.unmodifiableMap(getServerMBeans(server));
+		}
+	}
+
+	static void registered(MBeanServer server, ObjectName name, ManagedMBean mBean) {
+		synchronized (MBEANS) {
+			getServerMBeans(server).put(name, mBean);
+		}
+	}
+
+	static void unregistered(MBeanServer server, ObjectName name) {
+		synchronized (MBEANS) {
+			ConcurrentMap<ObjectName, ManagedMBean> mBeans = MBEANS.get(server);
+			if (mBeans != null)
+				mBeans.remove(name);
+		}
+	}
+
+	private static ConcurrentMap<ObjectName, ManagedMBean> getServerMBeans(MBeanServer server) {
+		return MBEANS.computeIfAbsent(server, key -> new ConcurrentHashMap<>());
+	}
+}
@@ -9,4 +9,63 @@ public abstract class MBeanUtil {
 	public static String decapitalize(String string) {
 		return Character.toLowerCase(string.charAt(0)) + string.substring(1);
 	}
+
+	public static Class<?> findClass(String className) throws ClassNotFoundException {
+		if (className == null)
+			throw new NullPointerException();
+		if (Integer.TYPE.getName().equals(className))
+			return Integer.TYPE;
+		else if (Byte.TYPE.getName().equals(className))
+			return Byte.TYPE;
+		else if (Short.TYPE.getName().equals(className))
+			return Short.TYPE;
+		else if (Long.TYPE.getName().equals(className))
+			return Long.TYPE;
+		else if (Float.TYPE.getName().equals(className))
+			return Float.TYPE;
+		else if (Double.TYPE.getName().equals(className))
+			return Double.TYPE;
+		else if (Boolean.TYPE.getName().equals(className))
+			return Boolean.TYPE;
+		else if (Character.TYPE.getName().equals(className))
+			return Character.TYPE;
+		return Class.forName(className);
+	}
+
+	public static boolean isAssignable(final Class<?> to, final Class<?> from) {
+		if (to == null)
+			throw new IllegalArgumentException("no to class specified");
+		if (from == null)
+			throw new IllegalArgumentException("no from class specified");
+
+		Class<?> toClass = to;
+		if (toClass.isPrimitive())
+			toClass = fromPrimitiveToObject(toClass);
+
+		Class<?> fromClass = from;
+		if (fromClass.isPrimitive())
+			fromClass = fromPrimitiveToObject(fromClass);
+
+		return toClass.isAssignableFrom(fromClass);
+	}
+
+	public static Class<?> fromPrimitiveToObject(Class<?> primitive) {
+		if (primitive.equals(Integer.TYPE))
+			return Integer.class;
+		else if (primitive.equals(Byte.TYPE))
+			return Byte.class;
+		else if (primitive.equals(Short.TYPE))
+			return Short.class;
+		else if (primitive.equals(Long.TYPE))
+			return Long.class;
+		else if (primitive.equals(Float.TYPE))
+			return Float.class;
+		else if (primitive.equals(Double.TYPE))
+			return Double.class;
+		else if (primitive.equals(Boolean.TYPE))
+			return Boolean.class;
+		else if (primitive.equals(Character.TYPE))
+			return Character.class;
+		return primitive;
+	}
 }
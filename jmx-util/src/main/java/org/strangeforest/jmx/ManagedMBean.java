@@ -0,0 +1,11 @@
+package org.strangeforest.jmx;
+
+import javax.management.*;
+
+/**
+ * DynamicMBean created by {@link MBeanFactory} for a managed object, see {@link MBeanRegistry}.
+ */
+public interface ManagedMBean extends DynamicMBean {
+
+	Object getManagedObject();
+}
@@ -0,0 +1,48 @@
+package org.strangeforest.jmx;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Executors shared by the MBeans for background work, all running on daemon threads so they never keep the JVM
+ * alive.
+ */
+public final class ManagementExecutors {
+
+	/**
+	 * Scheduler of the periodic background work of all MBeans, like attribute snapshot refreshes, history sampling and
+	 * notifying attribute polling, which runs application code that may be slow.
+	 */
+	static final ScheduledExecutorService REFRESHER = Executors.newScheduledThreadPool(Math.min(4, Runtime.getRuntime().availableProcessors()), daemonThreadFactory("jmx-refresher"));
+
+	private ManagementExecutors() {}
+
+	/**
+	 * Creates a pool with a fixed maximum number of daemon threads, which terminate when idle.
+	 *
+	 * @param name    the prefix of the thread names.
+	 * @param threads the maximum number of threads.
+	 * @return the pool.
+	 */
+	static ExecutorService newDaemonPool(String name, int threads) {
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), daemonThreadFactory(name));
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
+	/**
+	 * Creates a factory of daemon threads named by a prefix followed by a sequence number, for the executors of other
+	 * modules exposing MBeans.
+	 *
+	 * @param name the prefix of the thread names.
+	 * @return the thread factory.
+	 */
+	public static ThreadFactory daemonThreadFactory(String name) {
+		AtomicInteger threadCount = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, name + '-' + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+}
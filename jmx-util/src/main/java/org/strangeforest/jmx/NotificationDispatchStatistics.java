@@ -0,0 +1,100 @@
+package org.strangeforest.jmx;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import javax.management.openmbean.*;
+
+import org.strangeforest.jmx.annotation.*;
+import org.strangeforest.jmx.metric.*;
+
+/**
+ * <p>Statistics of the notification dispatch of an {@link AsyncNotificationEmitter}. The dispatch latency is the time
+ * between sending a notification and its listener returning, in microseconds.</p>
+ * <p>The statistics object can itself be exposed using {@link JMXUtil#register(Object, String)}.</p>
+ */
+@MBeanDescription("Notification dispatch statistics")
+public final class NotificationDispatchStatistics {
+
+	private final AsyncNotificationEmitter emitter;
+	private final LongAdder sent = new LongAdder();
+	private final LongAdder delivered = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final LongAdder failedPolls = new LongAdder();
+	private final Histogram dispatchLatency = new Histogram();
+
+	NotificationDispatchStatistics(AsyncNotificationEmitter emitter) {
+		this.emitter = emitter;
+	}
+
+	@ManagedAttribute(description = "Number of registered listeners")
+	public int getListenerCount() {
+		return emitter.getListenerCount();
+	}
+
+	@ManagedAttribute(description = "Number of notifications waiting to be delivered, for all listeners")
+	public int getQueueDepth() {
+		return emitter.getQueueDepth();
+	}
+
+	@ManagedAttribute(description = "Number of sent notifications")
+	public long getSent() {
+		return sent.sum();
+	}
+
+	@ManagedAttribute(description = "Number of notifications delivered to listeners")
+	public long getDelivered() {
+		return delivered.sum();
+	}
+
+	@ManagedAttribute(description = "Number of notifications dropped because a listener queue was full")
+	public long getDropped() {
+		return dropped.sum();
+	}
+
+	@ManagedAttribute(description = "Number of notifications whose listener or filter failed")
+	public long getFailed() {
+		return failed.sum();
+	}
+
+	@ManagedAttribute(description = "Number of polls of notifying attributes whose getter failed")
+	public long getFailedPolls() {
+		return failedPolls.sum();
+	}
+
+	@ManagedAttribute(description = "Dispatch latency in microseconds")
+	public CompositeData getDispatchLatency() {
+		return dispatchLatency.getStatistics();
+	}
+
+	@ManagedOperation(impact = Impact.ACTION, description = "Resets the counters and the dispatch latency")
+	public void reset() {
+		sent.reset();
+		delivered.reset();
+		dropped.reset();
+		failed.reset();
+		failedPolls.reset();
+		dispatchLatency.reset();
+	}
+
+	void sent() {
+		sent.increment();
+	}
+
+	void delivered(long latencyNanos) {
+		delivered.increment();
+		dispatchLatency.record(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+	}
+
+	void dropped() {
+		dropped.increment();
+	}
+
+	void failed() {
+		failed.increment();
+	}
+
+	void failedPoll() {
+		failedPolls.increment();
+	}
+}
@@ -0,0 +1,26 @@
+package org.strangeforest.jmx;
+
+/**
+ * Attribute annotated with {@link org.strangeforest.jmx.annotation.ManagedNotification}, with the window over which
+ * its changes are coalesced.
+ */
+final class NotifyingAttribute {
+
+	private final AttributeAccessor accessor;
+	private final long windowMillis;
+
+	NotifyingAttribute(AttributeAccessor accessor, long windowMillis) {
+		if (windowMillis <= 0L)
+			throw new ManagementException("Invalid notification window for attribute " + accessor.getName() + ": " + windowMillis);
+		this.accessor = accessor;
+		this.windowMillis = windowMillis;
+	}
+
+	public AttributeAccessor getAccessor() {
+		return accessor;
+	}
+
+	public long getWindowMillis() {
+		return windowMillis;
+	}
+}
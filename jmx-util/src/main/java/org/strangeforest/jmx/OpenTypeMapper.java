@@ -0,0 +1,224 @@
+package org.strangeforest.jmx;
+
+import java.lang.reflect.*;
+import java.math.*;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.management.*;
+import javax.management.openmbean.*;
+
+import static org.strangeforest.jmx.MBeanUtil.*;
+
+/**
+ * <p>Maps Java beans to open data. The <code>CompositeType</code> of a bean class is derived once from its public
+ * getters and cached together with the bound getters and item names, so converting a bean only reads its properties
+ * and allocates the resulting <code>CompositeData</code>. <code>TabularType</code>s are cached per bean class and
+ * index names in the same way.</p>
+ * <p>Supported property types are primitives and their wrappers, <code>String</code>, <code>BigDecimal</code>,
+ * <code>BigInteger</code>, <code>Date</code>, <code>ObjectName</code> and enums, which are mapped to their
+ * names.</p>
+ */
+public abstract class OpenTypeMapper {
+
+	private static final Map<Class<?>, SimpleType<?>> SIMPLE_TYPES = new HashMap<>();
+
+	static {
+		SIMPLE_TYPES.put(Boolean.class, SimpleType.BOOLEAN);
+		SIMPLE_TYPES.put(Character.class, SimpleType.CHARACTER);
+		SIMPLE_TYPES.put(Byte.class, SimpleType.BYTE);
+		SIMPLE_TYPES.put(Short.class, SimpleType.SHORT);
+		SIMPLE_TYPES.put(Integer.class, SimpleType.INTEGER);
+		SIMPLE_TYPES.put(Long.class, SimpleType.LONG);
+		SIMPLE_TYPES.put(Float.class, SimpleType.FLOAT);
+		SIMPLE_TYPES.put(Double.class, SimpleType.DOUBLE);
+		SIMPLE_TYPES.put(String.class, SimpleType.STRING);
+		SIMPLE_TYPES.put(BigDecimal.class, SimpleType.BIGDECIMAL);
+		SIMPLE_TYPES.put(BigInteger.class, SimpleType.BIGINTEGER);
+		SIMPLE_TYPES.put(Date.class, SimpleType.DATE);
+		SIMPLE_TYPES.put(ObjectName.class, SimpleType.OBJECTNAME);
+	}
+
+	private static final ClassValue<CompositeMapping> MAPPINGS = new ClassValue<CompositeMapping>() {
+		@Override protected CompositeMapping computeValue(Class<?> type) {
+			return new CompositeMapping(type);
+		}
+	};
+
+	/**
+	 * Returns the cached <code>CompositeType</code> of a bean class. Its type name is the class name and its items
+	 * are the bean properties.
+	 *
+	 * @param type the bean class.
+	 * @return the composite type.
+	 * @throws OpenDataException if the class has no properties, a property has both <code>get</code> and
+	 *                           <code>is</code> getters or a property type is not supported.
+	 */
+	public static CompositeType getCompositeType(Class<?> type) throws OpenDataException {
+		return getMapping(type).compositeType;
+	}
+
+	/**
+	 * Returns the cached <code>TabularType</code> with rows of the composite type of a bean class.
+	 *
+	 * @param type       the bean class.
+	 * @param indexNames the names of the properties that uniquely identify a row.
+	 * @return the tabular type.
+	 * @throws OpenDataException if the composite type cannot be derived or an index name is not a property.
+	 */
+	public static TabularType getTabularType(Class<?> type, String... indexNames) throws OpenDataException {
+		return getMapping(type).getTabularType(indexNames);
+	}
+
+	/**
+	 * Converts a bean to <code>CompositeData</code> of its class composite type.
+	 *
+	 * @param object the bean.
+	 * @return the composite data.
+	 * @throws OpenDataException if the composite type cannot be derived or a property cannot be read.
+	 */
+	public static CompositeData toCompositeData(Object object) throws OpenDataException {
+		Objects.requireNonNull(object, "No object specified.");
+		return getMapping(object.getClass()).toCompositeData(object);
+	}
+
+	/**
+	 * Converts beans of the same class to <code>TabularData</code>, presized for the number of beans.
+	 *
+	 * @param objects    the beans.
+	 * @param type       the bean class.
+	 * @param indexNames the names of the properties that uniquely identify a row.
+	 * @return the tabular data.
+	 * @throws OpenDataException if the tabular type cannot be derived, a property cannot be read or two beans have
+	 *                           the same index.
+	 */
+	public static <T> TabularData toTabularData(Collection<? extends T> objects, Class<T> type, String... indexNames) throws OpenDataException {
+		CompositeMapping mapping = getMapping(type);
+		TabularDataSupport data = new TabularDataSupport(mapping.getTabularType(indexNames), Math.max(objects.size() * 4 / 3 + 1, 16), 0.75f);
+		for (T object : objects)
+			data.put(mapping.toCompositeData(object));
+		return data;
+	}
+
+	/**
+	 * Converts beans of the same class to an array of <code>CompositeData</code>, the representation the MXBean
+	 * mapping uses for lists. Unlike <code>TabularData</code>, the array does not validate the row type and index of
+	 * each element, so it is cheaper to build for large lists.
+	 *
+	 * @param objects the beans.
+	 * @param type    the bean class.
+	 * @return the composite data array.
+	 * @throws OpenDataException if the composite type cannot be derived or a property cannot be read.
+	 */
+	public static <T> CompositeData[] toCompositeDataArray(Collection<? extends T> objects, Class<T> type) throws OpenDataException {
+		CompositeMapping mapping = getMapping(type);
+		CompositeData[] data = new CompositeData[objects.size()];
+		int i = 0;
+		for (T object : objects)
+			data[i++] = mapping.toCompositeData(object);
+		return data;
+	}
+
+	private static CompositeMapping getMapping(Class<?> type) throws OpenDataException {
+		CompositeMapping mapping = MAPPINGS.get(type);
+		if (mapping.failure != null) {
+			OpenDataException ex = new OpenDataException(mapping.failure.getMessage());
+			ex.initCause(mapping.failure);
+			throw ex;
+		}
+		return mapping;
+	}
+
+
+	// Composite mapping
+
+	private static final class CompositeMapping {
+
+		private final CompositeType compositeType;
+		private final String[] itemNames;
+		private final Invoker[] getters;
+		private final boolean[] enumItems;
+		private final OpenDataException failure;
+		private final ConcurrentMap<List<String>, TabularType> tabularTypes = new ConcurrentHashMap<>();
+
+		CompositeMapping(Class<?> type) {
+			SortedMap<String, Method> properties = new TreeMap<>();
+			OpenDataException failure = null;
+			for (Method method : type.getMethods()) {
+				String name = getPropertyName(method);
+				if (name != null) {
+					Method other = properties.put(name, method);
+					if (other != null && failure == null)
+						failure = new OpenDataException("Property " + name + " of " + type.getName() + " has both " + other.getName() + " and " + method.getName() + " getters");
+				}
+			}
+			int size = properties.size();
+			itemNames = properties.keySet().toArray(new String[size]);
+			getters = new Invoker[size];
+			enumItems = new boolean[size];
+			OpenType<?>[] itemTypes = new OpenType<?>[size];
+			CompositeType compositeType = null;
+			try {
+				if (failure != null)
+					throw failure;
+				if (size == 0)
+					throw new OpenDataException(type.getName() + " has no properties");
+				int i = 0;
+				for (Method getter : properties.values()) {
+					Class<?> propertyType = getter.getReturnType();
+					enumItems[i] = propertyType.isEnum();
+					itemTypes[i] = enumItems[i] ? SimpleType.STRING : SIMPLE_TYPES.get(fromPrimitiveToObject(propertyType));
+					if (itemTypes[i] == null)
+						throw new OpenDataException("Property " + itemNames[i] + " of " + type.getName() + " has unsupported type " + propertyType.getName());
+					getters[i++] = InvocationEngine.METHOD_HANDLE.bind(getter);
+				}
+				compositeType = new CompositeType(type.getName(), type.getSimpleName(), itemNames, itemNames, itemTypes);
+			}
+			catch (OpenDataException ex) {
+				failure = ex;
+			}
+			this.compositeType = compositeType;
+			this.failure = failure;
+		}
+
+		TabularType getTabularType(String[] indexNames) throws OpenDataException {
+			List<String> key = Arrays.asList(indexNames);
+			TabularType tabularType = tabularTypes.get(key);
+			if (tabularType == null) {
+				tabularType = new TabularType(compositeType.getTypeName(), compositeType.getDescription() + " table", compositeType, indexNames.clone());
+				TabularType existing = tabularTypes.putIfAbsent(new ArrayList<>(key), tabularType);
+				if (existing != null)
+					tabularType = existing;
+			}
+			return tabularType;
+		}
+
+		CompositeData toCompositeData(Object object) throws OpenDataException {
+			Object[] values = new Object[getters.length];
+			try {
+				for (int i = 0; i < getters.length; i++) {
+					Object value = getters[i].invoke(object, Invoker.NO_PARAMS);
+					values[i] = enumItems[i] && value != null ? ((Enum<?>)value).name() : value;
+				}
+			}
+			catch (ReflectiveOperationException ex) {
+				OpenDataException odEx = new OpenDataException(ex.getMessage());
+				odEx.initCause(ex);
+				throw odEx;
+			}
+			return new CompositeDataSupport(compositeType, itemNames, values);
+		}
+
+		private static String getPropertyName(Method method) {
+			if (method.getParameterTypes().length != 0 || Modifier.isStatic(method.getModifiers()) || method.isBridge() || method.getDeclaringClass() == Object.class)
+				return null;
+			String name = method.getName();
+			Class<?> returnType = method.getReturnType();
+			if (name.startsWith("get") && name.length() > 3 && returnType != Void.TYPE)
+				return decapitalize(name.substring(3));
+			else if (name.startsWith("is") && name.length() > 2 && (returnType == Boolean.TYPE || returnType == Boolean.class))
+				return decapitalize(name.substring(2));
+			else
+				return null;
+		}
+	}
+}
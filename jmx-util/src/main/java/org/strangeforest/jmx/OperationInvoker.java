@@ -0,0 +1,50 @@
+package org.strangeforest.jmx;
+
+import javax.management.*;
+
+import static org.strangeforest.jmx.MBeanUtil.*;
+
+/**
+ * A single MBean operation bound to the method implementing it. Operation invokers are built once when the MBean is
+ * created.
+ */
+final class OperationInvoker {
+
+	private final MBeanOperationInfo mBeanOperation;
+	private final Class<?>[] paramTypes;
+	private final Invoker invoker;
+
+	OperationInvoker(MBeanOperationInfo mBeanOperation, Class<?>[] paramTypes, Invoker invoker) {
+		this.mBeanOperation = mBeanOperation;
+		this.paramTypes = paramTypes;
+		this.invoker = invoker;
+	}
+
+	public String getName() {
+		return mBeanOperation.getName();
+	}
+
+	public MBeanOperationInfo getMBeanOperation() {
+		return mBeanOperation;
+	}
+
+	/**
+	 * Checks whether the operation can be invoked with parameters of the received types.
+	 *
+	 * @param receivedParamTypes the parameter types as received with the invocation.
+	 * @return <code>true</code> if each received type is assignable to the corresponding parameter type.
+	 */
+	public boolean isAssignableFrom(Class<?>[] receivedParamTypes) {
+		if (paramTypes.length != receivedParamTypes.length)
+			return false;
+		for (int i = 0; i < paramTypes.length; i++) {
+			if (!isAssignable(paramTypes[i], receivedParamTypes[i]))
+				return false;
+		}
+		return true;
+	}
+
+	public Object invoke(Object object, Object[] params) throws ReflectiveOperationException {
+		return invoker.invoke(object, params != null ? params : Invoker.NO_PARAMS);
+	}
+}
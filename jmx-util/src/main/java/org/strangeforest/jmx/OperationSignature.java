@@ -0,0 +1,51 @@
+package org.strangeforest.jmx;
+
+import java.util.*;
+
+/**
+ * Operation name and signature as received with an MBean invocation, used as the operation signature cache key.
+ */
+final class OperationSignature {
+
+	private static final String[] NO_SIGNATURE = new String[0];
+
+	private final String name;
+	private final String[] signature;
+	private final int hash;
+
+	OperationSignature(String name, String[] signature) {
+		this.name = name;
+		this.signature = signature != null ? signature : NO_SIGNATURE;
+		this.hash = 31 * name.hashCode() + Arrays.hashCode(this.signature);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String[] getSignature() {
+		return signature;
+	}
+
+	/**
+	 * Returns a key that is safe to be stored in the cache, as the received signature array is owned by the caller.
+	 *
+	 * @return a copy of this key.
+	 */
+	public OperationSignature copy() {
+		return new OperationSignature(name, signature.clone());
+	}
+
+	@Override public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof OperationSignature))
+			return false;
+		OperationSignature key = (OperationSignature)obj;
+		return hash == key.hash && name.equals(key.name) && Arrays.equals(signature, key.signature);
+	}
+
+	@Override public int hashCode() {
+		return hash;
+	}
+}
@@ -0,0 +1,94 @@
+package org.strangeforest.jmx;
+
+import java.lang.reflect.*;
+import java.util.*;
+import javax.management.*;
+import javax.management.openmbean.*;
+
+import static org.strangeforest.jmx.MBeanUtil.*;
+
+/**
+ * <p>Collection attribute annotated as {@link org.strangeforest.jmx.annotation.ManagedAttribute#paged()}, read in
+ * pages through the <code>get&lt;Attribute&gt;Page(int offset, int limit)</code> operation added to the MBean, so a
+ * client never receives the whole collection at once. A page has the type of the attribute: a list, set, array or
+ * <code>TabularData</code> holding up to <code>limit</code> elements starting from <code>offset</code>.</p>
+ * <p>Pages are read by the paging method <code>get&lt;Attribute&gt;(int offset, int limit)</code> of the managed
+ * object, which must return the attribute type. The attribute getter is not called, so the server only builds the
+ * elements of the requested page, and walking all the pages costs as much as reading the attribute once, provided the
+ * paging method can reach the page directly.</p>
+ */
+final class PagedAttribute {
+
+	static final String[] SIGNATURE = {int.class.getName(), int.class.getName()};
+
+	private final AttributeAccessor accessor;
+	private final Invoker pager;
+	private final MBeanOperationInfo mBeanOperation;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param objectType the class of the managed object.
+	 * @param accessor   the attribute accessor.
+	 * @param engine     the engine used to bind the paging method.
+	 * @throws ManagementException if the attribute is not readable, is not a collection or has no paging method.
+	 */
+	PagedAttribute(Class<?> objectType, AttributeAccessor accessor, InvocationEngine engine) {
+		if (!accessor.isReadable())
+			throw new ManagementException("Paged attribute " + accessor.getName() + " is not readable.");
+		if (!isPageable(accessor.getType()))
+			throw new ManagementException("Paged attribute " + accessor.getName() + " is not a list, set, array or TabularData: " + accessor.getType().getName());
+		String getterName = "get" + capitalize(accessor.getName());
+		Method pagingMethod;
+		try {
+			pagingMethod = objectType.getMethod(getterName, int.class, int.class);
+		}
+		catch (NoSuchMethodException ex) {
+			throw new ManagementException("Paged attribute " + accessor.getName() + " has no paging method " + getterName + "(int offset, int limit).");
+		}
+		if (!accessor.getType().isAssignableFrom(pagingMethod.getReturnType()))
+			throw new ManagementException("Paging method " + getterName + " does not return " + accessor.getType().getName() + '.');
+		this.accessor = accessor;
+		pager = engine.bind(pagingMethod);
+		mBeanOperation = new MBeanOperationInfo(getterName + "Page", "Returns up to limit elements of the attribute " + accessor.getName() + " starting from offset",
+			new MBeanParameterInfo[] {
+				new MBeanParameterInfo("offset", int.class.getName(), "Index of the first element"),
+				new MBeanParameterInfo("limit", int.class.getName(), "Maximum number of elements")
+			}, accessor.getType().getName(), MBeanOperationInfo.INFO);
+	}
+
+	private static boolean isPageable(Class<?> type) {
+		return type.isArray() || type == List.class || type == Collection.class || type == Set.class || type == TabularData.class;
+	}
+
+	public AttributeAccessor getAccessor() {
+		return accessor;
+	}
+
+	public MBeanOperationInfo getMBeanOperation() {
+		return mBeanOperation;
+	}
+
+	public String getOperationName() {
+		return mBeanOperation.getName();
+	}
+
+	/**
+	 * Reads a page of the attribute with the paging method.
+	 *
+	 * @param object the managed object.
+	 * @param params the operation parameters, the index of the first element and the maximum number of elements.
+	 * @return the page.
+	 * @throws IllegalArgumentException if the parameters are not two non-negative integers.
+	 * @throws ReflectiveOperationException if the paging method cannot be invoked or throws an exception.
+	 */
+	Object page(Object object, Object[] params) throws ReflectiveOperationException {
+		if (params == null || params.length != 2 || !(params[0] instanceof Integer) || !(params[1] instanceof Integer))
+			throw new IllegalArgumentException("Invalid parameters of " + getOperationName() + ", offset and limit expected: " + Arrays.toString(params));
+		int offset = (Integer)params[0];
+		int limit = (Integer)params[1];
+		if (offset < 0 || limit < 0)
+			throw new IllegalArgumentException("Invalid page of attribute " + accessor.getName() + ", offset: " + offset + ", limit: " + limit);
+		return pager.invoke(object, params);
+	}
+}
@@ -0,0 +1,52 @@
+package org.strangeforest.jmx;
+
+import java.util.concurrent.atomic.*;
+
+import org.strangeforest.jmx.annotation.*;
+
+/**
+ * <p>Statistics of the operation signature cache shared by all MBeans created by {@link MBeanFactory}. Each
+ * <code>invoke</code> on such MBean either finds the operation invoker for the received operation name and signature
+ * in the cache (a hit) or resolves it by loading the signature classes (a miss).</p>
+ * <p>The statistics can be registered in the default <code>MBeanServer</code> using
+ * {@link JMXUtil#registerSignatureCacheStatistics()}.</p>
+ */
+@MBeanDescription("Operation signature cache statistics")
+public final class SignatureCacheStatistics {
+
+	public static final String NAME = "org.strangeforest.jmx:type=SignatureCacheStatistics";
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	SignatureCacheStatistics() {}
+
+	@ManagedAttribute(description = "Number of operation invocations with cached signature")
+	public long getHits() {
+		return hits.sum();
+	}
+
+	@ManagedAttribute(description = "Number of operation invocations that resolved the signature")
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	@ManagedAttribute(description = "Number of signatures cached by the metadata of live classes")
+	public long getSize() {
+		return MBeanMetadata.getResolvedOperationCount();
+	}
+
+	@ManagedOperation(impact = Impact.ACTION, description = "Resets hit and miss counters")
+	public void reset() {
+		hits.reset();
+		misses.reset();
+	}
+
+	void hit() {
+		hits.increment();
+	}
+
+	void miss() {
+		misses.increment();
+	}
+}
@@ -0,0 +1,188 @@
+package org.strangeforest.jmx;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * <p>Reads the snapshot attributes of a managed object in background and publishes their values as an immutable
+ * snapshot, so MBean clients reading the attributes never call the getters. While the MBean is registered, all the
+ * attributes are read in one pass per refresh period on a scheduler shared by all the MBeans. If the class is
+ * annotated with {@link org.strangeforest.jmx.annotation.SynchronizedAttributes}, a pass holds the monitor of the
+ * managed object.</p>
+ * <p>The first pass is scheduled without delay when the MBean is registered. Until it completes, for example while the
+ * MBean is not registered, the attributes are read with the getters. A getter failure is kept in the snapshot in place
+ * of the value, and is thrown to the clients reading the attribute. A value set through the MBean replaces the value
+ * in the snapshot, and is kept over the values read by a pass started before it was set.</p>
+ */
+final class SnapshotRefresher implements Runnable {
+
+	private final Object object;
+	private final AttributeAccessor[] attributes;
+	private final Map<String, Integer> indexes = new HashMap<>();
+	private final long periodMillis;
+	private final boolean synchronizedAttributes;
+	private final SnapshotStatistics statistics = new SnapshotStatistics(this);
+	private final Object publishLock = new Object();
+	private volatile Snapshot snapshot;
+	private ScheduledFuture<?> refresh;
+
+	SnapshotRefresher(Object object, MBeanMetadata metadata) {
+		this.object = object;
+		List<AttributeAccessor> snapshotAttributes = metadata.getSnapshotAttributes();
+		attributes = snapshotAttributes.toArray(new AttributeAccessor[snapshotAttributes.size()]);
+		for (int i = 0; i < attributes.length; i++)
+			indexes.put(attributes[i].getName(), i);
+		periodMillis = metadata.getSnapshotPeriodMillis();
+		synchronizedAttributes = metadata.isSynchronizedAttributes();
+	}
+
+	public boolean isSnapshotAttribute(String attributeName) {
+		return indexes.containsKey(attributeName);
+	}
+
+	/**
+	 * Retrieves the attribute value from the last snapshot, or with the getter if there is no snapshot yet.
+	 *
+	 * @param attributeName the name of a snapshot attribute.
+	 * @return the attribute value.
+	 * @throws Exception the failure of the getter in the last refresh.
+	 */
+	public Object get(String attributeName) throws Exception {
+		int index = indexes.get(attributeName);
+		Snapshot snapshot = this.snapshot;
+		if (snapshot == null) {
+			if (synchronizedAttributes) {
+				synchronized (object) {
+					return attributes[index].get(object);
+				}
+			}
+			return attributes[index].get(object);
+		}
+		Object value = snapshot.values[index];
+		if (value instanceof Failure)
+			throw ((Failure)value).exception;
+		return value;
+	}
+
+	/**
+	 * Replaces the attribute value in the last snapshot after the attribute is set.
+	 *
+	 * @param attributeName the name of a snapshot attribute.
+	 * @param value the value set.
+	 */
+	public void set(String attributeName, Object value) {
+		int index = indexes.get(attributeName);
+		synchronized (publishLock) {
+			Snapshot snapshot = this.snapshot;
+			if (snapshot != null)
+				this.snapshot = snapshot.with(index, value, System.nanoTime());
+		}
+	}
+
+	public SnapshotStatistics getStatistics() {
+		return statistics;
+	}
+
+	public long getPeriodMillis() {
+		return periodMillis;
+	}
+
+	/**
+	 * Retrieves the age of the last snapshot, measured from the start of the pass that read it.
+	 *
+	 * @return the snapshot age in milliseconds.
+	 */
+	public long getStalenessMillis() {
+		Snapshot snapshot = this.snapshot;
+		return snapshot != null ? TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - snapshot.startTime) : 0L;
+	}
+
+	synchronized void start() {
+		if (refresh == null)
+			refresh = ManagementExecutors.REFRESHER.scheduleWithFixedDelay(this, 0L, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	synchronized void stop() {
+		if (refresh != null) {
+			refresh.cancel(false);
+			refresh = null;
+		}
+	}
+
+	@Override public void run() {
+		long startTime = System.nanoTime();
+		Object[] values = new Object[attributes.length];
+		boolean failed;
+		if (synchronizedAttributes) {
+			synchronized (object) {
+				failed = read(values);
+			}
+		}
+		else
+			failed = read(values);
+		publish(values, startTime);
+		statistics.refreshed(System.nanoTime() - startTime, failed);
+	}
+
+	private void publish(Object[] values, long startTime) {
+		long[] valueTimes = new long[values.length];
+		Arrays.fill(valueTimes, startTime);
+		synchronized (publishLock) {
+			Snapshot snapshot = this.snapshot;
+			if (snapshot != null) {
+				// keep the values set after the pass started
+				for (int i = 0; i < values.length; i++) {
+					if (snapshot.valueTimes[i] - startTime > 0L) {
+						values[i] = snapshot.values[i];
+						valueTimes[i] = snapshot.valueTimes[i];
+					}
+				}
+			}
+			this.snapshot = new Snapshot(values, valueTimes, startTime);
+		}
+	}
+
+	private boolean read(Object[] values) {
+		boolean failed = false;
+		for (int i = 0; i < attributes.length; i++) {
+			try {
+				values[i] = attributes[i].get(object);
+			}
+			catch (Exception ex) {
+				values[i] = new Failure(ex);
+				failed = true;
+			}
+		}
+		return failed;
+	}
+
+	private static final class Snapshot {
+
+		private final Object[] values;
+		private final long[] valueTimes;
+		private final long startTime;
+
+		Snapshot(Object[] values, long[] valueTimes, long startTime) {
+			this.values = values;
+			this.valueTimes = valueTimes;
+			this.startTime = startTime;
+		}
+
+		Snapshot with(int index, Object value, long valueTime) {
+			Object[] values = this.values.clone();
+			long[] valueTimes = this.valueTimes.clone();
+			values[index] = value;
+			valueTimes[index] = valueTime;
+			return new Snapshot(values, valueTimes, startTime);
+		}
+	}
+
+	private static final class Failure {
+
+		private final Exception exception;
+
+		Failure(Exception exception) {
+			this.exception = exception;
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package org.strangeforest.jmx;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import javax.management.openmbean.*;
+
+import org.strangeforest.jmx.annotation.*;
+import org.strangeforest.jmx.metric.*;
+
+/**
+ * <p>Statistics of the attribute snapshot refreshes of an MBean created by {@link MBeanFactory}. The refresh duration
+ * is the time a pass takes to read all the snapshot attributes, in microseconds. The staleness is the age of the
+ * snapshot served to clients, which exceeds the refresh period by the refresh duration in normal operation, and grows
+ * beyond that if refreshes are delayed.</p>
+ * <p>The statistics are registered together with the MBean, under its name with the added
+ * <code>statistics=snapshot</code> key property.</p>
+ */
+@MBeanDescription("Attribute snapshot statistics")
+public final class SnapshotStatistics {
+
+	private final SnapshotRefresher refresher;
+	private final LongAdder refreshes = new LongAdder();
+	private final LongAdder failedRefreshes = new LongAdder();
+	private final Histogram refreshDuration = new Histogram();
+
+	SnapshotStatistics(SnapshotRefresher refresher) {
+		this.refresher = refresher;
+	}
+
+	@ManagedAttribute(description = "Refresh period in milliseconds")
+	public long getPeriodMillis() {
+		return refresher.getPeriodMillis();
+	}
+
+	@ManagedAttribute(description = "Age of the current snapshot in milliseconds")
+	public long getStalenessMillis() {
+		return refresher.getStalenessMillis();
+	}
+
+	@ManagedAttribute(description = "Number of refreshes")
+	public long getRefreshes() {
+		return refreshes.sum();
+	}
+
+	@ManagedAttribute(description = "Number of refreshes where some getter failed")
+	public long getFailedRefreshes() {
+		return failedRefreshes.sum();
+	}
+
+	@ManagedAttribute(description = "Refresh duration in microseconds")
+	public CompositeData getRefreshDuration() {
+		return refreshDuration.getStatistics();
+	}
+
+	@ManagedOperation(impact = Impact.ACTION, description = "Resets the counters and the refresh duration")
+	public void reset() {
+		refreshes.reset();
+		failedRefreshes.reset();
+		refreshDuration.reset();
+	}
+
+	void refreshed(long durationNanos, boolean failed) {
+		refreshes.increment();
+		if (failed)
+			failedRefreshes.increment();
+		refreshDuration.record(TimeUnit.NANOSECONDS.toMicros(durationNanos));
+	}
+}
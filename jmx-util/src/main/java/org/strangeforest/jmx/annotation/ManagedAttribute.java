@@ -11,4 +11,29 @@ public @interface ManagedAttribute {
 	boolean readable() default true;
 	boolean writable() default true;
 	String description() default "";
+
+	/**
+	 * Interval in milliseconds for which a value read from the getter is served to MBean clients without calling the
+	 * getter again. When the value expires, only one client calls the getter, the others get the expired value or wait
+	 * for the new one. Setting the attribute through the MBean discards the cached value. The default 0 means the value
+	 * is not cached.
+	 */
+	long cacheMillis() default 0L;
+
+	/**
+	 * Makes the attribute a snapshot attribute: once the MBean is registered, its getter is called only by a background
+	 * thread, which reads all the snapshot attributes of the MBean in one pass at the rate configured with
+	 * {@link SnapshotRefresh}, and MBean clients get the values read by the last pass, or the value last set through the
+	 * MBean. Snapshot attributes cannot be cached with {@link #cacheMillis()}.
+	 */
+	boolean snapshot() default false;
+
+	/**
+	 * Adds the <code>get&lt;Attribute&gt;Page(int offset, int limit)</code> operation reading the attribute in pages,
+	 * so clients can iterate over a large collection in bounded chunks instead of reading it at once. The attribute
+	 * type must be an array, <code>List</code>, <code>Collection</code>, <code>Set</code> or <code>TabularData</code>.
+	 * Pages are read by the paging method <code>get&lt;Attribute&gt;(int offset, int limit)</code> of the class,
+	 * which must return the attribute type and build only the elements of the page.
+	 */
+	boolean paged() default false;
 }
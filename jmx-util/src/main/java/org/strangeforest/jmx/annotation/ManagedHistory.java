@@ -0,0 +1,19 @@
+package org.strangeforest.jmx.annotation;
+
+import java.lang.annotation.*;
+
+import static java.lang.annotation.ElementType.*;
+import static java.lang.annotation.RetentionPolicy.*;
+
+/**
+ * Marks the getter of a numeric managed attribute whose history is kept in-process, so short spikes between client
+ * polls are not lost. While the MBean is registered, the attribute is sampled once per {@link #periodMillis()} into a
+ * preallocated ring buffer holding the last {@link #size()} samples. The history is read with the
+ * <code>getAttributeHistory</code> and <code>getAttributeHistoryStatistics</code> operations added to the MBean.
+ */
+@Retention(value = RUNTIME)
+@Target(value = METHOD)
+public @interface ManagedHistory {
+	int size() default 60;
+	long periodMillis() default 1000L;
+}
@@ -0,0 +1,18 @@
+package org.strangeforest.jmx.annotation;
+
+import java.lang.annotation.*;
+
+import static java.lang.annotation.ElementType.*;
+import static java.lang.annotation.RetentionPolicy.*;
+
+/**
+ * Marks the getter of a managed attribute whose changes are notified to MBean listeners with
+ * <code>AttributeChangeNotification</code>s. While the MBean is registered, the attribute is read once per
+ * {@link #windowMillis()}, and all the changes made within a window are coalesced into a single notification holding
+ * the value notified last and the current value.
+ */
+@Retention(value = RUNTIME)
+@Target(value = METHOD)
+public @interface ManagedNotification {
+	long windowMillis() default 1000L;
+}
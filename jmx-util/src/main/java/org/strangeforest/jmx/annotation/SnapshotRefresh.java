@@ -0,0 +1,18 @@
+package org.strangeforest.jmx.annotation;
+
+import java.lang.annotation.*;
+
+import static java.lang.annotation.ElementType.*;
+import static java.lang.annotation.RetentionPolicy.*;
+
+/**
+ * Configures the refresh of the snapshot attributes of a managed class (attributes annotated with
+ * {@link ManagedAttribute#snapshot()}). While the MBean is registered, all its snapshot attributes are read in one
+ * pass, with {@link #periodMillis()} between the end of a pass and the start of the next one. Classes with snapshot
+ * attributes and without this annotation are refreshed once per second.
+ */
+@Retention(value = RUNTIME)
+@Target(value = TYPE)
+public @interface SnapshotRefresh {
+	long periodMillis() default 1000L;
+}
@@ -0,0 +1,17 @@
+package org.strangeforest.jmx.annotation;
+
+import java.lang.annotation.*;
+
+import static java.lang.annotation.ElementType.*;
+import static java.lang.annotation.RetentionPolicy.*;
+
+/**
+ * Marks a managed class whose bulk attribute reads and writes (<code>getAttributes</code> and
+ * <code>setAttributes</code>) are done while holding the monitor of the managed object. If the accessors of the class
+ * are <code>synchronized</code>, a bulk read returns a consistent snapshot of the requested attributes. Background
+ * reads of snapshot, history and notifying attributes hold the monitor too.
+ */
+@Retention(value = RUNTIME)
+@Target(value = TYPE)
+public @interface SynchronizedAttributes {
+}
@@ -0,0 +1,154 @@
+package org.strangeforest.jmx.metric;
+
+import java.lang.invoke.*;
+import java.lang.reflect.*;
+import java.nio.*;
+
+/**
+ * <p>Atomic and volatile access to <code>long</code> and <code>int</code> values of native order byte buffers, at byte
+ * offsets aligned to the value size. On JDK 9+ the access goes through the byte buffer view <code>VarHandle</code>s,
+ * which are looked up reflectively, as the project is built for JDK 8. On JDK 8 the values are accessed under striped
+ * locks instead, which keeps the values consistent but lets updates of values sharing a stripe contend.</p>
+ */
+abstract class BufferAccess {
+
+	private static final MethodHandle[] VIEW_HANDLES = findViewHandles();
+	private static final MethodHandle GET_AND_ADD_LONG = VIEW_HANDLES != null ? VIEW_HANDLES[0] : null;
+	private static final MethodHandle GET_LONG_VOLATILE = VIEW_HANDLES != null ? VIEW_HANDLES[1] : null;
+	private static final MethodHandle GET_INT_VOLATILE = VIEW_HANDLES != null ? VIEW_HANDLES[2] : null;
+	private static final MethodHandle SET_INT_VOLATILE = VIEW_HANDLES != null ? VIEW_HANDLES[3] : null;
+
+	static final BufferAccess INSTANCE = VIEW_HANDLES != null ? new VarHandleAccess() : new LockedAccess();
+
+	abstract long getAndAddLong(ByteBuffer buffer, int offset, long delta);
+
+	abstract long getLongVolatile(ByteBuffer buffer, int offset);
+
+	abstract int getIntVolatile(ByteBuffer buffer, int offset);
+
+	abstract void putIntVolatile(ByteBuffer buffer, int offset, int value);
+
+	/**
+	 * Tells whether values are accessed through <code>VarHandle</code>s.
+	 *
+	 * @return <code>true</code> on JDK 9+.
+	 */
+	static boolean isVarHandleSupported() {
+		return VIEW_HANDLES != null;
+	}
+
+	private static MethodHandle[] findViewHandles() {
+		try {
+			Method viewFactory = MethodHandles.class.getMethod("byteBufferViewVarHandle", Class.class, ByteOrder.class);
+			Object longView = viewFactory.invoke(null, long[].class, ByteOrder.nativeOrder());
+			Object intView = viewFactory.invoke(null, int[].class, ByteOrder.nativeOrder());
+			Class<?> varHandleType = Class.forName("java.lang.invoke.VarHandle");
+			Class<?> accessModeType = Class.forName("java.lang.invoke.VarHandle$AccessMode");
+			Method toMethodHandle = varHandleType.getMethod("toMethodHandle", accessModeType);
+			return new MethodHandle[] {
+				(MethodHandle)toMethodHandle.invoke(longView, accessMode(accessModeType, "GET_AND_ADD")),
+				(MethodHandle)toMethodHandle.invoke(longView, accessMode(accessModeType, "GET_VOLATILE")),
+				(MethodHandle)toMethodHandle.invoke(intView, accessMode(accessModeType, "GET_VOLATILE")),
+				(MethodHandle)toMethodHandle.invoke(intView, accessMode(accessModeType, "SET_VOLATILE"))
+			};
+		}
+		catch (ReflectiveOperationException | RuntimeException ex) {
+			return null;
+		}
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static Object accessMode(Class<?> accessModeType, String name) {
+		return Enum.valueOf((Class)accessModeType, name);
+	}
+
+	private static final class VarHandleAccess extends BufferAccess {
+
+		@Override long getAndAddLong(ByteBuffer buffer, int offset, long delta) {
+			try {
+				return (long)GET_AND_ADD_LONG.invokeExact(buffer, offset, delta);
+			}
+			catch (Throwable th) {
+				throw rethrow(th);
+			}
+		}
+
+		@Override long getLongVolatile(ByteBuffer buffer, int offset) {
+			try {
+				return (long)GET_LONG_VOLATILE.invokeExact(buffer, offset);
+			}
+			catch (Throwable th) {
+				throw rethrow(th);
+			}
+		}
+
+		@Override int getIntVolatile(ByteBuffer buffer, int offset) {
+			try {
+				return (int)GET_INT_VOLATILE.invokeExact(buffer, offset);
+			}
+			catch (Throwable th) {
+				throw rethrow(th);
+			}
+		}
+
+		@Override void putIntVolatile(ByteBuffer buffer, int offset, int value) {
+			try {
+				SET_INT_VOLATILE.invokeExact(buffer, offset, value);
+			}
+			catch (Throwable th) {
+				throw rethrow(th);
+			}
+		}
+
+		private static RuntimeException rethrow(Throwable th) {
+			// view handles throw only unchecked exceptions, like IndexOutOfBoundsException
+			if (th instanceof RuntimeException)
+				return (RuntimeException)th;
+			if (th instanceof Error)
+				throw (Error)th;
+			return new IllegalStateException(th);
+		}
+	}
+
+	static final class LockedAccess extends BufferAccess {
+
+		private static final int STRIPES = 64;
+
+		private final Object[] locks = new Object[STRIPES];
+
+		LockedAccess() {
+			for (int i = 0; i < STRIPES; i++)
+				locks[i] = new Object();
+		}
+
+		private Object lock(int offset) {
+			return locks[(offset >>> 3) & (STRIPES - 1)];
+		}
+
+		@Override long getAndAddLong(ByteBuffer buffer, int offset, long delta) {
+			synchronized (lock(offset)) {
+				long value = buffer.getLong(offset);
+				buffer.putLong(offset, value + delta);
+				return value;
+			}
+		}
+
+		@Override long getLongVolatile(ByteBuffer buffer, int offset) {
+			synchronized (lock(offset)) {
+				return buffer.getLong(offset);
+			}
+		}
+
+		@Override int getIntVolatile(ByteBuffer buffer, int offset) {
+			synchronized (lock(offset)) {
+				return buffer.getInt(offset);
+			}
+		}
+
+		@Override void putIntVolatile(ByteBuffer buffer, int offset, int value) {
+			synchronized (lock(offset)) {
+				buffer.putInt(offset, value);
+			}
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package org.strangeforest.jmx.metric;
+
+import java.util.concurrent.atomic.*;
+
+import org.strangeforest.jmx.*;
+import org.strangeforest.jmx.annotation.*;
+
+/**
+ * <p>Monotonic counter for application hot paths. Updates go to striped cells of a <code>LongAdder</code>, so
+ * concurrent increments do not contend with each other; reading the count sums the cells on demand.</p>
+ * <p>The counter can be exposed using {@link JMXUtil#register(Object, String)}.</p>
+ */
+@MBeanDescription("Counter")
+public class Counter {
+
+	private final LongAdder count = new LongAdder();
+
+	public void increment() {
+		count.increment();
+	}
+
+	public void add(long delta) {
+		count.add(delta);
+	}
+
+	@ManagedAttribute(writable = false, description = "Current count")
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * Returns the count and resets it to zero. Updates concurrent with the reset may or may not be included in the
+	 * returned count, but are never lost: the returned count is subtracted from the cells instead of clearing them, so
+	 * an update not included in it remains in the count.
+	 *
+	 * @return the count before the reset.
+	 */
+	@ManagedOperation(impact = Impact.ACTION, description = "Returns the count and resets it to zero")
+	public synchronized long getAndReset() {
+		long sum = count.sum();
+		count.add(-sum);
+		return sum;
+	}
+
+	@ManagedOperation(impact = Impact.ACTION, description = "Resets the count to zero")
+	public void reset() {
+		count.reset();
+	}
+
+	@Override public String toString() {
+		return String.valueOf(getCount());
+	}
+}
@@ -0,0 +1,177 @@
+package org.strangeforest.jmx.metric;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import javax.management.*;
+import javax.management.openmbean.*;
+
+import org.strangeforest.jmx.*;
+import org.strangeforest.jmx.annotation.*;
+
+/**
+ * <p>Table of named counters that supports delta reads. Each counter occupies a slot of primitive arrays holding its
+ * count and the epoch in which it was last modified. Application threads update counters by slot index, which does
+ * not involve any lookup, lock or allocation.</p>
+ * <p>{@link #getChangesSince(long)} returns only the counters modified since the epoch received from the previous
+ * call, together with a new epoch to pass to the next one. The epoch is advanced by the read, and an update marks its
+ * slot with the current epoch only once per epoch, so tracking modifications costs writers a read of the shared
+ * epoch in the common case. Delta reads are at-least-once: as a modification racing with a read cannot be told
+ * apart from one made just before it, counters modified in the epoch a read closes are returned by that read and
+ * again by the next one, but a modification is never missed.</p>
+ * <p>The table can be exposed using {@link JMXUtil#register(Object, String)}. As a {@link SampleSource}, it provides
+ * the samples of its counters to exporters straight from its arrays.</p>
+ */
+@MBeanDescription("Counter table")
+public class CounterTable implements SampleSource {
+
+	private static final String[] ROW_ITEM_NAMES = {"name", "count"};
+	private static final String[] CHANGES_ITEM_NAMES = {"epoch", "counters"};
+	private static final TabularType COUNTERS_TYPE;
+	private static final CompositeType CHANGES_TYPE;
+
+	static {
+		try {
+			CompositeType rowType = new CompositeType(CounterTable.class.getName() + ".Counter", "Counter", ROW_ITEM_NAMES, new String[] {"Counter name", "Counter value"}, new OpenType[] {SimpleType.STRING, SimpleType.LONG});
+			COUNTERS_TYPE = new TabularType(CounterTable.class.getName() + ".Counters", "Counters", rowType, new String[] {"name"});
+			CHANGES_TYPE = new CompositeType(CounterTable.class.getName() + ".Changes", "Counters changed since an epoch", CHANGES_ITEM_NAMES, new String[] {"Epoch to read the next changes from", "Changed counters"}, new OpenType[] {SimpleType.LONG, COUNTERS_TYPE});
+		}
+		catch (OpenDataException ex) {
+			throw new ExceptionInInitializerError(ex);
+		}
+	}
+
+	private final String[] names;
+	private final AtomicLongArray counts;
+	private final AtomicLongArray versions;
+	private final ConcurrentMap<String, Integer> slots = new ConcurrentHashMap<>();
+	private final AtomicLong epoch = new AtomicLong(1L);
+	private volatile int size;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity the maximum number of counters.
+	 */
+	public CounterTable(int capacity) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+		names = new String[capacity];
+		counts = new AtomicLongArray(capacity);
+		versions = new AtomicLongArray(capacity);
+	}
+
+	public static TabularType getCountersType() {
+		return COUNTERS_TYPE;
+	}
+
+	public static CompositeType getChangesType() {
+		return CHANGES_TYPE;
+	}
+
+	/**
+	 * Returns the slot of the counter with the specified name, adding the counter if it does not exist.
+	 *
+	 * @param name the counter name.
+	 * @return the counter slot.
+	 * @throws IllegalStateException if the counter does not exist and the table is full.
+	 */
+	public int register(String name) {
+		Objects.requireNonNull(name, "No name specified.");
+		Integer slot = slots.get(name);
+		return slot != null ? slot : addCounter(name);
+	}
+
+	private synchronized int addCounter(String name) {
+		Integer existing = slots.get(name);
+		if (existing != null)
+			return existing;
+		int slot = size;
+		if (slot == names.length)
+			throw new IllegalStateException("Counter table is full, capacity: " + names.length);
+		names[slot] = name;
+		versions.set(slot, epoch.get());
+		// publish the slot to lock-free register calls only once it is within size
+		size = slot + 1;
+		slots.put(name, slot);
+		return slot;
+	}
+
+	public void increment(int slot) {
+		add(slot, 1L);
+	}
+
+	public void add(int slot, long delta) {
+		checkSlot(slot);
+		counts.addAndGet(slot, delta);
+		long currentEpoch = epoch.get();
+		if (versions.get(slot) < currentEpoch)
+			versions.accumulateAndGet(slot, currentEpoch, Math::max);
+	}
+
+	public long get(int slot) {
+		checkSlot(slot);
+		return counts.get(slot);
+	}
+
+	public String getName(int slot) {
+		checkSlot(slot);
+		return names[slot];
+	}
+
+	@ManagedAttribute(writable = false, description = "Number of counters")
+	public int getSize() {
+		return size;
+	}
+
+	@ManagedAttribute(writable = false, description = "All counters")
+	public TabularData getCounters() {
+		return readCounters(0L);
+	}
+
+	/**
+	 * Returns the counters modified since the specified epoch, and advances the epoch.
+	 *
+	 * @param since the epoch returned by the previous call, or 0 to read all the counters.
+	 * @return the composite data with the <code>counters</code> changed since the epoch and the <code>epoch</code> to
+	 * pass to the next call.
+	 */
+	@ManagedOperation(impact = Impact.INFO, description = "Returns the counters changed since the epoch returned by the previous call (0 for all counters) and the next epoch")
+	public CompositeData getChangesSince(long since) {
+		long current = epoch.getAndIncrement();
+		return toCompositeData(CHANGES_TYPE, CHANGES_ITEM_NAMES, new Object[] {current, readCounters(since)});
+	}
+
+	private TabularData readCounters(long since) {
+		int size = this.size;
+		TabularDataSupport counters = new TabularDataSupport(COUNTERS_TYPE);
+		for (int slot = 0; slot < size; slot++) {
+			if (versions.get(slot) >= since)
+				counters.put(toCompositeData(COUNTERS_TYPE.getRowType(), ROW_ITEM_NAMES, new Object[] {names[slot], counts.get(slot)}));
+		}
+		return counters;
+	}
+
+	@Override public void collectSamples(SampleCollector collector) {
+		int size = this.size;
+		collector.sample("size", size);
+		for (int slot = 0; slot < size; slot++)
+			collector.sample("counters", ROW_ITEM_NAMES[1], ROW_ITEM_NAMES[0], names[slot], counts.get(slot));
+	}
+
+	private void checkSlot(int slot) {
+		if (slot < 0 || slot >= size)
+			throw new IndexOutOfBoundsException("Invalid slot: " + slot);
+	}
+
+	private static CompositeData toCompositeData(CompositeType type, String[] itemNames, Object[] values) {
+		try {
+			return new CompositeDataSupport(type, itemNames, values);
+		}
+		catch (OpenDataException ex) {
+			JMRuntimeException jmEx = new JMRuntimeException(ex.getMessage());
+			jmEx.initCause(ex);
+			throw jmEx;
+		}
+	}
+}
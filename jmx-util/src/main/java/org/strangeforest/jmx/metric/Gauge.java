@@ -0,0 +1,39 @@
+package org.strangeforest.jmx.metric;
+
+import java.util.concurrent.atomic.*;
+
+import org.strangeforest.jmx.*;
+import org.strangeforest.jmx.annotation.*;
+
+/**
+ * <p>Gauge of a value that goes up and down, like the number of requests in progress. Updates go to striped cells of
+ * a <code>LongAdder</code>, so concurrent updates do not contend with each other; reading the value sums the cells
+ * on demand.</p>
+ * <p>The gauge can be exposed using {@link JMXUtil#register(Object, String)}.</p>
+ */
+@MBeanDescription("Gauge")
+public class Gauge {
+
+	private final LongAdder value = new LongAdder();
+
+	public void increment() {
+		value.increment();
+	}
+
+	public void decrement() {
+		value.decrement();
+	}
+
+	public void add(long delta) {
+		value.add(delta);
+	}
+
+	@ManagedAttribute(writable = false, description = "Current value")
+	public long getValue() {
+		return value.sum();
+	}
+
+	@Override public String toString() {
+		return String.valueOf(getValue());
+	}
+}
@@ -0,0 +1,132 @@
+package org.strangeforest.jmx.metric;
+
+import java.util.concurrent.atomic.*;
+import javax.management.openmbean.*;
+
+import org.strangeforest.jmx.*;
+import org.strangeforest.jmx.annotation.*;
+
+/**
+ * <p>Histogram of non-negative values, like request latencies, with HDR-style log-linear buckets: values below 128
+ * are counted exactly, larger values in 64 buckets per power of two, so a value is reported with at most 1/64
+ * (about 1.6%) relative error. Recording increments a bucket of a preallocated <code>AtomicLongArray</code>, so it
+ * neither locks nor allocates.</p>
+ * <p>Readers take a {@link HistogramSnapshot} relative to a baseline: in {@link Mode#CUMULATIVE} mode the baseline
+ * only moves on {@link #reset()}, in {@link Mode#INTERVAL} mode each snapshot also moves the baseline, so it covers
+ * the values recorded since the previous one. Moving the baseline never clears buckets, so values recorded
+ * concurrently with a read are never lost. The maximum is tracked since the baseline too; a value recorded
+ * concurrently with moving the baseline may be missed by the maximum, which then only loses the precision of its
+ * bucket.</p>
+ * <p>The histogram can be exposed using {@link JMXUtil#register(Object, String)}; its <code>statistics</code>
+ * attribute is a snapshot exported as <code>CompositeData</code>.</p>
+ */
+@MBeanDescription("Histogram")
+public class Histogram {
+
+	public enum Mode {CUMULATIVE, INTERVAL}
+
+	private static final int PRECISION_BITS = 7;
+	private static final int EXACT_BUCKETS = 1 << PRECISION_BITS;
+	private static final int OCTAVE_BUCKETS = EXACT_BUCKETS >>> 1;
+	static final int BUCKET_COUNT = EXACT_BUCKETS + (Long.SIZE - 1 - PRECISION_BITS) * OCTAVE_BUCKETS;
+
+	private final Mode mode;
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+	private final long[] baseline = new long[BUCKET_COUNT];
+	private long baselineSum;
+
+	public Histogram() {
+		this(Mode.CUMULATIVE);
+	}
+
+	public Histogram(Mode mode) {
+		this.mode = mode;
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Records a value.
+	 *
+	 * @param value the value to record.
+	 * @throws IllegalArgumentException if the value is negative.
+	 */
+	public void record(long value) {
+		if (value < 0L)
+			throw new IllegalArgumentException("Negative value: " + value);
+		buckets.incrementAndGet(bucketIndex(value));
+		sum.add(value);
+		long currentMax;
+		while (value > (currentMax = max.get()) && !max.compareAndSet(currentMax, value));
+	}
+
+	@ManagedAttribute(writable = false, description = "Number of values recorded since creation")
+	public long getCount() {
+		long count = 0L;
+		for (int i = 0; i < BUCKET_COUNT; i++)
+			count += buckets.get(i);
+		return count;
+	}
+
+	@ManagedAttribute(writable = false, description = "Count, mean, percentiles, max and bucket counts of the recorded values")
+	public CompositeData getStatistics() {
+		return takeSnapshot().toCompositeData();
+	}
+
+	/**
+	 * Takes a snapshot of the values recorded since the baseline. In {@link Mode#INTERVAL} mode the snapshot also
+	 * becomes the new baseline.
+	 *
+	 * @return the snapshot.
+	 */
+	public synchronized HistogramSnapshot takeSnapshot() {
+		long snapshotMax = mode == Mode.INTERVAL ? max.getAndSet(0L) : max.get();
+		long[] counts = new long[BUCKET_COUNT];
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			long count = buckets.get(i);
+			counts[i] = count - baseline[i];
+			if (mode == Mode.INTERVAL)
+				baseline[i] = count;
+		}
+		long currentSum = sum.sum();
+		long snapshotSum = currentSum - baselineSum;
+		if (mode == Mode.INTERVAL)
+			baselineSum = currentSum;
+		return new HistogramSnapshot(counts, snapshotSum, snapshotMax);
+	}
+
+	@ManagedOperation(impact = Impact.ACTION, description = "Discards the values recorded so far from the statistics")
+	public synchronized void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++)
+			baseline[i] = buckets.get(i);
+		baselineSum = sum.sum();
+		max.set(0L);
+	}
+
+	static int bucketIndex(long value) {
+		if (value < EXACT_BUCKETS)
+			return (int)value;
+		int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - PRECISION_BITS + 1;
+		return EXACT_BUCKETS + (shift - 1) * OCTAVE_BUCKETS + (int)(value >>> shift) - OCTAVE_BUCKETS;
+	}
+
+	static long bucketLowerBound(int index) {
+		if (index < EXACT_BUCKETS)
+			return index;
+		int octave = (index - EXACT_BUCKETS) / OCTAVE_BUCKETS;
+		int subBucket = (index - EXACT_BUCKETS) % OCTAVE_BUCKETS;
+		return (long)(OCTAVE_BUCKETS + subBucket) << (octave + 1);
+	}
+
+	static long bucketUpperBound(int index) {
+		if (index < EXACT_BUCKETS)
+			return index;
+		int octave = (index - EXACT_BUCKETS) / OCTAVE_BUCKETS;
+		return bucketLowerBound(index) + (1L << (octave + 1)) - 1L;
+	}
+}
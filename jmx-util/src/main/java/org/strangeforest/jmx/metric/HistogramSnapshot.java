@@ -0,0 +1,124 @@
+package org.strangeforest.jmx.metric;
+
+import javax.management.*;
+import javax.management.openmbean.*;
+
+import static org.strangeforest.jmx.metric.Histogram.*;
+
+/**
+ * Immutable view of the values recorded by a {@link Histogram} between its baseline and the moment the snapshot was
+ * taken. Percentiles and the maximum are reported as the highest value of the containing bucket, capped by the
+ * largest value recorded since the baseline.
+ */
+public final class HistogramSnapshot {
+
+	private static final String[] ITEM_NAMES = {"count", "mean", "p50", "p90", "p99", "p999", "max", "bucketUpperBounds", "bucketCounts"};
+	private static final String[] ITEM_DESCRIPTIONS = {
+		"Number of values", "Mean value", "50th percentile", "90th percentile", "99th percentile", "99.9th percentile", "Maximum value",
+		"Highest values of non-empty buckets", "Counts of non-empty buckets"
+	};
+	private static final CompositeType STATISTICS_TYPE;
+
+	static {
+		try {
+			ArrayType<long[]> longArrayType = ArrayType.getPrimitiveArrayType(long[].class);
+			STATISTICS_TYPE = new CompositeType(Histogram.class.getName(), "Histogram statistics", ITEM_NAMES, ITEM_DESCRIPTIONS, new OpenType[] {
+				SimpleType.LONG, SimpleType.DOUBLE, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG,
+				longArrayType, longArrayType
+			});
+		}
+		catch (OpenDataException ex) {
+			throw new ExceptionInInitializerError(ex);
+		}
+	}
+
+	private final long[] counts;
+	private final long count;
+	private final long sum;
+	private final long recordedMax;
+	private final int highestIndex;
+
+	HistogramSnapshot(long[] counts, long sum, long recordedMax) {
+		this.counts = counts;
+		this.sum = sum;
+		this.recordedMax = recordedMax;
+		long count = 0L;
+		int highestIndex = -1;
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] > 0L) {
+				count += counts[i];
+				highestIndex = i;
+			}
+		}
+		this.count = count;
+		this.highestIndex = highestIndex;
+	}
+
+	public static CompositeType getStatisticsType() {
+		return STATISTICS_TYPE;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getMean() {
+		return count > 0L ? (double)sum / count : 0.0;
+	}
+
+	public long getMax() {
+		return highestIndex >= 0 ? bucketValue(highestIndex) : 0L;
+	}
+
+	/**
+	 * Returns the value below or at which the specified percentage of values falls.
+	 *
+	 * @param percentile the percentile, between 0 and 100.
+	 * @return the percentile value, or 0 if there are no values.
+	 */
+	public long getPercentile(double percentile) {
+		if (percentile < 0.0 || percentile > 100.0)
+			throw new IllegalArgumentException("Invalid percentile: " + percentile);
+		if (count == 0L)
+			return 0L;
+		long rank = Math.max(1L, (long)Math.ceil(percentile / 100.0 * count));
+		long cumulative = 0L;
+		for (int i = 0; i <= highestIndex; i++) {
+			cumulative += counts[i];
+			if (cumulative >= rank)
+				return bucketValue(i);
+		}
+		return getMax();
+	}
+
+	public CompositeData toCompositeData() {
+		int nonEmpty = 0;
+		for (int i = 0; i <= highestIndex; i++) {
+			if (counts[i] > 0L)
+				nonEmpty++;
+		}
+		long[] bucketUpperBounds = new long[nonEmpty];
+		long[] bucketCounts = new long[nonEmpty];
+		for (int i = 0, j = 0; i <= highestIndex; i++) {
+			if (counts[i] > 0L) {
+				bucketUpperBounds[j] = bucketValue(i);
+				bucketCounts[j++] = counts[i];
+			}
+		}
+		try {
+			return new CompositeDataSupport(STATISTICS_TYPE, ITEM_NAMES, new Object[] {
+				count, getMean(), getPercentile(50.0), getPercentile(90.0), getPercentile(99.0), getPercentile(99.9), getMax(),
+				bucketUpperBounds, bucketCounts
+			});
+		}
+		catch (OpenDataException ex) {
+			JMRuntimeException jmEx = new JMRuntimeException(ex.getMessage());
+			jmEx.initCause(ex);
+			throw jmEx;
+		}
+	}
+
+	private long bucketValue(int index) {
+		return Math.max(bucketLowerBound(index), Math.min(bucketUpperBound(index), recordedMax));
+	}
+}
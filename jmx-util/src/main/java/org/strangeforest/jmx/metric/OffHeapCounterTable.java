@@ -0,0 +1,270 @@
+package org.strangeforest.jmx.metric;
+
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.management.*;
+import javax.management.openmbean.*;
+
+import org.strangeforest.jmx.*;
+import org.strangeforest.jmx.annotation.*;
+
+/**
+ * <p>Table of counters keyed by a name and a type, for tables too large to hold as objects, like per-tenant or
+ * per-endpoint counters. The counter slots are kept off-heap in a direct buffer, each holding the count and the ids of
+ * the key name and type, 16 bytes per counter. Key strings are interned in a dictionary, so a name or type shared by
+ * many counters is held once, and the key lookup is an off-heap open addressing index of the slots. The heap held by
+ * the table does not depend on the number of counters, only on the number of distinct key strings.</p>
+ * <p>Application threads update counters by slot index with atomic off-heap additions, which do not involve any
+ * lookup or allocation, and on JDK 9+ no lock either, as the buffers are accessed through <code>VarHandle</code>s. On
+ * JDK 8 the counters are updated under striped locks. Counters are read in pages with {@link #getCounters(int, int)}, the whole table is never
+ * converted to open data at once. Off-heap memory is released when the table is garbage collected.</p>
+ * <p>The table can be exposed using {@link JMXUtil#register(Object, String)}.</p>
+ */
+@MBeanDescription("Off-heap counter table")
+public class OffHeapCounterTable {
+
+	public static final int MAX_CAPACITY = 1 << 26;
+	public static final int MAX_PAGE_SIZE = 10000;
+
+	private static final int SLOT_BYTES = 16;
+	private static final int NAME_OFFSET = 8;
+	private static final int TYPE_OFFSET = 12;
+
+	private static final String[] ROW_ITEM_NAMES = {"name", "type", "count"};
+	private static final TabularType COUNTERS_TYPE;
+	private static final BufferAccess ACCESS = BufferAccess.INSTANCE;
+
+	static {
+		try {
+			CompositeType rowType = new CompositeType(OffHeapCounterTable.class.getName() + ".Counter", "Counter", ROW_ITEM_NAMES,
+				new String[] {"Counter name", "Counter type", "Counter value"}, new OpenType[] {SimpleType.STRING, SimpleType.STRING, SimpleType.LONG});
+			COUNTERS_TYPE = new TabularType(OffHeapCounterTable.class.getName() + ".Counters", "Counters", rowType, new String[] {"name", "type"});
+		}
+		catch (OpenDataException ex) {
+			throw new ExceptionInInitializerError(ex);
+		}
+	}
+
+	private final int capacity;
+	private final ByteBuffer slots;
+	private final ByteBuffer index;
+	private final int indexMask;
+	private final KeyDictionary keys = new KeyDictionary();
+	private volatile int size;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity the maximum number of counters, at most {@link #MAX_CAPACITY}.
+	 */
+	public OffHeapCounterTable(int capacity) {
+		if (capacity <= 0 || capacity > MAX_CAPACITY)
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+		this.capacity = capacity;
+		slots = ByteBuffer.allocateDirect(capacity * SLOT_BYTES).order(ByteOrder.nativeOrder());
+		int buckets = Integer.highestOneBit(capacity * 2 - 1) << 1;
+		index = ByteBuffer.allocateDirect(buckets * 4).order(ByteOrder.nativeOrder());
+		indexMask = buckets - 1;
+	}
+
+	public static TabularType getCountersType() {
+		return COUNTERS_TYPE;
+	}
+
+	/**
+	 * Returns the slot of the counter with the specified name and type, adding the counter if it does not exist.
+	 *
+	 * @param name the counter name.
+	 * @param type the counter type.
+	 * @return the counter slot.
+	 * @throws IllegalStateException if the counter does not exist and the table is full.
+	 */
+	public int register(String name, String type) {
+		Objects.requireNonNull(name, "No name specified.");
+		Objects.requireNonNull(type, "No type specified.");
+		int nameId = keys.find(name);
+		int typeId = keys.find(type);
+		if (nameId >= 0 && typeId >= 0) {
+			int slot = findSlot(nameId, typeId);
+			if (slot >= 0)
+				return slot;
+		}
+		return addCounter(name, type);
+	}
+
+	private synchronized int addCounter(String name, String type) {
+		int nameId = keys.intern(name);
+		int typeId = keys.intern(type);
+		int existing = findSlot(nameId, typeId);
+		if (existing >= 0)
+			return existing;
+		int slot = size;
+		if (slot == capacity)
+			throw new IllegalStateException("Counter table is full, capacity: " + capacity);
+		int slotOffset = slotOffset(slot);
+		slots.putInt(slotOffset + NAME_OFFSET, nameId);
+		slots.putInt(slotOffset + TYPE_OFFSET, typeId);
+		int bucket = hash(nameId, typeId);
+		while (index.getInt(bucketOffset(bucket)) != 0)
+			bucket = (bucket + 1) & indexMask;
+		// publish the slot to lock-free register calls only once it is within size
+		size = slot + 1;
+		ACCESS.putIntVolatile(index, bucketOffset(bucket), slot + 1);
+		return slot;
+	}
+
+	private int findSlot(int nameId, int typeId) {
+		for (int bucket = hash(nameId, typeId); ; bucket = (bucket + 1) & indexMask) {
+			int entry = ACCESS.getIntVolatile(index, bucketOffset(bucket));
+			if (entry == 0)
+				return -1;
+			int slotOffset = slotOffset(entry - 1);
+			if (slots.getInt(slotOffset + NAME_OFFSET) == nameId && slots.getInt(slotOffset + TYPE_OFFSET) == typeId)
+				return entry - 1;
+		}
+	}
+
+	private int hash(int nameId, int typeId) {
+		int hash = nameId * 0x9E3779B9 + typeId;
+		return (hash ^ (hash >>> 16)) & indexMask;
+	}
+
+	public void increment(int slot) {
+		add(slot, 1L);
+	}
+
+	public void add(int slot, long delta) {
+		checkSlot(slot);
+		ACCESS.getAndAddLong(slots, slotOffset(slot), delta);
+	}
+
+	public long get(int slot) {
+		checkSlot(slot);
+		return ACCESS.getLongVolatile(slots, slotOffset(slot));
+	}
+
+	public String getName(int slot) {
+		checkSlot(slot);
+		return keys.get(slots.getInt(slotOffset(slot) + NAME_OFFSET));
+	}
+
+	public String getType(int slot) {
+		checkSlot(slot);
+		return keys.get(slots.getInt(slotOffset(slot) + TYPE_OFFSET));
+	}
+
+	@ManagedAttribute(writable = false, description = "Number of counters")
+	public int getSize() {
+		return size;
+	}
+
+	@ManagedAttribute(writable = false, description = "Maximum number of counters")
+	public int getCapacity() {
+		return capacity;
+	}
+
+	@ManagedAttribute(writable = false, description = "Number of distinct key names and types")
+	public int getKeys() {
+		return keys.size();
+	}
+
+	@ManagedAttribute(writable = false, description = "Off-heap memory held by the counters and their index in bytes")
+	public long getMemoryBytes() {
+		return (long)slots.capacity() + index.capacity();
+	}
+
+	@ManagedAttribute(writable = false, description = "Sum of all the counters")
+	public long getTotal() {
+		int size = this.size;
+		long total = 0L;
+		for (int slot = 0; slot < size; slot++)
+			total += ACCESS.getLongVolatile(slots, slotOffset(slot));
+		return total;
+	}
+
+	/**
+	 * Returns a page of counters, in the order they were added.
+	 *
+	 * @param from  the slot of the first counter.
+	 * @param count the maximum number of counters, at most {@link #MAX_PAGE_SIZE}.
+	 * @return the counters.
+	 * @throws IllegalArgumentException if <code>from</code> or <code>count</code> is negative or <code>count</code>
+	 * exceeds the maximum page size.
+	 */
+	@ManagedOperation(impact = Impact.INFO, description = "Returns up to count counters starting from the slot from")
+	public TabularData getCounters(int from, int count) {
+		if (from < 0 || count < 0 || count > MAX_PAGE_SIZE)
+			throw new IllegalArgumentException("Invalid page, from: " + from + ", count: " + count);
+		int to = (int)Math.min((long)from + count, size);
+		TabularDataSupport counters = new TabularDataSupport(COUNTERS_TYPE, Math.max(16, (to - from) * 4 / 3 + 1), 0.75f);
+		for (int slot = from; slot < to; slot++) {
+			int slotOffset = slotOffset(slot);
+			counters.put(toCompositeData(new Object[] {
+				keys.get(slots.getInt(slotOffset + NAME_OFFSET)), keys.get(slots.getInt(slotOffset + TYPE_OFFSET)), ACCESS.getLongVolatile(slots, slotOffset)
+			}));
+		}
+		return counters;
+	}
+
+	private static int slotOffset(int slot) {
+		return slot * SLOT_BYTES;
+	}
+
+	private static int bucketOffset(int bucket) {
+		return bucket * 4;
+	}
+
+	private void checkSlot(int slot) {
+		if (slot < 0 || slot >= size)
+			throw new IndexOutOfBoundsException("Invalid slot: " + slot);
+	}
+
+	private static CompositeData toCompositeData(Object[] values) {
+		try {
+			return new CompositeDataSupport(COUNTERS_TYPE.getRowType(), ROW_ITEM_NAMES, values);
+		}
+		catch (OpenDataException ex) {
+			JMRuntimeException jmEx = new JMRuntimeException(ex.getMessage());
+			jmEx.initCause(ex);
+			throw jmEx;
+		}
+	}
+
+	/**
+	 * Interned key strings by id. Ids are added by the table under its lock and published to readers through the
+	 * off-heap index, whose volatile writes follow the dictionary writes.
+	 */
+	private static final class KeyDictionary {
+
+		private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+		private volatile String[] values = new String[16];
+		private int size;
+
+		int find(String key) {
+			Integer id = ids.get(key);
+			return id != null ? id : -1;
+		}
+
+		int intern(String key) {
+			Integer id = ids.get(key);
+			if (id != null)
+				return id;
+			String[] values = this.values;
+			if (size == values.length)
+				values = Arrays.copyOf(values, size * 2);
+			values[size] = key;
+			this.values = values;
+			ids.put(key, size);
+			return size++;
+		}
+
+		String get(int id) {
+			return values[id];
+		}
+
+		int size() {
+			return ids.size();
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package org.strangeforest.jmx.metric;
+
+/**
+ * Receives the samples of a {@link SampleSource}. Samples are identified the same way as when they are read from the
+ * attributes of the source MBean.
+ */
+public interface SampleCollector {
+
+	/**
+	 * Receives the value of a numeric attribute.
+	 */
+	void sample(String attribute, long value);
+
+	/**
+	 * Receives a numeric item of a row of a tabular attribute.
+	 *
+	 * @param attribute  the attribute name.
+	 * @param item       the name of the numeric item.
+	 * @param labelName  the name of the string item identifying the row.
+	 * @param labelValue the value of the string item identifying the row.
+	 * @param value      the item value.
+	 */
+	void sample(String attribute, String item, String labelName, String labelValue, long value);
+}
@@ -0,0 +1,15 @@
+package org.strangeforest.jmx.metric;
+
+/**
+ * Metric that provides the samples of its numeric attributes directly from its state, without building the open data
+ * its attributes return. In-process exporters use it instead of reading the attributes of the metric MBean.
+ */
+public interface SampleSource {
+
+	/**
+	 * Provides a sample for each numeric value of each attribute, for the rows of tabular attributes as well.
+	 *
+	 * @param collector the collector receiving the samples.
+	 */
+	void collectSamples(SampleCollector collector);
+}
@@ -0,0 +1,34 @@
+package org.strangeforest.jmx;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.strangeforest.jmx.annotation.*;
+
+@MBeanDescription("Cached")
+public class CachedCounter {
+
+	private volatile int counter;
+	private final AtomicInteger reads = new AtomicInteger();
+	private final CountDownLatch release;
+
+	public CachedCounter(CountDownLatch release) {
+		this.release = release;
+	}
+
+	@ManagedAttribute(cacheMillis = 60000L)
+	public int getCounter() throws InterruptedException {
+		reads.incrementAndGet();
+		int counter = this.counter;
+		release.await();
+		return counter;
+	}
+
+	public void setCounter(int counter) {
+		this.counter = counter;
+	}
+
+	public int getReads() {
+		return reads.get();
+	}
+}
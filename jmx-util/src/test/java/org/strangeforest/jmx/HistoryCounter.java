@@ -0,0 +1,30 @@
+package org.strangeforest.jmx;
+
+import org.strangeforest.jmx.annotation.*;
+
+@MBeanDescription("History")
+public class HistoryCounter {
+
+	private volatile int counter;
+	private volatile double ratio;
+
+	@ManagedAttribute
+	@ManagedHistory(size = 4, periodMillis = 10L)
+	public int getCounter() {
+		return counter;
+	}
+
+	public void setCounter(int counter) {
+		this.counter = counter;
+	}
+
+	@ManagedAttribute(writable = false)
+	@ManagedHistory(size = 8, periodMillis = 10L)
+	public double getRatio() {
+		return ratio;
+	}
+
+	public void setRatio(double ratio) {
+		this.ratio = ratio;
+	}
+}
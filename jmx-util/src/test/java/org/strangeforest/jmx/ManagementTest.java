@@ -1,7 +1,14 @@
 package org.strangeforest.jmx;
 
 import java.lang.management.*;
+import java.lang.ref.*;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import javax.management.*;
+import javax.management.openmbean.*;
+import javax.management.remote.*;
 
 import org.junit.*;
 import org.strangeforest.jmx.annotation.*;
@@ -81,6 +88,107 @@ public class ManagementTest {
 		
 	}
 	
+	@Test
+	public void shouldInstrumentObjectWithEachInvocationEngine() throws Exception {
+		
+		for (InvocationEngine engine : InvocationEngine.values()) {
+			
+			AnnotatedCounter counter = new AnnotatedCounter();
+			DynamicMBean mBean = MBeanFactory.createMBean(counter, engine);
+			
+			mBean.setAttribute(new Attribute("counter", 10));
+			assertEquals(10, mBean.getAttribute("counter"));
+			
+			mBean.invoke("resetCounter", null, null);
+			assertEquals(0, counter.getCounter());
+			
+			assertEquals(true, mBean.invoke("addCounter", new Object[] { 20 } , new String[] { "int" }));
+			assertEquals(20, mBean.getAttribute("counter"));
+			
+		}
+		
+	}
+	
+	@Test
+	public void shouldReportInvocationErrorsLikeReflectionWithEachInvocationEngine() throws Exception {
+		
+		Method substring = String.class.getMethod("substring", int.class);
+		for (InvocationEngine engine : InvocationEngine.values()) {
+			
+			Invoker invoker = engine.bind(substring);
+			assertEquals("c", invoker.invoke("abc", new Object[] { 2 }));
+			try {
+				invoker.invoke("abc", new Object[] { "2" });
+				fail("Argument of wrong type accepted by " + engine);
+			}
+			catch (IllegalArgumentException expected) {}
+			try {
+				invoker.invoke("abc", new Object[] { 5 });
+				fail("Exception of method not reported by " + engine);
+			}
+			catch (InvocationTargetException ex) {
+				assertTrue(ex.getCause() instanceof StringIndexOutOfBoundsException);
+			}
+			
+		}
+		
+	}
+	
+	@Test
+	public void shouldNotKeepDiscardedMBeanServerInRegistry() throws Exception {
+		MBeanServer server = MBeanServerFactory.newMBeanServer();
+		server.registerMBean(MBeanFactory.createMBean(new AnnotatedCounter()), new ObjectName("org.test:type=AnnotatedCounter"));
+		assertEquals(1, MBeanRegistry.getMBeans(server).size());
+		WeakReference<MBeanServer> serverRef = new WeakReference<>(server);
+		server = null;
+		long deadline = System.currentTimeMillis() + 5000L;
+		while (serverRef.get() != null && System.currentTimeMillis() < deadline) {
+			System.gc();
+			Thread.sleep(10L);
+		}
+		assertNull(serverRef.get());
+	}
+	
+	@Test
+	public void shouldCacheResolvedOperationSignatures() throws Exception {
+		
+		SignatureCacheStatistics statistics = MBeanFactory.getSignatureCacheStatistics();
+		DynamicMBean mBean1 = MBeanFactory.createMBean(new AnnotatedCounter());
+		DynamicMBean mBean2 = MBeanFactory.createMBean(new AnnotatedCounter());
+		
+		mBean1.invoke("addCounter", new Object[] { 1 } , new String[] { "int" });
+		long hits = statistics.getHits();
+		long misses = statistics.getMisses();
+		
+		mBean1.invoke("addCounter", new Object[] { 1 } , new String[] { "int" });
+		mBean2.invoke("addCounter", new Object[] { 1 } , new String[] { "int" });
+		assertEquals(hits + 2, statistics.getHits());
+		assertEquals(misses, statistics.getMisses());
+		long size = statistics.getSize();
+		assertTrue(size >= 1L);
+		statistics.reset();
+		assertEquals(size, statistics.getSize());
+		assertEquals(2, mBean1.getAttribute("counter"));
+		assertEquals(1, mBean2.getAttribute("counter"));
+		
+		JMXUtil.registerSignatureCacheStatistics();
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(SignatureCacheStatistics.NAME);
+			mBean1.invoke("addCounter", new Object[] { 1 } , new String[] { "int" });
+			assertEquals(statistics.getHits(), server.getAttribute(name, "hits"));
+			assertEquals(size, server.getAttribute(name, "size"));
+		}
+		finally {
+			JMXUtil.unregister(SignatureCacheStatistics.NAME);
+		}
+	}
+	
+	@Test(expected=ReflectionException.class)
+	public void shouldNotInvokeOperationWithWrongSignature() throws Exception {
+		MBeanFactory.createMBean(new AnnotatedCounter()).invoke("addCounter", new Object[] { "20" } , new String[] { String.class.getName() });
+	}
+	
 	@Test
 	public void shouldInstrumentObjectWithEnum() throws Exception {
 		
@@ -99,6 +207,60 @@ public class ManagementTest {
 		
 	}
 	
+	@Test
+	public void shouldAccessAttributesOfDirectlyCreatedMBean() throws Exception {
+		
+		AnnotatedCounter counter = new AnnotatedCounter();
+		MBeanInfo mBeanInfo = MBeanFactory.createMBean(counter).getMBeanInfo();
+		MBeanImpl mBean = new MBeanImpl(counter, mBeanInfo);
+		
+		mBean.setAttribute(new Attribute("counter", 5));
+		assertEquals(5, counter.getCounter());
+		assertEquals(5, mBean.getAttribute("counter"));
+		
+	}
+	
+	@Test
+	public void shouldShareMetadataBetweenInstancesOfSameClass() throws Exception {
+		
+		DynamicMBean mBean1 = MBeanFactory.createMBean(new AnnotatedCounter());
+		DynamicMBean mBean2 = MBeanFactory.createMBean(new AnnotatedCounter());
+		assertSame(mBean1.getMBeanInfo(), mBean2.getMBeanInfo());
+		
+		mBean1.setAttribute(new Attribute("counter", 1));
+		mBean2.setAttribute(new Attribute("counter", 2));
+		assertEquals(1, mBean1.getAttribute("counter"));
+		assertEquals(2, mBean2.getAttribute("counter"));
+		
+	}
+	
+	@Test
+	public void shouldGetAndSetAttributesSkippingInvalidOnes() throws Exception {
+		
+		AnnotatedCounter counter = new AnnotatedCounter();
+		DynamicMBean mBean = MBeanFactory.createMBean(counter);
+		
+		AttributeList setAttributes = mBean.setAttributes(new AttributeList(Arrays.asList(new Attribute("counter", 3), new Attribute("unknown", 1), new Attribute("counter", "4"))));
+		assertEquals(1, setAttributes.size());
+		assertEquals(new Attribute("counter", 3), setAttributes.get(0));
+		assertEquals(3, counter.getCounter());
+		
+		AttributeList attributes = mBean.getAttributes(new String[] {"unknown", "counter", null});
+		assertEquals(1, attributes.size());
+		assertEquals(new Attribute("counter", 3), attributes.get(0));
+		
+	}
+	
+	@Test(expected=AttributeNotFoundException.class)
+	public void shouldNotGetUnknownAttribute() throws Exception {
+		MBeanFactory.createMBean(new AnnotatedCounter()).getAttribute("unknown");
+	}
+	
+	@Test(expected=InvalidAttributeValueException.class)
+	public void shouldNotSetAttributeOfWrongType() throws Exception {
+		MBeanFactory.createMBean(new AnnotatedCounter()).setAttribute(new Attribute("counter", "10"));
+	}
+	
 	@Test(expected=NullPointerException.class)
 	public void shouldNotRegisterNullObject() throws Exception {
 		JMXUtil.register(null, "org.test:type=Counter7464789");
@@ -147,4 +309,578 @@ public class ManagementTest {
 		public int getCounter() { return 0; }
 	}
 	
+
+	@Test
+	public void shouldNotifyCoalescedAttributeChanges() throws Exception {
+		String name = "org.test:type=NotifyingCounter";
+		ObjectName statisticsName = new ObjectName(name + ",statistics=notifications");
+		NotifyingCounter counter = new NotifyingCounter();
+		JMXUtil.register(counter, name);
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			MBeanNotificationInfo[] notifications = server.getMBeanInfo(new ObjectName(name)).getNotifications();
+			assertEquals(1, notifications.length);
+			assertEquals(AttributeChangeNotification.ATTRIBUTE_CHANGE, notifications[0].getNotifTypes()[0]);
+
+			BlockingQueue<Notification> received = new LinkedBlockingQueue<>();
+			server.addNotificationListener(new ObjectName(name), (notification, handback) -> received.add(notification), null, null);
+			for (int i = 1; i <= 10; i++)
+				counter.setCounter(i);
+
+			AttributeChangeNotification notification = (AttributeChangeNotification)received.poll(5L, TimeUnit.SECONDS);
+			assertNotNull(notification);
+			assertEquals(new ObjectName(name), notification.getSource());
+			assertEquals("counter", notification.getAttributeName());
+			assertEquals(0, notification.getOldValue());
+			if (!notification.getNewValue().equals(10)) { // polled while values were being changed
+				notification = (AttributeChangeNotification)received.poll(5L, TimeUnit.SECONDS);
+				assertNotNull(notification);
+			}
+			assertEquals(10, notification.getNewValue());
+			assertNull(received.poll(200L, TimeUnit.MILLISECONDS));
+			assertTrue((Long)server.getAttribute(statisticsName, "sent") >= 1L);
+		}
+		finally {
+			JMXUtil.unregister(name);
+		}
+		assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(statisticsName));
+	}
+
+	@Test
+	public void shouldComputeCachedAttributeOnceForConcurrentReaders() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CachedCounter counter = new CachedCounter(release);
+		counter.setCounter(1);
+		DynamicMBean mBean = MBeanFactory.createMBean(counter);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Object>> reads = new ArrayList<>();
+			for (int i = 0; i < 8; i++)
+				reads.add(executor.submit(() -> mBean.getAttribute("counter")));
+			Thread.sleep(100L);
+			release.countDown();
+			for (Future<Object> read : reads)
+				assertEquals(1, read.get(5L, TimeUnit.SECONDS));
+		}
+		finally {
+			executor.shutdown();
+		}
+		assertEquals(1, counter.getReads());
+
+		counter.setCounter(2);
+		assertEquals(1, mBean.getAttribute("counter"));
+		assertEquals(1, counter.getReads());
+		mBean.setAttribute(new Attribute("counter", 3));
+		assertEquals(3, mBean.getAttributes(new String[] {"counter"}).asList().get(0).getValue());
+		assertEquals(2, counter.getReads());
+	}
+
+	@Test
+	public void shouldNotCacheValueReadBeforeSet() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CachedCounter counter = new CachedCounter(release);
+		counter.setCounter(1);
+		DynamicMBean mBean = MBeanFactory.createMBean(counter);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<Object> read = executor.submit(() -> mBean.getAttribute("counter"));
+			Thread.sleep(100L);
+			mBean.setAttribute(new Attribute("counter", 2));
+			release.countDown();
+			assertEquals(1, read.get(5L, TimeUnit.SECONDS));
+		}
+		finally {
+			executor.shutdown();
+		}
+		assertEquals(2, mBean.getAttribute("counter"));
+	}
+
+	@Test
+	public void shouldServeSnapshotAttributesRefreshedInBackground() throws Exception {
+		String name = "org.test:type=SnapshotCounter";
+		ObjectName statisticsName = new ObjectName(name + ",statistics=snapshot");
+		SnapshotCounter counter = new SnapshotCounter();
+		JMXUtil.register(counter, name);
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			assertEquals(0, server.getAttribute(new ObjectName(name), "counter"));
+			assertTrue(server.isRegistered(statisticsName));
+			long deadline = System.currentTimeMillis() + 5000L;
+			while ((Long)server.getAttribute(statisticsName, "refreshes") == 0L && System.currentTimeMillis() < deadline)
+				Thread.sleep(10L);
+			assertTrue(counter.getReadingThread().startsWith("jmx-refresher"));
+
+			counter.setCounter(1);
+			while (!server.getAttribute(new ObjectName(name), "counter").equals(1) && System.currentTimeMillis() < deadline)
+				Thread.sleep(10L);
+			assertEquals(1, server.getAttribute(new ObjectName(name), "counter"));
+			assertTrue(counter.getReadingThread().startsWith("jmx-refresher"));
+			assertTrue((Long)server.getAttribute(statisticsName, "refreshes") > 1L);
+			assertEquals(0L, server.getAttribute(statisticsName, "failedRefreshes"));
+
+			server.setAttribute(new ObjectName(name), new Attribute("counter", 5));
+			assertEquals(5, server.getAttribute(new ObjectName(name), "counter"));
+
+			try {
+				JMXUtil.register(new SnapshotCounter(), name);
+				fail("Duplicate MBean registered.");
+			}
+			catch (InstanceAlreadyExistsException expected) {}
+			assertTrue(server.isRegistered(statisticsName));
+		}
+		finally {
+			JMXUtil.unregister(name);
+		}
+		assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(statisticsName));
+	}
+
+	@Test
+	public void shouldKeepSamplingSynchronizedAttributesAfterGetterError() throws Exception {
+		String name = "org.test:type=FailingHistoryCounter";
+		ObjectName statisticsName = new ObjectName(name + ",statistics=history");
+		FailingHistoryCounter counter = new FailingHistoryCounter();
+		JMXUtil.register(counter, name);
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			long deadline = System.currentTimeMillis() + 5000L;
+			while ((Long)server.getAttribute(statisticsName, "samples") < 2L && System.currentTimeMillis() < deadline)
+				Thread.sleep(10L);
+			assertTrue((Long)server.getAttribute(statisticsName, "samples") >= 2L);
+			assertTrue((Long)server.getAttribute(statisticsName, "failedSamples") >= 2L);
+			assertFalse(counter.unlockedRead);
+		}
+		finally {
+			JMXUtil.unregister(name);
+		}
+	}
+
+	@Test
+	public void shouldKeepAttributeHistory() throws Exception {
+		String name = "org.test:type=HistoryCounter";
+		ObjectName on = new ObjectName(name);
+		ObjectName statisticsName = new ObjectName(name + ",statistics=history");
+		HistoryCounter counter = new HistoryCounter();
+		counter.setCounter(7);
+		counter.setRatio(0.5);
+		JMXUtil.register(counter, name);
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			String[] historySignature = {String.class.getName(), int.class.getName()};
+			long deadline = System.currentTimeMillis() + 5000L;
+			long[] values;
+			do {
+				Thread.sleep(10L);
+				values = (long[])((CompositeData)server.invoke(on, "getAttributeHistory", new Object[] {"counter", 10}, historySignature)).get("values");
+			}
+			while (values.length < 4 && System.currentTimeMillis() < deadline);
+			assertArrayEquals(new long[] {7L, 7L, 7L, 7L}, values);
+			assertEquals(0.5, ((double[])((CompositeData)server.invoke(on, "getAttributeHistory", new Object[] {"ratio", 1}, historySignature)).get("values"))[0], 0.0);
+
+			counter.setCounter(11);
+			deadline = System.currentTimeMillis() + 5000L;
+			CompositeData statistics;
+			do {
+				Thread.sleep(10L);
+				statistics = (CompositeData)server.invoke(on, "getAttributeHistoryStatistics", new Object[] {"counter", 60000L}, new String[] {String.class.getName(), long.class.getName()});
+			}
+			while (!statistics.get("max").equals(11.0) && System.currentTimeMillis() < deadline);
+			assertEquals(4, statistics.get("count"));
+			assertEquals(11.0, statistics.get("max"));
+			assertTrue((Double)statistics.get("avg") > 7.0);
+
+			assertEquals(256L, server.getAttribute(statisticsName, "memoryBytes"));
+			assertEquals(2, server.getAttribute(statisticsName, "attributes"));
+
+			try {
+				JMXUtil.register(new HistoryCounter(), name);
+				fail("Duplicate MBean registered.");
+			}
+			catch (InstanceAlreadyExistsException expected) {}
+			assertTrue(server.isRegistered(statisticsName));
+		}
+		finally {
+			JMXUtil.unregister(name);
+		}
+		assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(statisticsName));
+	}
+
+	@Test
+	public void shouldReadPagedAttributesInPages() throws Exception {
+		DynamicMBean mBean = MBeanFactory.createMBean(new PagedCounters());
+		String[] signature = {"int", "int"};
+		Set<String> operations = new HashSet<>();
+		for (MBeanOperationInfo operation : mBean.getMBeanInfo().getOperations())
+			operations.add(operation.getName());
+		assertEquals(new HashSet<>(Arrays.asList("getNamesPage", "getCountsPage", "getTagsPage")), operations);
+
+		assertEquals(Arrays.asList("counter10", "counter11", "counter12"), mBean.invoke("getNamesPage", new Object[] {10, 3}, signature));
+		assertEquals(Arrays.asList("counter98", "counter99"), mBean.invoke("getNamesPage", new Object[] {98, 3}, signature));
+		assertEquals(Collections.emptyList(), mBean.invoke("getNamesPage", new Object[] {200, 3}, signature));
+		assertArrayEquals(new long[] {50L, 51L}, (long[])mBean.invoke("getCountsPage", new Object[] {50, 2}, signature));
+		assertEquals(new LinkedHashSet<>(Arrays.asList("b", "c")), mBean.invoke("getTagsPage", new Object[] {1, 5}, signature));
+	}
+
+	@Test(expected = ReflectionException.class)
+	public void shouldNotReadPageWithNegativeOffset() throws Exception {
+		MBeanFactory.createMBean(new PagedCounters()).invoke("getNamesPage", new Object[] {-1, 3}, new String[] {"int", "int"});
+	}
+
+	@Test(expected = ManagementException.class)
+	public void shouldNotPageAttributeOfNonCollectionType() {
+		MBeanFactory.createMBean(new PagedObject());
+	}
+
+	@Test(expected = ManagementException.class)
+	public void shouldNotPageAttributeWithoutPagingMethod() {
+		MBeanFactory.createMBean(new UnpagedList());
+	}
+
+	@Test(expected = ReflectionException.class)
+	public void shouldNotReadPageWithoutParameters() throws Exception {
+		MBeanFactory.createMBean(new PagedCounters()).invoke("getNamesPage", null, new String[] {"int", "int"});
+	}
+
+	@Test
+	public void shouldInvokeMBeansOnConnectorServerThreads() throws Exception {
+		String name = "org.test:type=ConnectorCounter";
+		JMXUtil.register(new AnnotatedCounter(), name);
+		ConnectorServerBuilder builder = new ConnectorServerBuilder(new JMXServiceURL("service:jmx:rmi://")).threads(ConnectorServerBuilder.Threads.PLATFORM).platformThreads(2);
+		JMXConnectorServer connectorServer = builder.build();
+		connectorServer.start();
+		try (JMXConnector connector = JMXConnectorFactory.connect(connectorServer.getAddress())) {
+			MBeanServerConnection connection = connector.getMBeanServerConnection();
+			connection.setAttribute(new ObjectName(name), new Attribute("counter", 5));
+			assertEquals(5, connection.getAttribute(new ObjectName(name), "counter"));
+			try {
+				connection.getAttribute(new ObjectName("org.test:type=Unknown"), "counter");
+				fail();
+			}
+			catch (InstanceNotFoundException expected) {}
+
+			ConnectorStatistics statistics = builder.getStatistics();
+			assertEquals("PLATFORM", statistics.getThreads());
+			assertTrue(statistics.getCompleted() >= 3L);
+			assertTrue(statistics.getFailed() >= 1L);
+			assertEquals(0, statistics.getQueued());
+		}
+		finally {
+			connectorServer.stop();
+			JMXUtil.unregister(name);
+		}
+		long deadline = System.currentTimeMillis() + 5000L;
+		while (hasThread("jmx-connector-") && System.currentTimeMillis() < deadline)
+			Thread.sleep(10L);
+		assertFalse(hasThread("jmx-connector-"));
+	}
+
+	private static boolean hasThread(String namePrefix) {
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().startsWith(namePrefix))
+				return true;
+		}
+		return false;
+	}
+
+	@Test
+	public void shouldNotBlockSenderOnSlowListener() throws Exception {
+		AsyncNotificationEmitter emitter = new AsyncNotificationEmitter(4, AsyncNotificationEmitter.OverflowPolicy.DROP_OLDEST);
+		CountDownLatch release = new CountDownLatch(1);
+		BlockingQueue<Notification> received = new LinkedBlockingQueue<>();
+		emitter.addNotificationListener((notification, handback) -> {
+			try {
+				release.await();
+			}
+			catch (InterruptedException ignored) {}
+			received.add(notification);
+		}, null, null);
+
+		for (int i = 1; i <= 20; i++)
+			emitter.sendNotification(new Notification("test", this, i));
+		NotificationDispatchStatistics statistics = emitter.getStatistics();
+		assertEquals(20L, statistics.getSent());
+		assertTrue(statistics.getDropped() >= 15L);
+		assertEquals(4, statistics.getQueueDepth());
+
+		release.countDown();
+		Notification last;
+		do
+			last = received.poll(5L, TimeUnit.SECONDS);
+		while (last != null && last.getSequenceNumber() != 20L);
+		assertNotNull(last);
+		assertEquals(20L, statistics.getDelivered() + statistics.getDropped());
+		assertEquals(statistics.getDelivered(), ((CompositeData)statistics.getDispatchLatency()).get("count"));
+	}
+
+	@Test
+	public void shouldKeepDeliveringAfterListenerError() throws Exception {
+		AsyncNotificationEmitter emitter = new AsyncNotificationEmitter();
+		BlockingQueue<Notification> received = new LinkedBlockingQueue<>();
+		emitter.addNotificationListener((notification, handback) -> {
+			if (notification.getSequenceNumber() == 1L)
+				throw new AssertionError("Listener error");
+			received.add(notification);
+		}, null, null);
+
+		emitter.sendNotification(new Notification("test", this, 1L));
+		long deadline = System.currentTimeMillis() + 5000L;
+		while (emitter.getStatistics().getFailed() == 0L && System.currentTimeMillis() < deadline)
+			Thread.sleep(10L);
+		assertEquals(1L, emitter.getStatistics().getFailed());
+
+		emitter.sendNotification(new Notification("test", this, 2L));
+		Notification notification = received.poll(5L, TimeUnit.SECONDS);
+		assertNotNull(notification);
+		assertEquals(2L, notification.getSequenceNumber());
+	}
+
+	@Test
+	public void shouldDeliverBufferedNotificationsAfterListenerError() throws Exception {
+		AsyncNotificationEmitter emitter = new AsyncNotificationEmitter();
+		CountDownLatch release = new CountDownLatch(1);
+		BlockingQueue<Notification> received = new LinkedBlockingQueue<>();
+		emitter.addNotificationListener((notification, handback) -> {
+			if (notification.getSequenceNumber() == 1L) {
+				try {
+					release.await();
+				}
+				catch (InterruptedException ignored) {}
+				throw new AssertionError("Listener error");
+			}
+			received.add(notification);
+		}, null, null);
+
+		for (long sequence = 1L; sequence <= 3L; sequence++)
+			emitter.sendNotification(new Notification("test", this, sequence));
+		release.countDown();
+		for (long sequence = 2L; sequence <= 3L; sequence++) {
+			Notification notification = received.poll(5L, TimeUnit.SECONDS);
+			assertNotNull(notification);
+			assertEquals(sequence, notification.getSequenceNumber());
+		}
+		assertEquals(1L, emitter.getStatistics().getFailed());
+	}
+
+	@Test
+	public void shouldDropNewestAndSampleNotificationsOfFullQueue() throws Exception {
+		for (AsyncNotificationEmitter.OverflowPolicy policy : Arrays.asList(AsyncNotificationEmitter.OverflowPolicy.DROP_NEWEST, AsyncNotificationEmitter.OverflowPolicy.SAMPLE)) {
+			AsyncNotificationEmitter emitter = new AsyncNotificationEmitter(16, policy, 4);
+			CountDownLatch release = new CountDownLatch(1);
+			List<Long> received = new CopyOnWriteArrayList<>();
+			emitter.addNotificationListener((notification, handback) -> {
+				try {
+					release.await();
+				}
+				catch (InterruptedException ignored) {}
+				received.add(notification.getSequenceNumber());
+			}, null, null);
+
+			for (int i = 1; i <= 100; i++)
+				emitter.sendNotification(new Notification("test", this, i));
+			release.countDown();
+			while (emitter.getStatistics().getQueueDepth() > 0)
+				Thread.sleep(10L);
+
+			assertEquals(1L, (long)received.get(0));
+			assertTrue(received.size() <= 17);
+			if (policy == AsyncNotificationEmitter.OverflowPolicy.SAMPLE)
+				assertTrue(received.get(received.size() - 1) > 16L);
+		}
+	}
+
+	@Test(expected = ListenerNotFoundException.class)
+	public void shouldNotRemoveUnknownListener() throws Exception {
+		new AsyncNotificationEmitter().removeNotificationListener((notification, handback) -> {});
+	}
+
+	@Test
+	public void shouldRegisterAllAndReportFailuresPerEntry() throws Exception {
+		String existingName = "org.test.all:type=AnnotatedCounter,id=existing";
+		JMXUtil.register(new AnnotatedCounter(), existingName);
+		Map<String, Object> objects = new LinkedHashMap<>();
+		for (int i = 0; i < 100; i++)
+			objects.put("org.test.all:type=AnnotatedCounter,id=" + i, new AnnotatedCounter());
+		objects.put("org.test.all:malformed", new AnnotatedCounter());
+		objects.put(existingName, new AnnotatedCounter());
+		objects.put("org.test.all:type=AnnotatedCounter,id=null", null);
+		objects.put("org.test.all:type=WrongAnnotatedCounter", new WrongAnnotatedCounter());
+		try {
+			Map<String, Exception> failures = JMXUtil.registerAll(objects);
+
+			assertEquals(Arrays.asList("org.test.all:malformed", existingName, "org.test.all:type=AnnotatedCounter,id=null", "org.test.all:type=WrongAnnotatedCounter"), new ArrayList<>(failures.keySet()));
+			assertTrue(failures.get("org.test.all:malformed") instanceof MalformedObjectNameException);
+			assertTrue(failures.get(existingName) instanceof InstanceAlreadyExistsException);
+			assertTrue(failures.get("org.test.all:type=AnnotatedCounter,id=null") instanceof NullPointerException);
+			assertTrue(failures.get("org.test.all:type=WrongAnnotatedCounter") instanceof ManagementException);
+			assertEquals(101, ManagementFactory.getPlatformMBeanServer().queryNames(new ObjectName("org.test.all:*"), null).size());
+		}
+		finally {
+			for (ObjectName name : ManagementFactory.getPlatformMBeanServer().queryNames(new ObjectName("org.test.all:*"), null))
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+		}
+	}
+
+	@Test
+	public void shouldReadAttributesOfMatchingMBeansInOneInvocation() throws Exception {
+		MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+		for (int i = 0; i < 10; i++) {
+			AnnotatedCounter counter = new AnnotatedCounter();
+			counter.setCounter(i);
+			JMXUtil.register(counter, "org.test.bulk:type=AnnotatedCounter,id=" + i);
+		}
+		JMXUtil.registerBulkReader(4);
+		try {
+			ObjectName readerName = new ObjectName(BulkReader.NAME);
+			String[] signature = {String.class.getName(), String[].class.getName()};
+			TabularData values = (TabularData)mBeanServer.invoke(readerName, "read", new Object[] {"org.test.bulk:*", new String[] {"counter", "unknown", "counter"}}, signature);
+
+			assertEquals(10, values.size());
+			for (int i = 0; i < 10; i++) {
+				CompositeData row = values.get(new Object[] {"org.test.bulk:id=" + i + ",type=AnnotatedCounter", "counter"});
+				assertEquals(Integer.class.getName(), row.get("type"));
+				assertEquals(String.valueOf(i), row.get("value"));
+			}
+			TabularData allValues = (TabularData)mBeanServer.invoke(readerName, "read", new Object[] {BulkReader.NAME, null}, signature);
+			assertEquals("4", allValues.get(new Object[] {BulkReader.NAME, "threads"}).get("value"));
+			assertNotNull(allValues.get(new Object[] {BulkReader.NAME, "readDuration.count"}));
+		}
+		finally {
+			JMXUtil.unregister(BulkReader.NAME);
+			for (int i = 0; i < 10; i++)
+				JMXUtil.unregister("org.test.bulk:type=AnnotatedCounter,id=" + i);
+		}
+	}
+
+	@Test
+	public void shouldMapBeansToOpenData() throws Exception {
+		CompositeType type = OpenTypeMapper.getCompositeType(Item.class);
+		assertSame(type, OpenTypeMapper.getCompositeType(Item.class));
+		assertEquals(new HashSet<>(Arrays.asList("name", "count", "impact", "active")), type.keySet());
+		assertEquals(SimpleType.LONG, type.getType("count"));
+
+		CompositeData item = OpenTypeMapper.toCompositeData(new Item("a", 1L));
+		assertEquals("a", item.get("name"));
+		assertEquals(1L, item.get("count"));
+		assertEquals("INFO", item.get("impact"));
+		assertEquals(true, item.get("active"));
+
+		TabularData table = OpenTypeMapper.toTabularData(Arrays.asList(new Item("a", 1L), new Item("b", 2L)), Item.class, "name");
+		assertSame(table.getTabularType(), OpenTypeMapper.getTabularType(Item.class, "name"));
+		assertEquals(2, table.size());
+		assertEquals(2L, table.get(new Object[] {"b"}).get("count"));
+
+		CompositeData[] items = OpenTypeMapper.toCompositeDataArray(Arrays.asList(new Item("a", 1L), new Item("b", 2L)), Item.class);
+		assertSame(type, items[1].getCompositeType());
+		assertEquals("b", items[1].get("name"));
+	}
+
+	@Test(expected = OpenDataException.class)
+	public void shouldNotMapBeanWithUnsupportedPropertyType() throws Exception {
+		OpenTypeMapper.getCompositeType(TaggedItem.class);
+	}
+
+	@Test(expected = OpenDataException.class)
+	public void shouldNotMapBeanWithoutProperties() throws Exception {
+		OpenTypeMapper.getCompositeType(Runnable.class);
+	}
+
+	@Test(expected = OpenDataException.class)
+	public void shouldNotMapBeanWithAmbiguousProperty() throws Exception {
+		OpenTypeMapper.toCompositeData(new AmbiguousItem());
+	}
+
+	@Test
+	public void shouldMapCovariantGetterOnce() throws Exception {
+		CompositeType type = OpenTypeMapper.getCompositeType(NamedItem.class);
+		assertEquals(Collections.singleton("name"), type.keySet());
+		assertEquals(SimpleType.STRING, type.getType("name"));
+	}
+
+	public static class Item {
+
+		private final String name;
+		private final long count;
+
+		public Item(String name, long count) {
+			this.name = name;
+			this.count = count;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public Impact getImpact() {
+			return Impact.INFO;
+		}
+
+		public boolean isActive() {
+			return true;
+		}
+	}
+
+	public static class PagedObject {
+
+		@ManagedAttribute(writable = false, paged = true)
+		public Object getValue() {
+			return "value";
+		}
+	}
+
+	@SynchronizedAttributes
+	public static class FailingHistoryCounter {
+
+		private final AtomicInteger reads = new AtomicInteger();
+		private volatile boolean unlockedRead;
+
+		@ManagedAttribute(writable = false)
+		@ManagedHistory(size = 4, periodMillis = 10L)
+		public int getCounter() {
+			unlockedRead |= !Thread.holdsLock(this);
+			int read = reads.incrementAndGet();
+			if (read % 2 == 1)
+				throw new AssertionError("Failed read " + read);
+			return read;
+		}
+	}
+
+	public static class UnpagedList {
+
+		@ManagedAttribute(writable = false, paged = true)
+		public List<String> getNames() {
+			return Collections.emptyList();
+		}
+	}
+
+	public static class TaggedItem {
+
+		public List<String> getTags() {
+			return Collections.emptyList();
+		}
+	}
+
+	public static class AmbiguousItem {
+
+		public boolean getActive() {
+			return true;
+		}
+
+		public boolean isActive() {
+			return true;
+		}
+	}
+
+	public interface Named {
+		Object getName();
+	}
+
+	public static class NamedItem implements Named {
+
+		@Override public String getName() {
+			return "a";
+		}
+	}
 }
@@ -0,0 +1,19 @@
+package org.strangeforest.jmx;
+
+import org.strangeforest.jmx.annotation.*;
+
+@MBeanDescription("Notifying")
+public class NotifyingCounter {
+
+	private volatile int counter;
+
+	@ManagedAttribute
+	@ManagedNotification(windowMillis = 50L)
+	public int getCounter() {
+		return counter;
+	}
+
+	public void setCounter(int counter) {
+		this.counter = counter;
+	}
+}
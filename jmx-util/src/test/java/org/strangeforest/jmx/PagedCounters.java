@@ -0,0 +1,55 @@
+package org.strangeforest.jmx;
+
+import java.util.*;
+
+import org.strangeforest.jmx.annotation.*;
+
+@MBeanDescription("Paged")
+public class PagedCounters {
+
+	private final List<String> names = new ArrayList<>();
+	private final long[] counts = new long[100];
+
+	public PagedCounters() {
+		for (int i = 0; i < counts.length; i++) {
+			names.add("counter" + i);
+			counts[i] = i;
+		}
+	}
+
+	@ManagedAttribute(writable = false, paged = true)
+	public List<String> getNames() {
+		return names;
+	}
+
+	public List<String> getNames(int offset, int limit) {
+		int from = Math.min(offset, names.size());
+		return new ArrayList<>(names.subList(from, (int)Math.min((long)from + limit, names.size())));
+	}
+
+	@ManagedAttribute(writable = false, paged = true)
+	public long[] getCounts() {
+		return counts;
+	}
+
+	public long[] getCounts(int offset, int limit) {
+		int from = Math.min(offset, counts.length);
+		return Arrays.copyOfRange(counts, from, (int)Math.min((long)from + limit, counts.length));
+	}
+
+	@ManagedAttribute(writable = false, paged = true)
+	public Set<String> getTags() {
+		return new TreeSet<>(Arrays.asList("a", "b", "c"));
+	}
+
+	public Set<String> getTags(int offset, int limit) {
+		Set<String> tags = new LinkedHashSet<>();
+		Iterator<String> iterator = getTags().iterator();
+		for (int i = 0; i < offset + limit && iterator.hasNext(); i++) {
+			String tag = iterator.next();
+			if (i >= offset)
+				tags.add(tag);
+		}
+		return tags;
+	}
+}
@@ -0,0 +1,25 @@
+package org.strangeforest.jmx;
+
+import org.strangeforest.jmx.annotation.*;
+
+@MBeanDescription("Snapshot")
+@SnapshotRefresh(periodMillis = 20L)
+public class SnapshotCounter {
+
+	private volatile int counter;
+	private volatile String readingThread;
+
+	@ManagedAttribute(snapshot = true)
+	public int getCounter() {
+		readingThread = Thread.currentThread().getName();
+		return counter;
+	}
+
+	public void setCounter(int counter) {
+		this.counter = counter;
+	}
+
+	public String getReadingThread() {
+		return readingThread;
+	}
+}
@@ -0,0 +1,318 @@
+package org.strangeforest.jmx.metric;
+
+import java.lang.management.*;
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import javax.management.*;
+import javax.management.openmbean.*;
+
+import org.junit.*;
+import org.strangeforest.jmx.*;
+
+import static org.junit.Assert.*;
+
+public class MetricTest {
+
+	private static final int THREADS = 8;
+	private static final int UPDATES = 10000;
+
+	@Test
+	public void shouldCountConcurrentIncrements() throws Exception {
+		Counter counter = new Counter();
+
+		runConcurrently(counter::increment);
+
+		assertEquals(THREADS * UPDATES, counter.getCount());
+		assertEquals(THREADS * UPDATES, counter.getAndReset());
+		assertEquals(0L, counter.getCount());
+	}
+
+	@Test
+	public void shouldNotLoseUpdatesConcurrentWithReset() throws Exception {
+		Counter counter = new Counter();
+		AtomicLong resetCount = new AtomicLong();
+		AtomicInteger updates = new AtomicInteger();
+		runConcurrently(() -> {
+			if (updates.incrementAndGet() % 100 == 0)
+				resetCount.addAndGet(counter.getAndReset());
+			else
+				counter.increment();
+		});
+
+		assertEquals(THREADS * UPDATES - THREADS * UPDATES / 100, resetCount.get() + counter.getCount());
+	}
+
+	@Test
+	public void shouldBalanceConcurrentGaugeUpdates() throws Exception {
+		Gauge gauge = new Gauge();
+		gauge.add(5L);
+
+		runConcurrently(() -> {
+			gauge.increment();
+			gauge.decrement();
+		});
+
+		assertEquals(5L, gauge.getValue());
+	}
+
+	@Test
+	public void shouldExposeCounterAndGauge() throws Exception {
+		String counterName = "org.test:type=Counter,name=requests";
+		String gaugeName = "org.test:type=Gauge,name=active";
+		Counter counter = new Counter();
+		Gauge gauge = new Gauge();
+		JMXUtil.register(counter, counterName);
+		JMXUtil.register(gauge, gaugeName);
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			counter.add(3L);
+			gauge.add(-2L);
+
+			assertEquals(3L, server.getAttribute(new ObjectName(counterName), "count"));
+			assertEquals(-2L, server.getAttribute(new ObjectName(gaugeName), "value"));
+			assertFalse(server.getMBeanInfo(new ObjectName(counterName)).getAttributes()[0].isWritable());
+
+			assertEquals(3L, server.invoke(new ObjectName(counterName), "getAndReset", null, null));
+			assertEquals(0L, counter.getCount());
+		}
+		finally {
+			JMXUtil.unregister(counterName);
+			JMXUtil.unregister(gaugeName);
+		}
+	}
+
+	@Test
+	public void shouldMapValuesToContiguousBuckets() {
+		assertEquals(0, Histogram.bucketIndex(0L));
+		assertEquals(127, Histogram.bucketIndex(127L));
+		assertEquals(128, Histogram.bucketIndex(128L));
+		assertEquals(Histogram.BUCKET_COUNT - 1, Histogram.bucketIndex(Long.MAX_VALUE));
+		for (int i = 1; i < Histogram.BUCKET_COUNT; i++)
+			assertEquals(Histogram.bucketUpperBound(i - 1) + 1L, Histogram.bucketLowerBound(i));
+		assertEquals(Long.MAX_VALUE, Histogram.bucketUpperBound(Histogram.BUCKET_COUNT - 1));
+	}
+
+	@Test
+	public void shouldReportPercentilesWithinPrecision() throws Exception {
+		Histogram histogram = new Histogram();
+
+		runConcurrently(new Runnable() {
+			private final AtomicLong value = new AtomicLong();
+			@Override public void run() {
+				histogram.record(value.incrementAndGet());
+			}
+		});
+
+		HistogramSnapshot snapshot = histogram.takeSnapshot();
+		long count = THREADS * UPDATES;
+		assertEquals(count, snapshot.getCount());
+		assertEquals((count + 1) / 2.0, snapshot.getMean(), 0.001);
+		assertEquals(count, snapshot.getMax());
+		assertWithinPrecision(count / 2, snapshot.getPercentile(50.0));
+		assertWithinPrecision(count * 99 / 100, snapshot.getPercentile(99.0));
+		assertEquals(count, histogram.takeSnapshot().getCount());
+	}
+
+	@Test
+	public void shouldResetIntervalHistogramOnEachSnapshot() {
+		Histogram histogram = new Histogram(Histogram.Mode.INTERVAL);
+		histogram.record(10L);
+		histogram.record(1000L);
+
+		HistogramSnapshot first = histogram.takeSnapshot();
+		assertEquals(2L, first.getCount());
+		assertEquals(1000L, first.getMax());
+
+		histogram.record(20L);
+		HistogramSnapshot second = histogram.takeSnapshot();
+		assertEquals(1L, second.getCount());
+		assertEquals(20L, second.getPercentile(99.9));
+		assertEquals(20L, second.getMax());
+		assertEquals(0L, histogram.takeSnapshot().getCount());
+		assertEquals(3L, histogram.getCount());
+	}
+
+	@Test
+	public void shouldTrackMaxSinceReset() {
+		Histogram histogram = new Histogram();
+		histogram.record(5000L);
+		histogram.reset();
+		assertEquals(0L, histogram.takeSnapshot().getMax());
+
+		histogram.record(300L);
+		HistogramSnapshot snapshot = histogram.takeSnapshot();
+		assertEquals(300L, snapshot.getMax());
+		assertEquals(300L, snapshot.getPercentile(99.0));
+		assertEquals(300L, histogram.takeSnapshot().getMax());
+	}
+
+	@Test
+	public void shouldExposeHistogramStatisticsAsCompositeData() throws Exception {
+		String name = "org.test:type=Histogram,name=latency";
+		Histogram histogram = new Histogram();
+		JMXUtil.register(histogram, name);
+		try {
+			histogram.record(5L);
+			histogram.record(5L);
+			histogram.record(300L);
+
+			CompositeData statistics = (CompositeData)ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName(name), "statistics");
+			assertEquals(HistogramSnapshot.getStatisticsType(), statistics.getCompositeType());
+			assertEquals(3L, statistics.get("count"));
+			assertEquals(5L, statistics.get("p50"));
+			assertEquals(300L, statistics.get("max"));
+			assertArrayEquals(new long[] {5L, 300L}, (long[])statistics.get("bucketUpperBounds"));
+			assertArrayEquals(new long[] {2L, 1L}, (long[])statistics.get("bucketCounts"));
+		}
+		finally {
+			JMXUtil.unregister(name);
+		}
+	}
+
+	@Test
+	public void shouldReadOnlyCountersChangedSinceEpoch() {
+		CounterTable table = new CounterTable(10);
+		int bmw = table.register("BMW");
+		int fap = table.register("FAP");
+		assertEquals(bmw, table.register("BMW"));
+		table.add(bmw, 5L);
+
+		CompositeData all = table.getChangesSince(0L);
+		assertEquals(2, ((TabularData)all.get("counters")).size());
+
+		table.increment(fap);
+		CompositeData changes = table.getChangesSince((Long)all.get("epoch"));
+		TabularData counters = (TabularData)changes.get("counters");
+		assertEquals(1L, counters.get(new Object[] {"FAP"}).get("count"));
+
+		changes = table.getChangesSince((Long)changes.get("epoch"));
+		counters = (TabularData)changes.get("counters");
+		assertEquals(1, counters.size());
+		assertTrue(counters.containsKey(new Object[] {"FAP"}));
+
+		assertEquals(0, ((TabularData)table.getChangesSince((Long)changes.get("epoch")).get("counters")).size());
+		assertEquals(2, table.getCounters().size());
+	}
+
+	@Test
+	public void shouldNotMissConcurrentCounterChanges() throws Exception {
+		CounterTable table = new CounterTable(THREADS);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < THREADS; i++) {
+				int slot = table.register("counter" + i);
+				futures.add(executor.submit(() -> {
+					for (int j = 0; j < UPDATES; j++)
+						table.increment(slot);
+				}));
+			}
+			long[] counts = new long[THREADS];
+			long epoch = 0L;
+			boolean done;
+			do {
+				done = futures.stream().allMatch(Future::isDone);
+				CompositeData changes = table.getChangesSince(epoch);
+				for (Object row : ((TabularData)changes.get("counters")).values()) {
+					CompositeData counter = (CompositeData)row;
+					counts[Integer.parseInt(((String)counter.get("name")).substring(7))] = (Long)counter.get("count");
+				}
+				epoch = (Long)changes.get("epoch");
+			}
+			while (!done);
+			for (long count : counts)
+				assertEquals(UPDATES, count);
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void shouldInvokeDeltaReadOfRegisteredCounterTable() throws Exception {
+		String name = "org.test:type=CounterTable,name=requests";
+		CounterTable table = new CounterTable(10);
+		table.increment(table.register("BMW"));
+		JMXUtil.register(table, name);
+		try {
+			CompositeData changes = (CompositeData)ManagementFactory.getPlatformMBeanServer().invoke(new ObjectName(name), "getChangesSince", new Object[] {0L}, new String[] {"long"});
+			assertEquals(CounterTable.getChangesType(), changes.getCompositeType());
+			assertEquals(1, ((TabularData)changes.get("counters")).size());
+		}
+		finally {
+			JMXUtil.unregister(name);
+		}
+	}
+
+	@Test
+	public void shouldCountOffHeapCountersAndReadThemInPages() throws Exception {
+		String name = "org.test:type=OffHeapCounterTable,name=requests";
+		OffHeapCounterTable table = new OffHeapCounterTable(1000);
+		for (int i = 0; i < 1000; i++)
+			assertEquals(i, table.register("tenant" + i / 4, "endpoint" + i % 4));
+		assertEquals(17, table.register("tenant4", "endpoint1"));
+		assertEquals(254, table.getKeys());
+		runConcurrently(() -> table.increment(table.register("tenant4", "endpoint1")));
+		assertEquals(THREADS * UPDATES, table.get(17));
+		assertEquals(THREADS * UPDATES, table.getTotal());
+
+		JMXUtil.register(table, name);
+		try {
+			TabularData page = (TabularData)ManagementFactory.getPlatformMBeanServer().invoke(new ObjectName(name), "getCounters", new Object[] {16, 4}, new String[] {"int", "int"});
+			assertEquals(OffHeapCounterTable.getCountersType(), page.getTabularType());
+			assertEquals(4, page.size());
+			assertEquals((long)THREADS * UPDATES, page.get(new Object[] {"tenant4", "endpoint1"}).get("count"));
+			assertEquals(0L, page.get(new Object[] {"tenant4", "endpoint3"}).get("count"));
+			assertEquals(0, table.getCounters(1000, 10).size());
+		}
+		finally {
+			JMXUtil.unregister(name);
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void shouldNotAddCountersToFullOffHeapTable() {
+		OffHeapCounterTable table = new OffHeapCounterTable(2);
+		table.register("BMW", "Car");
+		table.register("FAP", "Truck");
+		table.register("Mercedes", "Car");
+	}
+
+	@Test
+	public void shouldAccessBuffersAtomicallyWithEachBufferAccess() throws Exception {
+		assertEquals(!System.getProperty("java.specification.version").startsWith("1."), BufferAccess.isVarHandleSupported());
+		for (BufferAccess access : new BufferAccess[] {BufferAccess.INSTANCE, new BufferAccess.LockedAccess()}) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(32).order(ByteOrder.nativeOrder());
+			runConcurrently(() -> access.getAndAddLong(buffer, 8, 1L));
+			assertEquals(THREADS * UPDATES, access.getLongVolatile(buffer, 8));
+			assertEquals(0L, access.getLongVolatile(buffer, 0));
+			access.putIntVolatile(buffer, 20, 7);
+			assertEquals(7, access.getIntVolatile(buffer, 20));
+			assertEquals(7, buffer.getInt(20));
+		}
+	}
+
+	private static void assertWithinPrecision(long expected, long actual) {
+		assertEquals(expected, actual, expected / 64.0);
+	}
+
+	private static void runConcurrently(Runnable update) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < THREADS; i++) {
+				futures.add(executor.submit(() -> {
+					for (int j = 0; j < UPDATES; j++)
+						update.run();
+				}));
+			}
+			for (Future<?> future : futures)
+				future.get();
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+}